@@ -16,16 +16,24 @@
 package com.smoketurner.dropwizard.riak;
 
 import com.basho.riak.client.api.RiakClient;
-import com.smoketurner.dropwizard.riak.health.RiakHealthCheck;
-import com.smoketurner.dropwizard.riak.managed.RiakClientManager;
+import com.smoketurner.dropwizard.riak.batch.RiakBatchWriter;
+import com.smoketurner.dropwizard.riak.client.RiakAsyncClient;
+import com.smoketurner.dropwizard.riak.client.RiakSyncClient;
+import com.smoketurner.dropwizard.riak.multiget.RiakMultiGet;
+import com.smoketurner.dropwizard.riak.options.RiakBuckets;
+import com.smoketurner.dropwizard.riak.query.RiakStreamingQuery;
 import io.dropwizard.Configuration;
 import io.dropwizard.ConfiguredBundle;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import java.util.Optional;
+import javax.annotation.Nullable;
 
 public abstract class RiakBundle<C extends Configuration>
     implements ConfiguredBundle<C>, RiakConfiguration<C> {
 
+  @Nullable private RiakServices services;
+
   @Override
   public void initialize(Bootstrap<?> bootstrap) {
     // nothing to initialize
@@ -33,8 +41,65 @@ public abstract class RiakBundle<C extends Configuration>
 
   @Override
   public void run(final C configuration, final Environment environment) throws Exception {
-    final RiakClient client = getRiakFactory(configuration).build();
-    environment.lifecycle().manage(new RiakClientManager(client));
-    environment.healthChecks().register("riak", new RiakHealthCheck(client));
+    this.services = RiakServices.register("riak", getRiakFactory(configuration), environment);
+  }
+
+  /**
+   * @return the Riak client built by {@link #run}
+   * @throws IllegalStateException if the bundle has not been run
+   */
+  public RiakClient getRiakClient() {
+    return services().getClient();
+  }
+
+  /**
+   * @return the multi-get service built by {@link #run}
+   * @throws IllegalStateException if the bundle has not been run
+   */
+  public RiakMultiGet getMultiGet() {
+    return services().getMultiGet();
+  }
+
+  /**
+   * @return the streaming query service built by {@link #run}
+   * @throws IllegalStateException if the bundle has not been run
+   */
+  public RiakStreamingQuery getStreamingQuery() {
+    return services().getStreamingQuery();
+  }
+
+  /**
+   * @return the asynchronous client built by {@link #run}
+   * @throws IllegalStateException if the bundle has not been run
+   */
+  public RiakAsyncClient getAsyncClient() {
+    return services().getAsyncClient();
+  }
+
+  /**
+   * @return the default request options of the buckets in the {@code buckets} section
+   * @throws IllegalStateException if the bundle has not been run
+   */
+  public RiakBuckets getBuckets() {
+    return services().getBuckets();
+  }
+
+  /** @return the batch writer built by {@link #run}, if the {@code batch} section is configured */
+  public Optional<RiakBatchWriter> getBatchWriter() {
+    return services != null ? services.getBatchWriter() : Optional.empty();
+  }
+
+  /**
+   * @return the synchronous client built by {@link #run}, if the {@code sync} section is configured
+   */
+  public Optional<RiakSyncClient> getSyncClient() {
+    return services != null ? services.getSyncClient() : Optional.empty();
+  }
+
+  private RiakServices services() {
+    if (services == null) {
+      throw new IllegalStateException("RiakBundle has not been run");
+    }
+    return services;
   }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Picks the client of one of several clusters for an operation, by name or by the bucket type the
+ * operation targets. Bucket types without a rule go to the default cluster, which is the only
+ * cluster when just one is configured.
+ *
+ * <p>Riak commands don't expose the bucket they target until they have been executed, so callers
+ * look up the client for a namespace or location before building the command:
+ *
+ * <pre>
+ * router.getClient(location).execute(new FetchValue.Builder(location).build());
+ * </pre>
+ */
+public class RiakClusterRouter {
+
+  private final Map<String, RiakClient> clients;
+  private final Map<String, String> bucketTypes;
+  @Nullable private final RiakClient defaultClient;
+
+  /**
+   * Constructor
+   *
+   * @param clients Client of each cluster, by cluster name
+   * @param bucketTypes Cluster name by bucket type
+   * @param defaultCluster Cluster for bucket types without a rule, or null to use the only cluster
+   * @throws IllegalArgumentException if a rule or the default refers to an unknown cluster
+   */
+  public RiakClusterRouter(
+      final Map<String, RiakClient> clients,
+      final Map<String, String> bucketTypes,
+      @Nullable final String defaultCluster) {
+    this.clients = ImmutableMap.copyOf(clients);
+    this.bucketTypes = ImmutableMap.copyOf(bucketTypes);
+    bucketTypes.values().forEach(this::getClient);
+    if (defaultCluster != null) {
+      this.defaultClient = getClient(defaultCluster);
+    } else if (clients.size() == 1) {
+      this.defaultClient = clients.values().iterator().next();
+    } else {
+      this.defaultClient = null;
+    }
+  }
+
+  /** @return the client of every cluster, by cluster name */
+  public Map<String, RiakClient> getClients() {
+    return clients;
+  }
+
+  /**
+   * Return the client of a cluster
+   *
+   * @param cluster Cluster name
+   * @return the cluster's client
+   * @throws IllegalArgumentException if the cluster is not configured
+   */
+  public RiakClient getClient(final String cluster) {
+    final RiakClient client = clients.get(cluster);
+    if (client == null) {
+      throw new IllegalArgumentException("Unknown Riak cluster: " + cluster);
+    }
+    return client;
+  }
+
+  /**
+   * Return the client of the cluster holding a bucket
+   *
+   * @param namespace Bucket type and bucket
+   * @return the client for the bucket type
+   * @throws IllegalArgumentException if no rule matches the bucket type and there is no default
+   */
+  public RiakClient getClient(final Namespace namespace) {
+    final String cluster = bucketTypes.get(namespace.getBucketTypeAsString());
+    if (cluster != null) {
+      return getClient(cluster);
+    }
+    if (defaultClient == null) {
+      throw new IllegalArgumentException(
+          "No Riak cluster for bucket type: " + namespace.getBucketTypeAsString());
+    }
+    return defaultClient;
+  }
+
+  /**
+   * Return the client of the cluster holding a key
+   *
+   * @param location Location of the key
+   * @return the client for the location's bucket type
+   * @throws IllegalArgumentException if no rule matches the bucket type and there is no default
+   */
+  public RiakClient getClient(final Location location) {
+    return getClient(Objects.requireNonNull(location).getNamespace());
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak;
+
+import com.basho.riak.client.api.RiakClient;
+import com.smoketurner.dropwizard.riak.batch.RiakBatchWriter;
+import com.smoketurner.dropwizard.riak.client.RiakAsyncClient;
+import com.smoketurner.dropwizard.riak.client.RiakSyncClient;
+import com.smoketurner.dropwizard.riak.multiget.RiakMultiGet;
+import com.smoketurner.dropwizard.riak.options.RiakBuckets;
+import com.smoketurner.dropwizard.riak.query.RiakStreamingQuery;
+import io.dropwizard.Configuration;
+import io.dropwizard.ConfiguredBundle;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.Nullable;
+
+/**
+ * Bundle for several named Riak clusters. Every cluster is managed and health checked on its own,
+ * with its health check registered as {@code riak-<cluster>}.
+ */
+public abstract class RiakClustersBundle<C extends Configuration>
+    implements ConfiguredBundle<C>, RiakClustersConfiguration<C> {
+
+  private final Map<String, RiakServices> services = new LinkedHashMap<>();
+
+  @Nullable private RiakClusterRouter router;
+
+  @Override
+  public void initialize(Bootstrap<?> bootstrap) {
+    // nothing to initialize
+  }
+
+  @Override
+  public void run(final C configuration, final Environment environment) throws Exception {
+    final RiakClustersFactory factory = getRiakClustersFactory(configuration);
+    for (String cluster : factory.getClusters().keySet()) {
+      services.put(
+          cluster,
+          RiakServices.register("riak-" + cluster, factory.getCluster(cluster), environment));
+    }
+    this.router = factory.buildRouter(environment.metrics());
+  }
+
+  /**
+   * @return the router over the clients built by {@link #run}
+   * @throws IllegalStateException if the bundle has not been run
+   */
+  public RiakClusterRouter getRouter() {
+    if (router == null) {
+      throw new IllegalStateException("RiakClustersBundle has not been run");
+    }
+    return router;
+  }
+
+  /**
+   * @param cluster Cluster name
+   * @return the Riak client built by {@link #run} for the cluster
+   * @throws IllegalStateException if the bundle has not been run
+   * @throws IllegalArgumentException if the cluster is not configured
+   */
+  public RiakClient getRiakClient(final String cluster) {
+    return services(cluster).getClient();
+  }
+
+  /**
+   * @param cluster Cluster name
+   * @return the multi-get service built by {@link #run} for the cluster
+   * @throws IllegalStateException if the bundle has not been run
+   * @throws IllegalArgumentException if the cluster is not configured
+   */
+  public RiakMultiGet getMultiGet(final String cluster) {
+    return services(cluster).getMultiGet();
+  }
+
+  /**
+   * @param cluster Cluster name
+   * @return the streaming query service built by {@link #run} for the cluster
+   * @throws IllegalStateException if the bundle has not been run
+   * @throws IllegalArgumentException if the cluster is not configured
+   */
+  public RiakStreamingQuery getStreamingQuery(final String cluster) {
+    return services(cluster).getStreamingQuery();
+  }
+
+  /**
+   * @param cluster Cluster name
+   * @return the asynchronous client built by {@link #run} for the cluster
+   * @throws IllegalStateException if the bundle has not been run
+   * @throws IllegalArgumentException if the cluster is not configured
+   */
+  public RiakAsyncClient getAsyncClient(final String cluster) {
+    return services(cluster).getAsyncClient();
+  }
+
+  /**
+   * @param cluster Cluster name
+   * @return the default request options of the buckets in the cluster's {@code buckets} section
+   * @throws IllegalStateException if the bundle has not been run
+   * @throws IllegalArgumentException if the cluster is not configured
+   */
+  public RiakBuckets getBuckets(final String cluster) {
+    return services(cluster).getBuckets();
+  }
+
+  /**
+   * @param cluster Cluster name
+   * @return the batch writer built by {@link #run} for the cluster, if its {@code batch} section is
+   *     configured
+   * @throws IllegalStateException if the bundle has not been run
+   * @throws IllegalArgumentException if the cluster is not configured
+   */
+  public Optional<RiakBatchWriter> getBatchWriter(final String cluster) {
+    return services(cluster).getBatchWriter();
+  }
+
+  /**
+   * @param cluster Cluster name
+   * @return the synchronous client built by {@link #run} for the cluster, if its {@code sync}
+   *     section is configured
+   * @throws IllegalStateException if the bundle has not been run
+   * @throws IllegalArgumentException if the cluster is not configured
+   */
+  public Optional<RiakSyncClient> getSyncClient(final String cluster) {
+    return services(cluster).getSyncClient();
+  }
+
+  private RiakServices services(final String cluster) {
+    if (router == null) {
+      throw new IllegalStateException("RiakClustersBundle has not been run");
+    }
+    final RiakServices registered = services.get(cluster);
+    if (registered == null) {
+      throw new IllegalArgumentException("Unknown Riak cluster: " + cluster);
+    }
+    return registered;
+  }
+}
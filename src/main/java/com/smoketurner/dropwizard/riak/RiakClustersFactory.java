@@ -0,0 +1,180 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.api.RiakClient;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.smoketurner.dropwizard.riak.compression.CompressionFactory;
+import io.dropwizard.validation.ValidationMethod;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import org.hibernate.validator.constraints.NotEmpty;
+
+/**
+ * Configuration for several named Riak clusters, each with its own connection pools, metrics,
+ * health checks and lifecycle, along with rules for picking a cluster by bucket type.
+ *
+ * <pre>
+ * riak:
+ *   defaultCluster: hot
+ *   bucketTypes:
+ *     archive: cold
+ *   clusters:
+ *     hot:
+ *       nodes: [hot1:8087, hot2:8087]
+ *     cold:
+ *       nodes: [cold1:8087]
+ * </pre>
+ *
+ * <p>Unless a cluster sets its own {@code metricsPrefix}, its metrics are named {@code
+ * riak.<cluster>.*}.
+ */
+public class RiakClustersFactory {
+
+  @Valid @NotEmpty private Map<String, RiakFactory> clusters = Collections.emptyMap();
+
+  @Nullable private String defaultCluster;
+
+  @NotNull private Map<String, String> bucketTypes = Collections.emptyMap();
+
+  @JsonProperty
+  public Map<String, RiakFactory> getClusters() {
+    return clusters;
+  }
+
+  @JsonProperty
+  public void setClusters(final Map<String, RiakFactory> clusters) {
+    this.clusters = clusters;
+  }
+
+  @Nullable
+  @JsonProperty
+  public String getDefaultCluster() {
+    return defaultCluster;
+  }
+
+  @JsonProperty
+  public void setDefaultCluster(@Nullable final String cluster) {
+    this.defaultCluster = cluster;
+  }
+
+  @JsonProperty
+  public Map<String, String> getBucketTypes() {
+    return bucketTypes;
+  }
+
+  @JsonProperty
+  public void setBucketTypes(final Map<String, String> bucketTypes) {
+    this.bucketTypes = bucketTypes;
+  }
+
+  @JsonIgnore
+  @ValidationMethod(message = "defaultCluster and bucketTypes must refer to configured clusters")
+  public boolean isValidRouting() {
+    if (defaultCluster != null && !clusters.containsKey(defaultCluster)) {
+      return false;
+    }
+    return clusters.keySet().containsAll(bucketTypes.values());
+  }
+
+  /**
+   * Compressing converters are registered for the whole JVM, so a type compressed by one cluster is
+   * compressed by every cluster, with the settings of whichever registered it first.
+   */
+  @JsonIgnore
+  @ValidationMethod(
+      message =
+          "compression must be configured identically on every cluster if any compresses types")
+  public boolean isConsistentCompression() {
+    final CompressionFactory first =
+        clusters.values().stream()
+            .map(RiakFactory::getCompression)
+            .filter(compression -> compression != null && !compression.getTypes().isEmpty())
+            .findFirst()
+            .orElse(null);
+    if (first == null) {
+      return true;
+    }
+    return clusters.values().stream()
+        .map(RiakFactory::getCompression)
+        .allMatch(
+            compression ->
+                compression != null
+                    && compression.getThreshold().toBytes() == first.getThreshold().toBytes()
+                    && compression.getLevel() == first.getLevel()
+                    && new HashSet<>(compression.getTypes())
+                        .equals(new HashSet<>(first.getTypes())));
+  }
+
+  /**
+   * Return the configuration of a cluster, defaulting its {@code metricsPrefix} to {@code
+   * riak.<cluster>}
+   *
+   * @param cluster Cluster name
+   * @return the cluster's configuration
+   * @throws IllegalArgumentException if the cluster is not configured
+   */
+  @JsonIgnore
+  public RiakFactory getCluster(final String cluster) {
+    final RiakFactory factory = clusters.get(cluster);
+    if (factory == null) {
+      throw new IllegalArgumentException("Unknown Riak cluster: " + cluster);
+    }
+    if (factory.getMetricsPrefix() == null) {
+      factory.setMetricsPrefix(name(RiakFactory.METRICS_PREFIX, cluster));
+    }
+    return factory;
+  }
+
+  /**
+   * Build the client for a cluster
+   *
+   * @param cluster Cluster name
+   * @param metrics Metric registry
+   * @return the cluster's client
+   * @throws IllegalArgumentException if the cluster is not configured
+   * @throws Exception if unable to build the client
+   */
+  @JsonIgnore
+  public RiakClient build(final String cluster, final MetricRegistry metrics) throws Exception {
+    return getCluster(cluster).build(metrics);
+  }
+
+  /**
+   * Build a router over the client of every cluster
+   *
+   * @param metrics Metric registry
+   * @return a new router
+   * @throws Exception if unable to build a client
+   */
+  @JsonIgnore
+  public RiakClusterRouter buildRouter(final MetricRegistry metrics) throws Exception {
+    final Map<String, RiakClient> clients = new LinkedHashMap<>();
+    for (String cluster : clusters.keySet()) {
+      clients.put(cluster, build(cluster, metrics));
+    }
+    return new RiakClusterRouter(clients, bucketTypes, defaultCluster);
+  }
+}
@@ -18,12 +18,46 @@ package com.smoketurner.dropwizard.riak;
 import com.basho.riak.client.api.RiakClient;
 import com.basho.riak.client.core.RiakCluster;
 import com.basho.riak.client.core.RiakNode;
+import com.basho.riak.client.core.query.Namespace;
 import com.basho.riak.client.core.util.DefaultCharset;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Strings;
 import com.google.common.net.HostAndPort;
 import com.google.common.primitives.Ints;
+import com.smoketurner.dropwizard.riak.batch.BatchWriterFactory;
+import com.smoketurner.dropwizard.riak.batch.RiakBatchWriter;
+import com.smoketurner.dropwizard.riak.cache.CacheFactory;
+import com.smoketurner.dropwizard.riak.client.CoalescingRiakClient;
+import com.smoketurner.dropwizard.riak.client.InstrumentedRiakClient;
+import com.smoketurner.dropwizard.riak.client.RiakAsyncClient;
+import com.smoketurner.dropwizard.riak.client.RiakSyncClient;
+import com.smoketurner.dropwizard.riak.client.SyncClientFactory;
+import com.smoketurner.dropwizard.riak.cluster.CircuitBreakerFactory;
+import com.smoketurner.dropwizard.riak.cluster.ConcurrencyLimitFactory;
+import com.smoketurner.dropwizard.riak.cluster.ConnectionWarmer;
+import com.smoketurner.dropwizard.riak.cluster.ConnectionWarmupFactory;
+import com.smoketurner.dropwizard.riak.cluster.InstrumentedNodeManager;
+import com.smoketurner.dropwizard.riak.cluster.InstrumentedSocketChannel;
+import com.smoketurner.dropwizard.riak.cluster.NodeSelectionStrategy;
+import com.smoketurner.dropwizard.riak.cluster.SlowOperationLogFactory;
+import com.smoketurner.dropwizard.riak.compression.CompressionFactory;
+import com.smoketurner.dropwizard.riak.discovery.ClusterMembership;
+import com.smoketurner.dropwizard.riak.discovery.MembershipFactory;
+import com.smoketurner.dropwizard.riak.discovery.StaticNodeDiscovery;
+import com.smoketurner.dropwizard.riak.health.HealthProbeFactory;
+import com.smoketurner.dropwizard.riak.health.RiakHealthProbe;
+import com.smoketurner.dropwizard.riak.hedging.HedgingFactory;
+import com.smoketurner.dropwizard.riak.managed.RiakClientManager;
+import com.smoketurner.dropwizard.riak.multiget.RiakMultiGet;
+import com.smoketurner.dropwizard.riak.options.BucketOptionsFactory;
+import com.smoketurner.dropwizard.riak.options.RiakBuckets;
+import com.smoketurner.dropwizard.riak.query.RiakStreamingQuery;
+import com.smoketurner.dropwizard.riak.siblings.ResolvingRiakClient;
+import com.smoketurner.dropwizard.riak.siblings.SiblingResolutionFactory;
+import com.smoketurner.dropwizard.riak.tracing.RiakTracer;
+import com.smoketurner.dropwizard.riak.tracing.TracingFactory;
 import io.dropwizard.util.Duration;
 import io.dropwizard.validation.MinDuration;
 import java.io.FileInputStream;
@@ -34,20 +68,30 @@ import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
+import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import org.hibernate.validator.constraints.NotEmpty;
 
 public class RiakFactory {
 
+  static final String METRICS_PREFIX = "riak";
+
   private final AtomicReference<RiakClient> clientRef = new AtomicReference<>();
 
+  @Nullable private volatile InstrumentedNodeManager nodeManager;
+  @Nullable private volatile RiakBatchWriter siblingWriter;
+
   @NotEmpty private List<HostAndPort> nodes = Collections.emptyList();
 
+  @Nullable private String metricsPrefix;
+
   @Nullable private String username;
 
   @Nullable private String password;
@@ -75,6 +119,8 @@ public class RiakFactory {
 
   private boolean blockOnMaxConnections = false;
 
+  @NotNull private NodeSelectionStrategy nodeSelection = NodeSelectionStrategy.ROUND_ROBIN;
+
   @NotNull
   @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
   private Duration idleTimeout = Duration.milliseconds(1000);
@@ -83,6 +129,50 @@ public class RiakFactory {
   @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
   private Duration connectionTimeout = Duration.milliseconds(0);
 
+  @NotNull
+  @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+  private Duration drainTimeout = Duration.seconds(10);
+
+  @NotNull
+  @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+  private Duration shutdownTimeout = Duration.seconds(5);
+
+  private boolean coalesceFetches = false;
+
+  @Min(1)
+  private int multiGetConcurrency = 16;
+
+  @Min(1)
+  private int queryPageSize = 1000;
+
+  @Valid @NotNull private List<BucketOptionsFactory> buckets = Collections.emptyList();
+
+  @Valid @Nullable private CacheFactory cache;
+
+  @Valid @Nullable private BatchWriterFactory batch;
+
+  @Valid @Nullable private CompressionFactory compression;
+
+  @Valid @Nullable private SiblingResolutionFactory siblings;
+
+  @Valid @Nullable private HedgingFactory hedging;
+
+  @Valid @Nullable private ConcurrencyLimitFactory concurrencyLimit;
+
+  @Valid @Nullable private CircuitBreakerFactory circuitBreaker;
+
+  @Valid @Nullable private ConnectionWarmupFactory warmup;
+
+  @Valid @Nullable private TracingFactory tracing;
+
+  @Valid @Nullable private SlowOperationLogFactory slowOperations;
+
+  @Valid @Nullable private SyncClientFactory sync;
+
+  @Valid @Nullable private MembershipFactory membership;
+
+  @Valid @NotNull private HealthProbeFactory healthCheck = new HealthProbeFactory();
+
   @JsonProperty
   public List<HostAndPort> getNodes() {
     return nodes;
@@ -93,6 +183,17 @@ public class RiakFactory {
     this.nodes = nodes;
   }
 
+  @Nullable
+  @JsonProperty
+  public String getMetricsPrefix() {
+    return metricsPrefix;
+  }
+
+  @JsonProperty
+  public void setMetricsPrefix(@Nullable final String prefix) {
+    this.metricsPrefix = prefix;
+  }
+
   @Nullable
   @JsonProperty
   public String getUsername() {
@@ -209,6 +310,26 @@ public class RiakFactory {
     this.executionAttempts = attempts;
   }
 
+  @JsonProperty
+  public boolean isBlockOnMaxConnections() {
+    return blockOnMaxConnections;
+  }
+
+  @JsonProperty
+  public void setBlockOnMaxConnections(final boolean block) {
+    this.blockOnMaxConnections = block;
+  }
+
+  @JsonProperty
+  public NodeSelectionStrategy getNodeSelection() {
+    return nodeSelection;
+  }
+
+  @JsonProperty
+  public void setNodeSelection(final NodeSelectionStrategy strategy) {
+    this.nodeSelection = strategy;
+  }
+
   @JsonProperty
   public Duration getIdleTimeout() {
     return idleTimeout;
@@ -229,47 +350,459 @@ public class RiakFactory {
     this.connectionTimeout = timeout;
   }
 
+  @JsonProperty
+  public Duration getDrainTimeout() {
+    return drainTimeout;
+  }
+
+  @JsonProperty
+  public void setDrainTimeout(final Duration timeout) {
+    this.drainTimeout = timeout;
+  }
+
+  @JsonProperty
+  public Duration getShutdownTimeout() {
+    return shutdownTimeout;
+  }
+
+  @JsonProperty
+  public void setShutdownTimeout(final Duration timeout) {
+    this.shutdownTimeout = timeout;
+  }
+
+  @JsonProperty
+  public boolean isCoalesceFetches() {
+    return coalesceFetches;
+  }
+
+  @JsonProperty
+  public void setCoalesceFetches(final boolean coalesce) {
+    this.coalesceFetches = coalesce;
+  }
+
+  @JsonProperty
+  public int getMultiGetConcurrency() {
+    return multiGetConcurrency;
+  }
+
+  @JsonProperty
+  public void setMultiGetConcurrency(final int concurrency) {
+    this.multiGetConcurrency = concurrency;
+  }
+
+  @JsonProperty
+  public int getQueryPageSize() {
+    return queryPageSize;
+  }
+
+  @JsonProperty
+  public void setQueryPageSize(final int size) {
+    this.queryPageSize = size;
+  }
+
+  @Nullable
+  @JsonProperty
+  public CacheFactory getCache() {
+    return cache;
+  }
+
+  @JsonProperty
+  public void setCache(@Nullable final CacheFactory cache) {
+    this.cache = cache;
+  }
+
+  @Nullable
+  @JsonProperty
+  public BatchWriterFactory getBatch() {
+    return batch;
+  }
+
+  @JsonProperty
+  public void setBatch(@Nullable final BatchWriterFactory batch) {
+    this.batch = batch;
+  }
+
+  @Nullable
+  @JsonProperty
+  public CompressionFactory getCompression() {
+    return compression;
+  }
+
+  @JsonProperty
+  public void setCompression(@Nullable final CompressionFactory compression) {
+    this.compression = compression;
+  }
+
+  @Nullable
+  @JsonProperty
+  public SiblingResolutionFactory getSiblings() {
+    return siblings;
+  }
+
+  @JsonProperty
+  public void setSiblings(@Nullable final SiblingResolutionFactory siblings) {
+    this.siblings = siblings;
+  }
+
+  @Nullable
+  @JsonProperty
+  public HedgingFactory getHedging() {
+    return hedging;
+  }
+
+  @JsonProperty
+  public void setHedging(@Nullable final HedgingFactory hedging) {
+    this.hedging = hedging;
+  }
+
+  @Nullable
+  @JsonProperty
+  public ConcurrencyLimitFactory getConcurrencyLimit() {
+    return concurrencyLimit;
+  }
+
+  @JsonProperty
+  public void setConcurrencyLimit(@Nullable final ConcurrencyLimitFactory limit) {
+    this.concurrencyLimit = limit;
+  }
+
+  @Nullable
+  @JsonProperty
+  public CircuitBreakerFactory getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  @JsonProperty
+  public void setCircuitBreaker(@Nullable final CircuitBreakerFactory breaker) {
+    this.circuitBreaker = breaker;
+  }
+
+  @Nullable
+  @JsonProperty
+  public TracingFactory getTracing() {
+    return tracing;
+  }
+
+  @JsonProperty
+  public void setTracing(@Nullable final TracingFactory tracing) {
+    this.tracing = tracing;
+  }
+
+  @Nullable
+  @JsonProperty
+  public SlowOperationLogFactory getSlowOperations() {
+    return slowOperations;
+  }
+
+  @JsonProperty
+  public void setSlowOperations(@Nullable final SlowOperationLogFactory slowOperations) {
+    this.slowOperations = slowOperations;
+  }
+
+  @JsonProperty
+  public List<BucketOptionsFactory> getBuckets() {
+    return buckets;
+  }
+
+  @JsonProperty
+  public void setBuckets(final List<BucketOptionsFactory> buckets) {
+    this.buckets = buckets;
+  }
+
+  @Nullable
+  @JsonProperty
+  public SyncClientFactory getSync() {
+    return sync;
+  }
+
+  @JsonProperty
+  public void setSync(@Nullable final SyncClientFactory sync) {
+    this.sync = sync;
+  }
+
+  @Nullable
+  @JsonProperty
+  public ConnectionWarmupFactory getWarmup() {
+    return warmup;
+  }
+
+  @JsonProperty
+  public void setWarmup(@Nullable final ConnectionWarmupFactory warmup) {
+    this.warmup = warmup;
+  }
+
+  @Nullable
+  @JsonProperty
+  public MembershipFactory getMembership() {
+    return membership;
+  }
+
+  @JsonProperty
+  public void setMembership(@Nullable final MembershipFactory membership) {
+    this.membership = membership;
+  }
+
+  @JsonProperty
+  public HealthProbeFactory getHealthCheck() {
+    return healthCheck;
+  }
+
+  @JsonProperty
+  public void setHealthCheck(final HealthProbeFactory healthCheck) {
+    this.healthCheck = healthCheck;
+  }
+
+  /**
+   * Return the node manager of the client built by {@link #build(MetricRegistry)}
+   *
+   * @return the node manager
+   * @throws IllegalStateException if the client has not been built
+   */
   @JsonIgnore
-  public RiakClient build() throws Exception {
-    if (clientRef.get() != null) {
-      return clientRef.get();
+  public InstrumentedNodeManager getNodeManager() {
+    final InstrumentedNodeManager manager = nodeManager;
+    if (manager == null) {
+      throw new IllegalStateException("RiakFactory has not been built");
     }
+    return manager;
+  }
 
-    final RiakNode.Builder builder =
-        new RiakNode.Builder()
-            .withMinConnections(minConnections)
-            .withMaxConnections(maxConnections)
-            .withConnectionTimeout(Ints.checkedCast(connectionTimeout.toMilliseconds()))
-            .withIdleTimeout(Ints.checkedCast(idleTimeout.toMilliseconds()))
-            .withBlockOnMaxConnections(blockOnMaxConnections);
+  /**
+   * @return the batch writer which writes back merged siblings, if the {@code siblings} section
+   *     enables write-back and the client has been built
+   */
+  @JsonIgnore
+  public Optional<RiakBatchWriter> getSiblingWriter() {
+    return Optional.ofNullable(siblingWriter);
+  }
 
-    final KeyStore keyStore = getKeyStore();
-    final KeyStore trustStore = getTrustStore();
+  @JsonIgnore
+  public RiakClient build() throws Exception {
+    return build(new MetricRegistry());
+  }
 
-    builder.withAuth(username, password, trustStore, keyStore, keyStorePassword);
+  @JsonIgnore
+  public synchronized RiakClient build(final MetricRegistry metrics) throws Exception {
+    // built under the lock, so a racing caller never builds a second client whose node manager,
+    // scheduler and writer would be left running
+    final RiakClient existing = clientRef.get();
+    if (existing != null) {
+      return existing;
+    }
 
+    // when warming up, connections are opened in parallel after the nodes have started
+    final RiakNode.Builder builder = nodeBuilder(warmup != null ? 0 : minConnections);
     final List<RiakNode> nodes =
         this.nodes.stream()
-            .map(
-                address ->
-                    builder
-                        .withRemoteAddress(address.getHost())
-                        .withRemotePort(
-                            address.getPortOrDefault(RiakNode.Builder.DEFAULT_REMOTE_PORT))
-                        .build())
+            .map(address -> buildNode(builder, address))
             .collect(Collectors.toList());
 
     DefaultCharset.set(StandardCharsets.UTF_8);
 
+    final String prefix = prefix();
+    final InstrumentedNodeManager manager =
+        new InstrumentedNodeManager(
+            metrics,
+            prefix,
+            nodeSelection,
+            concurrencyLimit,
+            circuitBreaker,
+            tracing != null ? tracing.build() : RiakTracer.NOOP,
+            slowOperations != null ? slowOperations.build() : null);
     final RiakCluster cluster =
-        RiakCluster.builder(nodes).withExecutionAttempts(executionAttempts).build();
+        RiakCluster.builder(nodes)
+            .withExecutionAttempts(executionAttempts)
+            .withNodeManager(manager)
+            .withBootstrap(InstrumentedSocketChannel.bootstrap(metrics, prefix))
+            .build();
+
+    RiakClient client = new InstrumentedRiakClient(new RiakClient(cluster), metrics, prefix);
+    if (compression != null) {
+      client = compression.build(client, metrics, prefix);
+    }
+    RiakBatchWriter writer = null;
+    if (siblings != null) {
+      final ResolvingRiakClient resolving = siblings.build(client, metrics, prefix);
+      writer = resolving.getWriter().orElse(null);
+      client = resolving;
+    }
+    if (hedging != null) {
+      client = hedging.build(client, metrics, prefix);
+    }
+    if (coalesceFetches) {
+      client = new CoalescingRiakClient(client, metrics, prefix);
+    }
+    if (cache != null) {
+      client = cache.build(client, metrics, prefix);
+    }
 
-    final RiakClient client = new RiakClient(cluster);
-    if (clientRef.compareAndSet(null, client)) {
-      return client;
+    this.nodeManager = manager;
+    this.siblingWriter = writer;
+    clientRef.set(client);
+    return client;
+  }
+
+  /**
+   * Build a batch writer using the {@code batch} configuration, or the defaults if it is not set.
+   *
+   * @param metrics Metric registry
+   * @return a new batch writer for the client returned by {@link #build(MetricRegistry)}
+   * @throws Exception if unable to build the client
+   */
+  @JsonIgnore
+  public RiakBatchWriter buildBatchWriter(final MetricRegistry metrics) throws Exception {
+    final BatchWriterFactory factory = batch != null ? batch : new BatchWriterFactory();
+    return factory.build(build(metrics), metrics, prefix());
+  }
+
+  /**
+   * Build an asynchronous client which adapts commands to {@link
+   * java.util.concurrent.CompletableFuture}s
+   *
+   * @param metrics Metric registry
+   * @return a new asynchronous client for the client returned by {@link #build(MetricRegistry)}
+   * @throws Exception if unable to build the client
+   */
+  @JsonIgnore
+  public RiakAsyncClient buildAsyncClient(final MetricRegistry metrics) throws Exception {
+    return new RiakAsyncClient(build(metrics));
+  }
+
+  /**
+   * Build the registry of default request options declared in the {@code buckets} section
+   *
+   * @return a new registry of bucket options
+   */
+  @JsonIgnore
+  public RiakBuckets buildBuckets() {
+    final RiakBuckets registry = new RiakBuckets();
+    for (BucketOptionsFactory bucket : buckets) {
+      if (bucket.getBucket() == null) {
+        registry.register(bucket.getBucketType(), bucket.build());
+      } else {
+        registry.register(
+            new Namespace(bucket.getBucketType(), bucket.getBucket()), bucket.build());
+      }
     }
+    return registry;
+  }
+
+  /**
+   * Build a synchronous client using the {@code sync} configuration, or the defaults if it is not
+   * set.
+   *
+   * @param metrics Metric registry
+   * @return a new synchronous client for the client returned by {@link #build(MetricRegistry)}
+   * @throws Exception if unable to build the client
+   */
+  @JsonIgnore
+  public RiakSyncClient buildSyncClient(final MetricRegistry metrics) throws Exception {
+    final SyncClientFactory factory = sync != null ? sync : new SyncClientFactory();
+    return factory.build(build(metrics), metrics, prefix());
+  }
 
-    return build();
+  /**
+   * Build a multi-get service which keeps up to {@code multiGetConcurrency} fetches in flight
+   *
+   * @param metrics Metric registry
+   * @param executor Runs the result consumers and follow-up fetches
+   * @return a new multi-get service for the client returned by {@link #build(MetricRegistry)}
+   * @throws Exception if unable to build the client
+   */
+  @JsonIgnore
+  public RiakMultiGet buildMultiGet(final MetricRegistry metrics, final Executor executor)
+      throws Exception {
+    return new RiakMultiGet(build(metrics), multiGetConcurrency, executor);
+  }
+
+  /**
+   * Build a streaming query service which requests {@code queryPageSize} results per page
+   *
+   * @param metrics Metric registry
+   * @return a new streaming query service for the client returned by {@link #build(MetricRegistry)}
+   * @throws Exception if unable to build the client
+   */
+  @JsonIgnore
+  public RiakStreamingQuery buildStreamingQuery(final MetricRegistry metrics) throws Exception {
+    return new RiakStreamingQuery(build(metrics), queryPageSize);
+  }
+
+  /**
+   * Build a manager which starts and stops the client, warming up its connections if the {@code
+   * warmup} section is configured and draining in-flight operations for up to {@code drainTimeout}
+   * before shutting down
+   *
+   * @param metrics Metric registry
+   * @return a new manager for the client returned by {@link #build(MetricRegistry)}
+   * @throws Exception if unable to build the client
+   */
+  @JsonIgnore
+  public RiakClientManager buildClientManager(final MetricRegistry metrics) throws Exception {
+    final ConnectionWarmer warmer =
+        warmup != null ? warmup.build(minConnections, metrics, prefix()) : null;
+    final RiakClient client = build(metrics);
+    return new RiakClientManager(client, warmer, getNodeManager(), drainTimeout, shutdownTimeout);
+  }
+
+  /**
+   * Build a service which adds and removes nodes to match the {@code membership} discovery source,
+   * or the configured {@code nodes} if it has no discovery source
+   *
+   * @param metrics Metric registry
+   * @return a new membership service for the client returned by {@link #build(MetricRegistry)}
+   * @throws Exception if unable to build the client
+   */
+  @JsonIgnore
+  public ClusterMembership buildMembership(final MetricRegistry metrics) throws Exception {
+    final MembershipFactory factory = membership != null ? membership : new MembershipFactory();
+    final StaticNodeDiscovery defaults = new StaticNodeDiscovery();
+    defaults.setNodes(nodes);
+
+    // added nodes start with their minimum connections open, before any operations are routed
+    final RiakNode.Builder builder = nodeBuilder(minConnections);
+    return factory.build(
+        build(metrics),
+        getNodeManager(),
+        address -> buildNode(builder, address),
+        defaults,
+        drainTimeout,
+        metrics,
+        prefix());
+  }
+
+  /**
+   * Build a probe which pings every node every {@code healthCheck.interval}
+   *
+   * @param metrics Metric registry
+   * @return a new health probe for the client returned by {@link #build(MetricRegistry)}
+   * @throws Exception if unable to build the client
+   */
+  @JsonIgnore
+  public RiakHealthProbe buildHealthProbe(final MetricRegistry metrics) throws Exception {
+    return healthCheck.build(build(metrics), metrics, prefix());
+  }
+
+  private String prefix() {
+    return metricsPrefix != null ? metricsPrefix : METRICS_PREFIX;
+  }
+
+  private RiakNode.Builder nodeBuilder(final int minConnections) throws Exception {
+    return new RiakNode.Builder()
+        .withMinConnections(minConnections)
+        .withMaxConnections(maxConnections)
+        .withConnectionTimeout(Ints.checkedCast(connectionTimeout.toMilliseconds()))
+        .withIdleTimeout(Ints.checkedCast(idleTimeout.toMilliseconds()))
+        .withBlockOnMaxConnections(blockOnMaxConnections)
+        .withAuth(username, password, getTrustStore(), getKeyStore(), keyStorePassword);
+  }
+
+  private static RiakNode buildNode(final RiakNode.Builder builder, final HostAndPort address) {
+    synchronized (builder) {
+      return builder
+          .withRemoteAddress(address.getHost())
+          .withRemotePort(address.getPortOrDefault(RiakNode.Builder.DEFAULT_REMOTE_PORT))
+          .build();
+    }
   }
 
   @Nullable
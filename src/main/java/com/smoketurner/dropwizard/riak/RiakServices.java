@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak;
+
+import com.basho.riak.client.api.RiakClient;
+import com.smoketurner.dropwizard.riak.batch.RiakBatchWriter;
+import com.smoketurner.dropwizard.riak.client.RiakAsyncClient;
+import com.smoketurner.dropwizard.riak.client.RiakSyncClient;
+import com.smoketurner.dropwizard.riak.cluster.SlowOperationLog;
+import com.smoketurner.dropwizard.riak.cluster.SlowOperationsTask;
+import com.smoketurner.dropwizard.riak.discovery.ClusterMembership;
+import com.smoketurner.dropwizard.riak.discovery.MembershipTask;
+import com.smoketurner.dropwizard.riak.health.RiakCircuitBreakerHealthCheck;
+import com.smoketurner.dropwizard.riak.health.RiakHealthProbe;
+import com.smoketurner.dropwizard.riak.multiget.RiakMultiGet;
+import com.smoketurner.dropwizard.riak.options.RiakBuckets;
+import com.smoketurner.dropwizard.riak.query.RiakStreamingQuery;
+import io.dropwizard.setup.Environment;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
+
+/** The client and services built for one cluster, along with their lifecycle and health checks. */
+final class RiakServices {
+
+  private final RiakClient client;
+  private final RiakMultiGet multiGet;
+  private final RiakStreamingQuery streamingQuery;
+  private final RiakAsyncClient asyncClient;
+  private final RiakBuckets buckets;
+  @Nullable private final RiakBatchWriter batchWriter;
+  @Nullable private final RiakSyncClient syncClient;
+
+  private RiakServices(
+      final RiakClient client,
+      final RiakMultiGet multiGet,
+      final RiakStreamingQuery streamingQuery,
+      final RiakAsyncClient asyncClient,
+      final RiakBuckets buckets,
+      @Nullable final RiakBatchWriter batchWriter,
+      @Nullable final RiakSyncClient syncClient) {
+    this.client = client;
+    this.multiGet = multiGet;
+    this.streamingQuery = streamingQuery;
+    this.asyncClient = asyncClient;
+    this.buckets = buckets;
+    this.batchWriter = batchWriter;
+    this.syncClient = syncClient;
+  }
+
+  /**
+   * Build a cluster's client and services, manage their lifecycle and register their health checks
+   * and admin tasks
+   *
+   * @param name Name of the health check, which is also used as the prefix of the other health
+   *     checks and tasks
+   * @param factory Cluster configuration
+   * @param environment Application environment
+   * @return the services built for the cluster
+   * @throws Exception if unable to build the client
+   */
+  static RiakServices register(
+      final String name, final RiakFactory factory, final Environment environment)
+      throws Exception {
+    final RiakClient client = factory.build(environment.metrics());
+    // managed before the client so multi-gets can complete while the client drains
+    final ExecutorService multiGetExecutor =
+        environment
+            .lifecycle()
+            .executorService(name + "-multi-get-%d")
+            .minThreads(factory.getMultiGetConcurrency())
+            .maxThreads(factory.getMultiGetConcurrency())
+            .build();
+    environment.lifecycle().manage(factory.buildClientManager(environment.metrics()));
+    // started after the client, so the first probe runs against a running cluster
+    final RiakHealthProbe probe = factory.buildHealthProbe(environment.metrics());
+    environment.lifecycle().manage(probe);
+    environment.healthChecks().register(name, factory.getHealthCheck().buildHealthCheck(probe));
+    if (factory.getCircuitBreaker() != null) {
+      environment
+          .healthChecks()
+          .register(
+              name + "-circuit-breakers",
+              new RiakCircuitBreakerHealthCheck(factory.getNodeManager()));
+    }
+
+    final Optional<SlowOperationLog> slowLog = factory.getNodeManager().getSlowOperationLog();
+    if (slowLog.isPresent()) {
+      environment
+          .admin()
+          .addTask(
+              new SlowOperationsTask(
+                  name + "-slow-operations", slowLog.get(), environment.getObjectMapper()));
+    }
+
+    if (factory.getMembership() != null) {
+      final ClusterMembership membership = factory.buildMembership(environment.metrics());
+      environment.lifecycle().manage(membership);
+      environment.admin().addTask(new MembershipTask(name + "-membership", membership));
+    }
+
+    final Optional<RiakBatchWriter> siblingWriter = factory.getSiblingWriter();
+    if (siblingWriter.isPresent()) {
+      // managed after the client so it is stopped, and writes back merged siblings, before the
+      // client drains
+      environment.lifecycle().manage(siblingWriter.get());
+    }
+
+    RiakBatchWriter batchWriter = null;
+    if (factory.getBatch() != null) {
+      // managed after the client so it is stopped, and drains its pending writes, first
+      batchWriter = factory.buildBatchWriter(environment.metrics());
+      environment.lifecycle().manage(batchWriter);
+    }
+
+    return new RiakServices(
+        client,
+        factory.buildMultiGet(environment.metrics(), multiGetExecutor),
+        factory.buildStreamingQuery(environment.metrics()),
+        factory.buildAsyncClient(environment.metrics()),
+        factory.buildBuckets(),
+        batchWriter,
+        factory.getSync() != null ? factory.buildSyncClient(environment.metrics()) : null);
+  }
+
+  RiakClient getClient() {
+    return client;
+  }
+
+  RiakMultiGet getMultiGet() {
+    return multiGet;
+  }
+
+  RiakStreamingQuery getStreamingQuery() {
+    return streamingQuery;
+  }
+
+  RiakAsyncClient getAsyncClient() {
+    return asyncClient;
+  }
+
+  RiakBuckets getBuckets() {
+    return buckets;
+  }
+
+  Optional<RiakBatchWriter> getBatchWriter() {
+    return Optional.ofNullable(batchWriter);
+  }
+
+  Optional<RiakSyncClient> getSyncClient() {
+    return Optional.ofNullable(syncClient);
+  }
+}
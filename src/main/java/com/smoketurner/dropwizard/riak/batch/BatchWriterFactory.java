@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.batch;
+
+import com.basho.riak.client.api.RiakClient;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import java.util.concurrent.TimeUnit;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class BatchWriterFactory {
+
+  @Min(1)
+  private int maxBatchSize = 100;
+
+  @NotNull
+  @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+  private Duration lingerTime = Duration.milliseconds(5);
+
+  @Min(1)
+  private int maxPendingWrites = 1000;
+
+  @NotNull
+  @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+  private Duration shutdownTimeout = Duration.seconds(5);
+
+  @JsonProperty
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  @JsonProperty
+  public void setMaxBatchSize(final int size) {
+    this.maxBatchSize = size;
+  }
+
+  @JsonProperty
+  public Duration getLingerTime() {
+    return lingerTime;
+  }
+
+  @JsonProperty
+  public void setLingerTime(final Duration duration) {
+    this.lingerTime = duration;
+  }
+
+  @JsonProperty
+  public int getMaxPendingWrites() {
+    return maxPendingWrites;
+  }
+
+  @JsonProperty
+  public void setMaxPendingWrites(final int writes) {
+    this.maxPendingWrites = writes;
+  }
+
+  @JsonProperty
+  public Duration getShutdownTimeout() {
+    return shutdownTimeout;
+  }
+
+  @JsonProperty
+  public void setShutdownTimeout(final Duration timeout) {
+    this.shutdownTimeout = timeout;
+  }
+
+  /**
+   * Build a batch writer
+   *
+   * @param client Riak client to store values with
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   * @return a new batch writer
+   */
+  public RiakBatchWriter build(
+      final RiakClient client, final MetricRegistry metrics, final String prefix) {
+    return new RiakBatchWriter(
+        client, maxBatchSize, lingerTime, maxPendingWrites, shutdownTimeout, metrics, prefix);
+  }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.batch;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.RiakObject;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queues {@link StoreValue} writes and flushes them to the cluster concurrently, either once {@code
+ * maxBatchSize} writes are queued or once the oldest queued write has waited for {@code
+ * lingerTime}.
+ *
+ * <p>Repeated writes to the same location while it is still queued are coalesced, last write wins,
+ * and every caller shares the future of the write that is eventually stored. The number of queued
+ * and in-flight writes is bounded by {@code maxPendingWrites}; once reached, {@link #write} blocks
+ * until earlier writes complete.
+ *
+ * <p>Futures are completed on the client's I/O threads, so callers should not block in dependent
+ * stages.
+ */
+public class RiakBatchWriter implements Managed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RiakBatchWriter.class);
+
+  private final Object lock = new Object();
+  private final RiakClient client;
+  private final int maxBatchSize;
+  private final int maxPendingWrites;
+  private final Duration lingerTime;
+  private final Duration shutdownTimeout;
+  private final Semaphore permits;
+  private final ScheduledExecutorService scheduler;
+  private final Histogram batchSize;
+  private final Timer flushTimer;
+  private final Meter coalesced;
+
+  private Map<Location, Pending> queued = new LinkedHashMap<>();
+  private boolean flushScheduled = false;
+  private volatile boolean stopped = false;
+
+  /**
+   * Constructor
+   *
+   * @param client Riak client to store values with
+   * @param maxBatchSize Number of queued writes which triggers a flush
+   * @param lingerTime Maximum time a write is queued before being flushed
+   * @param maxPendingWrites Maximum number of queued and in-flight writes
+   * @param shutdownTimeout Maximum time to wait for pending writes when stopping
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public RiakBatchWriter(
+      final RiakClient client,
+      final int maxBatchSize,
+      final Duration lingerTime,
+      final int maxPendingWrites,
+      final Duration shutdownTimeout,
+      final MetricRegistry metrics,
+      final String prefix) {
+    this.client = Objects.requireNonNull(client);
+    this.maxBatchSize = maxBatchSize;
+    this.lingerTime = Objects.requireNonNull(lingerTime);
+    this.maxPendingWrites = maxPendingWrites;
+    this.shutdownTimeout = Objects.requireNonNull(shutdownTimeout);
+    this.permits = new Semaphore(maxPendingWrites);
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("riak-batch-writer-%d")
+                .setDaemon(true)
+                .build());
+
+    final String name = name(prefix, "batch");
+    this.batchSize = metrics.histogram(name(name, "size"));
+    this.flushTimer = metrics.timer(name(name, "flush"));
+    this.coalesced = metrics.meter(name(name, "coalesced"));
+    metrics.gauge(name(name, "queued"), () -> this::getQueuedWrites);
+    metrics.gauge(name(name, "pending"), () -> this::getPendingWrites);
+  }
+
+  /**
+   * Queue a value to be stored
+   *
+   * @param location Location to store the value at
+   * @param object Value to store
+   * @return a future completed once the value, or a later value for the same location, is stored
+   * @throws InterruptedException if interrupted while waiting for a pending write permit
+   * @throws IllegalStateException if the writer has been stopped
+   */
+  public CompletableFuture<StoreValue.Response> write(
+      final Location location, final RiakObject object) throws InterruptedException {
+    Objects.requireNonNull(location);
+    Objects.requireNonNull(object);
+    if (stopped) {
+      throw new IllegalStateException("Batch writer has been stopped");
+    }
+
+    permits.acquire();
+
+    final Pending pending;
+    final boolean full;
+    synchronized (lock) {
+      final Pending existing = queued.get(location);
+      if (existing != null) {
+        existing.object = object;
+        coalesced.mark();
+        permits.release();
+        return existing.future;
+      }
+
+      pending = new Pending(object);
+      full = queue(location, pending);
+    }
+
+    if (full) {
+      schedule(0, TimeUnit.NANOSECONDS);
+    }
+    return pending.future;
+  }
+
+  /**
+   * Queue a value to be stored without blocking, unless a write to the same location is already
+   * queued or the writer is at {@code maxPendingWrites}. Used for background writes which must not
+   * replace a caller's queued value.
+   *
+   * @param location Location to store the value at
+   * @param object Value to store
+   * @return a future completed once the value is stored, or empty if the value was not queued
+   */
+  public Optional<CompletableFuture<StoreValue.Response>> writeIfAbsent(
+      final Location location, final RiakObject object) {
+    Objects.requireNonNull(location);
+    Objects.requireNonNull(object);
+    if (stopped || !permits.tryAcquire()) {
+      return Optional.empty();
+    }
+
+    final Pending pending;
+    final boolean full;
+    synchronized (lock) {
+      if (queued.containsKey(location)) {
+        permits.release();
+        return Optional.empty();
+      }
+
+      pending = new Pending(object);
+      full = queue(location, pending);
+    }
+
+    if (full) {
+      schedule(0, TimeUnit.NANOSECONDS);
+    }
+    return Optional.of(pending.future);
+  }
+
+  /**
+   * Immediately store every queued write
+   *
+   * @return a future completed once every write in this batch is stored, which fails if any of them
+   *     failed
+   */
+  public CompletableFuture<Void> flush() {
+    final Map<Location, Pending> batch;
+    synchronized (lock) {
+      flushScheduled = false;
+      if (queued.isEmpty()) {
+        return CompletableFuture.completedFuture(null);
+      }
+      batch = queued;
+      queued = new LinkedHashMap<>();
+    }
+
+    batchSize.update(batch.size());
+    final Timer.Context context = flushTimer.time();
+
+    final CompletableFuture<?>[] futures = new CompletableFuture<?>[batch.size()];
+    int i = 0;
+    for (Map.Entry<Location, Pending> entry : batch.entrySet()) {
+      futures[i++] = store(entry.getKey(), entry.getValue());
+    }
+    return CompletableFuture.allOf(futures).whenComplete((result, cause) -> context.stop());
+  }
+
+  /** @return the number of writes waiting to be flushed */
+  public int getQueuedWrites() {
+    synchronized (lock) {
+      return queued.size();
+    }
+  }
+
+  /** @return the number of writes which are queued or in-flight */
+  public int getPendingWrites() {
+    return maxPendingWrites - permits.availablePermits();
+  }
+
+  @Override
+  public void start() throws Exception {
+    // nothing to start
+  }
+
+  @Override
+  public void stop() throws Exception {
+    stopped = true;
+    scheduler.shutdown();
+    flush();
+
+    if (permits.tryAcquire(
+        maxPendingWrites, shutdownTimeout.getQuantity(), shutdownTimeout.getUnit())) {
+      permits.release(maxPendingWrites);
+    } else {
+      LOGGER.warn(
+          "Timed out after {} waiting for {} pending writes", shutdownTimeout, getPendingWrites());
+    }
+  }
+
+  /**
+   * Add a write to the queue, scheduling a flush after {@code lingerTime} if none is scheduled.
+   * Must be called while holding the lock.
+   *
+   * @return true if the queue is now full and should be flushed immediately
+   */
+  private boolean queue(final Location location, final Pending pending) {
+    queued.put(location, pending);
+    final boolean full = queued.size() >= maxBatchSize;
+    if (!full && !flushScheduled) {
+      flushScheduled = schedule(lingerTime.getQuantity(), lingerTime.getUnit());
+    }
+    return full;
+  }
+
+  private boolean schedule(final long delay, final TimeUnit unit) {
+    try {
+      scheduler.schedule(this::flush, delay, unit);
+      return true;
+    } catch (RejectedExecutionException e) {
+      // stopping, so store the write from this thread instead
+      flush();
+      return false;
+    }
+  }
+
+  private CompletableFuture<StoreValue.Response> store(
+      final Location location, final Pending pending) {
+    final StoreValue command =
+        new StoreValue.Builder(pending.object).withLocation(location).build();
+
+    final RiakFuture<StoreValue.Response, Location> future;
+    try {
+      future = client.executeAsync(command);
+    } catch (RuntimeException e) {
+      permits.release();
+      pending.future.completeExceptionally(e);
+      return pending.future;
+    }
+
+    future.addListener(
+        f -> {
+          permits.release();
+          if (f.isSuccess()) {
+            pending.future.complete(f.getNow());
+          } else {
+            pending.future.completeExceptionally(f.cause());
+          }
+        });
+    return pending.future;
+  }
+
+  private static final class Pending {
+    private final CompletableFuture<StoreValue.Response> future = new CompletableFuture<>();
+    private RiakObject object;
+
+    private Pending(final RiakObject object) {
+      this.object = object;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cache;
+
+import com.basho.riak.client.api.RiakClient;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.cache.CacheBuilder;
+import io.dropwizard.util.Duration;
+import io.dropwizard.util.Size;
+import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.MinSize;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotNull;
+
+public class CacheFactory {
+
+  @NotNull
+  @MinSize(1)
+  private Size maximumWeight = Size.megabytes(64);
+
+  @NotNull
+  @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+  private Duration expireAfterWrite = Duration.minutes(1);
+
+  @Nullable private Duration refreshAfterWrite;
+
+  @JsonProperty
+  public Size getMaximumWeight() {
+    return maximumWeight;
+  }
+
+  @JsonProperty
+  public void setMaximumWeight(final Size weight) {
+    this.maximumWeight = weight;
+  }
+
+  @JsonProperty
+  public Duration getExpireAfterWrite() {
+    return expireAfterWrite;
+  }
+
+  @JsonProperty
+  public void setExpireAfterWrite(final Duration duration) {
+    this.expireAfterWrite = duration;
+  }
+
+  @Nullable
+  @JsonProperty
+  public Duration getRefreshAfterWrite() {
+    return refreshAfterWrite;
+  }
+
+  @JsonProperty
+  public void setRefreshAfterWrite(@Nullable final Duration duration) {
+    this.refreshAfterWrite = duration;
+  }
+
+  /**
+   * Wrap a client with a cache for fetches
+   *
+   * @param client Riak client to cache fetches from
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   * @return the caching client
+   */
+  public CachingRiakClient build(
+      final RiakClient client, final MetricRegistry metrics, final String prefix) {
+    final CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maximumWeight.toBytes())
+            .expireAfterWrite(expireAfterWrite.getQuantity(), expireAfterWrite.getUnit());
+    if (refreshAfterWrite != null) {
+      builder.refreshAfterWrite(refreshAfterWrite.getQuantity(), refreshAfterWrite.getUnit());
+    }
+    return new CachingRiakClient(client, builder, metrics, prefix);
+  }
+}
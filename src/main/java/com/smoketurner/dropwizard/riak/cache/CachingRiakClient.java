@@ -0,0 +1,253 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cache;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.api.commands.kv.DeleteValue;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.api.commands.kv.UpdateValue;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.RiakObject;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.smoketurner.dropwizard.riak.client.DelegatingRiakClient;
+import com.smoketurner.dropwizard.riak.client.QueryInfo;
+import com.smoketurner.dropwizard.riak.client.SettableRiakFuture;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link RiakClient} which serves repeated {@link FetchValue} commands from a bounded in-process
+ * cache.
+ *
+ * <p>Entries are keyed by the {@link FetchValue} command itself, so two fetches of the same
+ * location with different options are cached separately. Cached responses are shared between
+ * callers and keep their vector clock, so they can be used for conditional writes but must not be
+ * modified. {@link StoreValue}, {@link UpdateValue} and {@link DeleteValue} commands executed
+ * through this client invalidate every cached entry for their location once they complete.
+ */
+public class CachingRiakClient extends DelegatingRiakClient {
+
+  private static final int INVALIDATION_STRIPES = 1024;
+
+  private final ConcurrentMap<Location, Set<FetchValue>> fetchesByLocation =
+      new ConcurrentHashMap<>();
+  private final AtomicLongArray lastInvalidated = new AtomicLongArray(INVALIDATION_STRIPES);
+  private final LoadingCache<FetchValue, Entry> cache;
+  private final Meter invalidations;
+
+  /**
+   * Constructor
+   *
+   * @param delegate Riak client to cache fetches from
+   * @param builder Cache configuration
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public CachingRiakClient(
+      final RiakClient delegate,
+      final CacheBuilder<Object, Object> builder,
+      final MetricRegistry metrics,
+      final String prefix) {
+    super(delegate);
+    final long now = System.nanoTime();
+    for (int i = 0; i < INVALIDATION_STRIPES; i++) {
+      lastInvalidated.set(i, now);
+    }
+    this.cache =
+        builder
+            .recordStats()
+            .weigher((FetchValue key, Entry entry) -> entry.weight)
+            .removalListener(this::onRemoval)
+            .build(new RefreshingLoader());
+
+    final String name = name(prefix, "cache");
+    metrics.gauge(name(name, "hits"), () -> () -> cache.stats().hitCount());
+    metrics.gauge(name(name, "misses"), () -> () -> cache.stats().missCount());
+    metrics.gauge(name(name, "evictions"), () -> () -> cache.stats().evictionCount());
+    metrics.gauge(name(name, "hit-ratio"), () -> () -> cache.stats().hitRate());
+    metrics.gauge(name(name, "size"), () -> () -> cache.size());
+    this.invalidations = metrics.meter(name(name, "invalidations"));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T, S> RiakFuture<T, S> executeAsync(final RiakCommand<T, S> command) {
+    if (command instanceof FetchValue) {
+      return (RiakFuture<T, S>) fetch((FetchValue) command);
+    }
+
+    final RiakFuture<T, S> future = super.executeAsync(command);
+    if (command instanceof StoreValue
+        || command instanceof UpdateValue
+        || command instanceof DeleteValue) {
+      future.addListener(
+          f -> {
+            final Location location = QueryInfo.location(f);
+            if (location != null) {
+              invalidate(location);
+            }
+          });
+    }
+    return future;
+  }
+
+  /**
+   * Remove every cached entry for a location
+   *
+   * @param location Location to invalidate
+   */
+  public void invalidate(final Location location) {
+    lastInvalidated.set(stripe(location), System.nanoTime());
+    final Set<FetchValue> fetches = fetchesByLocation.remove(location);
+    if (fetches != null) {
+      cache.invalidateAll(fetches);
+      invalidations.mark();
+    }
+  }
+
+  /** Remove every cached entry. */
+  public void invalidateAll() {
+    final long now = System.nanoTime();
+    for (int i = 0; i < INVALIDATION_STRIPES; i++) {
+      lastInvalidated.set(i, now);
+    }
+    fetchesByLocation.clear();
+    cache.invalidateAll();
+  }
+
+  private RiakFuture<FetchValue.Response, Location> fetch(final FetchValue command) {
+    final Entry cached = cache.getIfPresent(command);
+    if (cached != null) {
+      return SettableRiakFuture.completed(cached.response, cached.location);
+    }
+
+    final long start = System.nanoTime();
+    final RiakFuture<FetchValue.Response, Location> future = super.executeAsync(command);
+    future.addListener(
+        f -> {
+          final Location location = f.getQueryInfo();
+          // don't cache a response that may predate a write which completed while it was in flight
+          if (f.isSuccess() && location != null && !invalidatedSince(location, start)) {
+            put(command, new Entry(location, f.getNow()));
+            if (invalidatedSince(location, start)) {
+              cache.invalidate(command);
+            }
+          }
+        });
+    return future;
+  }
+
+  private void put(final FetchValue command, final Entry entry) {
+    fetchesByLocation
+        .computeIfAbsent(entry.location, l -> Collections.newSetFromMap(new ConcurrentHashMap<>()))
+        .add(command);
+    cache.put(command, entry);
+  }
+
+  private void onRemoval(final RemovalNotification<FetchValue, Entry> notification) {
+    if (!notification.wasEvicted()) {
+      return;
+    }
+    final Entry entry = notification.getValue();
+    final FetchValue command = notification.getKey();
+    if (entry == null || command == null) {
+      return;
+    }
+    fetchesByLocation.computeIfPresent(
+        entry.location,
+        (location, fetches) -> {
+          fetches.remove(command);
+          return fetches.isEmpty() ? null : fetches;
+        });
+  }
+
+  private boolean invalidatedSince(final Location location, final long start) {
+    return lastInvalidated.get(stripe(location)) - start >= 0;
+  }
+
+  private static int stripe(final Location location) {
+    return Math.abs(location.hashCode() % INVALIDATION_STRIPES);
+  }
+
+  private static final class Entry {
+    private final Location location;
+    private final FetchValue.Response response;
+    private final int weight;
+
+    private Entry(final Location location, final FetchValue.Response response) {
+      this.location = location;
+      this.response = response;
+
+      int weight = 1;
+      for (RiakObject object : response.getValues()) {
+        if (object.hasValue()) {
+          weight += object.getValue().length();
+        }
+      }
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * Loads entries for refresh-ahead. Misses are never loaded synchronously through the cache, they
+   * are executed asynchronously and added once the response arrives.
+   */
+  private final class RefreshingLoader extends CacheLoader<FetchValue, Entry> {
+
+    @Override
+    public Entry load(final FetchValue key) throws Exception {
+      final RiakFuture<FetchValue.Response, Location> future = getDelegate().executeAsync(key);
+      return new Entry(future.getQueryInfo(), future.get());
+    }
+
+    @Override
+    public ListenableFuture<Entry> reload(final FetchValue key, @Nullable final Entry oldValue) {
+      final SettableFuture<Entry> result = SettableFuture.create();
+      final long start = System.nanoTime();
+      getDelegate()
+          .executeAsync(key)
+          .addListener(
+              f -> {
+                final Location location = f.getQueryInfo();
+                if (!f.isSuccess()) {
+                  result.setException(f.cause());
+                } else if (location == null || invalidatedSince(location, start)) {
+                  // failing the refresh keeps an invalidated entry from being re-populated
+                  result.setException(new IllegalStateException("Invalidated during refresh"));
+                } else {
+                  result.set(new Entry(location, f.getNow()));
+                }
+              });
+      return result;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.client;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.Location;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link RiakClient} which collapses concurrent, identical, {@link FetchValue} commands into a
+ * single request. Commands are identical if they fetch the same location with the same options.
+ *
+ * <p>Every caller receives the same response instance, so responses must not be modified.
+ */
+public class CoalescingRiakClient extends DelegatingRiakClient {
+
+  private final ConcurrentMap<FetchValue, SettableRiakFuture<FetchValue.Response, Location>>
+      inFlight = new ConcurrentHashMap<>();
+  private final Meter collapsed;
+
+  /**
+   * Constructor
+   *
+   * @param delegate Riak client to execute commands with
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public CoalescingRiakClient(
+      final RiakClient delegate, final MetricRegistry metrics, final String prefix) {
+    super(delegate);
+    this.collapsed = metrics.meter(name(prefix, FetchValue.class.getSimpleName(), "collapsed"));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T, S> RiakFuture<T, S> executeAsync(final RiakCommand<T, S> command) {
+    if (command instanceof FetchValue) {
+      return (RiakFuture<T, S>) fetch((FetchValue) command);
+    }
+    return super.executeAsync(command);
+  }
+
+  private RiakFuture<FetchValue.Response, Location> fetch(final FetchValue command) {
+    final SettableRiakFuture<FetchValue.Response, Location> shared = new SettableRiakFuture<>(null);
+    final SettableRiakFuture<FetchValue.Response, Location> existing =
+        inFlight.putIfAbsent(command, shared);
+    if (existing != null) {
+      collapsed.mark();
+      // each caller gets its own future, so one caller cancelling doesn't affect the others
+      final SettableRiakFuture<FetchValue.Response, Location> follower =
+          new SettableRiakFuture<>(null);
+      existing.addListener(follower::setFrom);
+      return follower;
+    }
+
+    final RiakFuture<FetchValue.Response, Location> future;
+    try {
+      future = super.executeAsync(command);
+    } catch (RuntimeException e) {
+      inFlight.remove(command, shared);
+      shared.setException(e);
+      throw e;
+    }
+
+    future.addListener(
+        f -> {
+          inFlight.remove(command, shared);
+          shared.setFrom(f);
+        });
+    return future;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.client;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.api.StreamableRiakCommand;
+import com.basho.riak.client.core.RiakFuture;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A {@link RiakClient} which forwards every call to another {@link RiakClient}. Subclasses only
+ * need to override {@link #executeAsync(RiakCommand)}, as the synchronous methods are routed
+ * through it.
+ */
+public class DelegatingRiakClient extends RiakClient {
+
+  private final RiakClient delegate;
+
+  /**
+   * Constructor
+   *
+   * @param delegate Riak client to forward calls to
+   */
+  public DelegatingRiakClient(final RiakClient delegate) {
+    super(Objects.requireNonNull(delegate).getRiakCluster());
+    this.delegate = delegate;
+  }
+
+  /**
+   * Return the underlying client
+   *
+   * @return the client calls are forwarded to
+   */
+  public RiakClient getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public <T, S> T execute(final RiakCommand<T, S> command)
+      throws ExecutionException, InterruptedException {
+    return executeAsync(command).get();
+  }
+
+  @Override
+  public <T, S> T execute(final RiakCommand<T, S> command, final long timeout, final TimeUnit unit)
+      throws ExecutionException, InterruptedException, TimeoutException {
+    return executeAsync(command).get(timeout, unit);
+  }
+
+  @Override
+  public <T, S> RiakFuture<T, S> executeAsync(final RiakCommand<T, S> command) {
+    return delegate.executeAsync(command);
+  }
+
+  @Override
+  public <I extends StreamableRiakCommand.StreamableResponse, S>
+      RiakFuture<I, S> executeAsyncStreaming(
+          final StreamableRiakCommand<I, S, ?, ?> command, final int timeoutMS) {
+    return delegate.executeAsyncStreaming(command, timeoutMS);
+  }
+
+  @Override
+  public Future<Boolean> shutdown() {
+    return delegate.shutdown();
+  }
+
+  @Override
+  public void cleanup() {
+    delegate.cleanup();
+  }
+}
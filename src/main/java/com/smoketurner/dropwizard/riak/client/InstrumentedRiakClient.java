@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.client;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.Namespace;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link RiakClient} which records a {@link Timer}, an error {@link Meter} and an in-flight
+ * {@link Counter} for every command type, along with a {@link Timer} and error {@link Meter} for
+ * every bucket type and bucket a command is executed against.
+ *
+ * <p>Metrics are named {@code <prefix>.<command>.requests}, {@code <prefix>.<command>.errors},
+ * {@code <prefix>.<command>.in-flight} and {@code <prefix>.<command>.<type>.<bucket>.requests}.
+ */
+public class InstrumentedRiakClient extends DelegatingRiakClient {
+
+  private final ConcurrentMap<Class<?>, CommandMetrics> commands = new ConcurrentHashMap<>();
+  private final MetricRegistry metrics;
+  private final String prefix;
+
+  /**
+   * Constructor
+   *
+   * @param delegate Riak client to instrument
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public InstrumentedRiakClient(
+      final RiakClient delegate, final MetricRegistry metrics, final String prefix) {
+    super(delegate);
+    this.metrics = Objects.requireNonNull(metrics);
+    this.prefix = Objects.requireNonNull(prefix);
+  }
+
+  @Override
+  public <T, S> RiakFuture<T, S> executeAsync(final RiakCommand<T, S> command) {
+    final CommandMetrics operation =
+        commands.computeIfAbsent(
+            command.getClass(), c -> new CommandMetrics(name(prefix, c.getSimpleName())));
+
+    operation.inFlight.inc();
+    final long start = System.nanoTime();
+
+    final RiakFuture<T, S> future;
+    try {
+      future = super.executeAsync(command);
+    } catch (RuntimeException e) {
+      operation.inFlight.dec();
+      operation.errors.mark();
+      throw e;
+    }
+
+    future.addListener(f -> operation.complete(f, System.nanoTime() - start));
+    return future;
+  }
+
+  private final class CommandMetrics {
+    private final ConcurrentMap<Namespace, BucketMetrics> buckets = new ConcurrentHashMap<>();
+    private final String name;
+    private final Timer requests;
+    private final Meter errors;
+    private final Counter inFlight;
+
+    private CommandMetrics(final String name) {
+      this.name = name;
+      this.requests = metrics.timer(name(name, "requests"));
+      this.errors = metrics.meter(name(name, "errors"));
+      this.inFlight = metrics.counter(name(name, "in-flight"));
+    }
+
+    private void complete(final RiakFuture<?, ?> future, final long elapsed) {
+      inFlight.dec();
+      requests.update(elapsed, TimeUnit.NANOSECONDS);
+
+      final boolean success = future.isSuccess();
+      if (!success) {
+        errors.mark();
+      }
+
+      final Namespace namespace = QueryInfo.namespace(future);
+      if (namespace == null) {
+        return;
+      }
+
+      final BucketMetrics bucket =
+          buckets.computeIfAbsent(
+              namespace,
+              ns ->
+                  new BucketMetrics(
+                      name(name, ns.getBucketTypeAsString(), ns.getBucketNameAsString())));
+      bucket.requests.update(elapsed, TimeUnit.NANOSECONDS);
+      if (!success) {
+        bucket.errors.mark();
+      }
+    }
+  }
+
+  private final class BucketMetrics {
+    private final Timer requests;
+    private final Meter errors;
+
+    private BucketMetrics(final String name) {
+      this.requests = metrics.timer(name(name, "requests"));
+      this.errors = metrics.meter(name(name, "errors"));
+    }
+  }
+}
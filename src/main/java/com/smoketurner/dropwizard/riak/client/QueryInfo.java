@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.client;
+
+import com.basho.riak.client.api.commands.indexes.SecondaryIndexQuery;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import javax.annotation.Nullable;
+
+/** Helpers for extracting the bucket and key from {@link RiakFuture#getQueryInfo()}. */
+public final class QueryInfo {
+
+  private QueryInfo() {}
+
+  /**
+   * Return the location a completed command was executed against.
+   *
+   * @param future Completed command future
+   * @return the location or null if the command did not target a single key
+   */
+  @Nullable
+  public static Location location(final RiakFuture<?, ?> future) {
+    final Object info = future.getQueryInfo();
+    if (info instanceof Location) {
+      return (Location) info;
+    }
+    return null;
+  }
+
+  /**
+   * Return the namespace (bucket type and bucket) a completed command was executed against.
+   *
+   * @param future Completed command future
+   * @return the namespace or null if the command did not target a bucket
+   */
+  @Nullable
+  public static Namespace namespace(final RiakFuture<?, ?> future) {
+    final Object info = future.getQueryInfo();
+    if (info instanceof Location) {
+      return ((Location) info).getNamespace();
+    }
+    if (info instanceof Namespace) {
+      return (Namespace) info;
+    }
+    if (info instanceof SecondaryIndexQuery) {
+      return ((SecondaryIndexQuery<?, ?, ?>) info).getNamespace();
+    }
+    return null;
+  }
+}
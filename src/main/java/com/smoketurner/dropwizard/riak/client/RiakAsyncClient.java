@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.client;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.api.commands.indexes.SecondaryIndexQuery;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.util.BinaryValue;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * Adapts the commands of a {@link RiakClient} to {@link CompletableFuture}s, for non-blocking
+ * callers such as asynchronous Jersey resources.
+ *
+ * <p>Futures are completed by a listener on the {@link RiakFuture}, without a thread waiting on the
+ * response. Listeners run on the client's Netty event loop, so dependent stages which block or do
+ * heavy work must use the {@code *Async} variants with an executor. Cancelling a returned future
+ * completes it immediately and cancels the {@link RiakFuture}, which stops the work the client's
+ * wrappers still have to do, such as a hedged fetch or the next page of a query. A request which is
+ * already on the wire is not aborted, since the Riak protocol has no way to cancel one; its
+ * response is discarded.
+ */
+public class RiakAsyncClient {
+
+  private final RiakClient client;
+
+  /**
+   * Constructor
+   *
+   * @param client Riak client to execute commands with
+   */
+  public RiakAsyncClient(final RiakClient client) {
+    this.client = Objects.requireNonNull(client);
+  }
+
+  /** @return the client commands are executed with */
+  public RiakClient getClient() {
+    return client;
+  }
+
+  /**
+   * Execute a command
+   *
+   * @param command Command to execute
+   * @return a future completed with the response
+   */
+  public <T, S> CompletableFuture<T> execute(final RiakCommand<T, S> command) {
+    return toCompletableFuture(client.executeAsync(command));
+  }
+
+  /**
+   * Execute a paginated secondary index query, passing every entry to a consumer. Each page is
+   * requested once the previous page has been consumed, so the consumer is never called
+   * concurrently and only one page is held in memory. Cancelling the returned future stops further
+   * pages from being requested.
+   *
+   * @param pages Builds the query for a page given the continuation returned with the previous
+   *     page, or null for the first page
+   * @param consumer Called with every entry, on the client's event loop
+   * @return a future completed with the number of entries once every page has been consumed
+   */
+  public <
+          T,
+          E extends SecondaryIndexQuery.Response.Entry<T>,
+          S extends SecondaryIndexQuery.Response<T, E>>
+      CompletableFuture<Long> query(
+          final Function<BinaryValue, ? extends RiakCommand<S, ?>> pages,
+          final Consumer<? super E> consumer) {
+    final PageConsumer<T, E, S> query =
+        new PageConsumer<>(Objects.requireNonNull(pages), Objects.requireNonNull(consumer));
+    query.request(null);
+    return query.result;
+  }
+
+  /**
+   * Adapt a {@link RiakFuture} to a {@link CompletableFuture} completed by a listener. Cancelling
+   * the returned future also cancels the {@link RiakFuture}.
+   *
+   * @param future Future to adapt
+   * @return a future completed with the same outcome
+   */
+  public static <T> CompletableFuture<T> toCompletableFuture(final RiakFuture<T, ?> future) {
+    final CancellableFuture<T> result = new CancellableFuture<>(future);
+    future.addListener(
+        f -> {
+          if (f.isSuccess()) {
+            result.complete(f.getNow());
+          } else {
+            result.completeExceptionally(f.cause());
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Adapt a {@link RiakFuture} to a {@link CompletionStage}
+   *
+   * @param future Future to adapt
+   * @return a stage completed with the same outcome
+   */
+  public static <T> CompletionStage<T> toCompletionStage(final RiakFuture<T, ?> future) {
+    return toCompletableFuture(future);
+  }
+
+  private static final class CancellableFuture<T> extends CompletableFuture<T> {
+    private final RiakFuture<T, ?> future;
+
+    private CancellableFuture(final RiakFuture<T, ?> future) {
+      this.future = future;
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+      final boolean cancelled = super.cancel(mayInterruptIfRunning);
+      if (cancelled) {
+        future.cancel(mayInterruptIfRunning);
+      }
+      return cancelled;
+    }
+  }
+
+  private final class PageConsumer<
+      T,
+      E extends SecondaryIndexQuery.Response.Entry<T>,
+      S extends SecondaryIndexQuery.Response<T, E>> {
+
+    private final CompletableFuture<Long> result = new CompletableFuture<>();
+    private final AtomicLong count = new AtomicLong();
+    private final Function<BinaryValue, ? extends RiakCommand<S, ?>> pages;
+    private final Consumer<? super E> consumer;
+
+    private PageConsumer(
+        final Function<BinaryValue, ? extends RiakCommand<S, ?>> pages,
+        final Consumer<? super E> consumer) {
+      this.pages = pages;
+      this.consumer = consumer;
+    }
+
+    private void request(@Nullable final BinaryValue continuation) {
+      if (result.isDone()) {
+        return;
+      }
+      final RiakFuture<S, ?> future;
+      try {
+        future = client.executeAsync(pages.apply(continuation));
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+        return;
+      }
+      future.addListener(
+          f -> {
+            if (!f.isSuccess()) {
+              result.completeExceptionally(f.cause());
+              return;
+            }
+            final S page = f.getNow();
+            try {
+              for (E entry : page) {
+                if (result.isDone()) {
+                  return;
+                }
+                consumer.accept(entry);
+                count.incrementAndGet();
+              }
+            } catch (RuntimeException e) {
+              result.completeExceptionally(e);
+              return;
+            }
+            if (page.hasContinuation()) {
+              request(page.getContinuation());
+            } else {
+              result.complete(count.get());
+            }
+          });
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.client;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.core.RiakFuture;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A synchronous facade over a {@link RiakClient} for callers which block, such as request threads
+ * or virtual threads.
+ *
+ * <p>Callers wait for one of {@code maxConcurrentOperations} permits, for up to {@code
+ * acquireTimeout}, before executing a command, so they queue here rather than inside a node's
+ * connection pool when {@code blockOnMaxConnections} is enabled. The permit is held until the
+ * command completes, even if the caller stops waiting. Callers then wait for the response for up to
+ * {@code timeout}. Both waits park the calling thread through {@link
+ * java.util.concurrent.locks.LockSupport}, without holding a monitor, so a virtual thread releases
+ * its carrier thread while it waits.
+ *
+ * <p>Metrics are named {@code <prefix>.sync.acquire} (a timer of the wait for a permit), {@code
+ * available} (a gauge of free permits), {@code rejected} (a meter of callers which timed out
+ * waiting for a permit) and {@code timeouts} (a meter of callers which timed out waiting for a
+ * response).
+ */
+public class RiakSyncClient {
+
+  private final RiakClient client;
+  private final Semaphore permits;
+  private final long acquireTimeoutNanos;
+  private final long timeoutNanos;
+  private final Timer acquire;
+  private final Meter rejected;
+  private final Meter timeouts;
+
+  /**
+   * Constructor
+   *
+   * @param client Riak client to execute commands with
+   * @param maxConcurrentOperations Maximum number of commands in flight
+   * @param acquireTimeoutNanos Maximum time to wait for a permit, in nanoseconds
+   * @param timeoutNanos Maximum time to wait for a response, in nanoseconds
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public RiakSyncClient(
+      final RiakClient client,
+      final int maxConcurrentOperations,
+      final long acquireTimeoutNanos,
+      final long timeoutNanos,
+      final MetricRegistry metrics,
+      final String prefix) {
+    if (maxConcurrentOperations < 1) {
+      throw new IllegalArgumentException("maxConcurrentOperations must be at least 1");
+    }
+    this.client = Objects.requireNonNull(client);
+    this.permits = new Semaphore(maxConcurrentOperations);
+    this.acquireTimeoutNanos = acquireTimeoutNanos;
+    this.timeoutNanos = timeoutNanos;
+
+    final String name = name(prefix, "sync");
+    this.acquire = metrics.timer(name(name, "acquire"));
+    this.rejected = metrics.meter(name(name, "rejected"));
+    this.timeouts = metrics.meter(name(name, "timeouts"));
+    metrics.register(name(name, "available"), (Gauge<Integer>) permits::availablePermits);
+  }
+
+  /** @return the client commands are executed with */
+  public RiakClient getClient() {
+    return client;
+  }
+
+  /** @return the number of commands which can be started without waiting */
+  public int getAvailablePermits() {
+    return permits.availablePermits();
+  }
+
+  /**
+   * Execute a command and wait for its response
+   *
+   * @param command Command to execute
+   * @return the response
+   * @throws ExecutionException if the command failed
+   * @throws InterruptedException if interrupted while waiting
+   * @throws TimeoutException if no permit became available within {@code acquireTimeout}, or the
+   *     response did not arrive within {@code timeout}
+   */
+  public <T, S> T execute(final RiakCommand<T, S> command)
+      throws ExecutionException, InterruptedException, TimeoutException {
+    return execute(command, timeoutNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Execute a command and wait for its response
+   *
+   * @param command Command to execute
+   * @param timeout Maximum time to wait for the response
+   * @param unit Unit of the timeout
+   * @return the response
+   * @throws ExecutionException if the command failed
+   * @throws InterruptedException if interrupted while waiting
+   * @throws TimeoutException if no permit became available within {@code acquireTimeout}, or the
+   *     response did not arrive within the timeout
+   */
+  public <T, S> T execute(final RiakCommand<T, S> command, final long timeout, final TimeUnit unit)
+      throws ExecutionException, InterruptedException, TimeoutException {
+    final long start = System.nanoTime();
+    if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+      rejected.mark();
+      throw new TimeoutException(
+          "Timed out after "
+              + TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos)
+              + "ms waiting to execute a Riak command");
+    }
+    acquire.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+    // complete a CompletableFuture from the listener, so the caller waits without a monitor
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    final RiakFuture<T, S> future;
+    try {
+      future = client.executeAsync(command);
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+    future.addListener(
+        f -> {
+          permits.release();
+          if (f.isSuccess()) {
+            result.complete(f.getNow());
+          } else {
+            result.completeExceptionally(f.cause());
+          }
+        });
+
+    try {
+      return result.get(timeout, unit);
+    } catch (TimeoutException e) {
+      timeouts.mark();
+      throw e;
+    }
+  }
+}
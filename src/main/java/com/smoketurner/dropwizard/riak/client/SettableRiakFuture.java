@@ -0,0 +1,204 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.client;
+
+import com.basho.riak.client.api.commands.ListenableFuture;
+import com.basho.riak.client.core.RiakFuture;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link RiakFuture} which is completed by calling {@link #set(Object)} or {@link
+ * #setException(Throwable)}, used to hand results that did not come straight from the cluster back
+ * to callers.
+ *
+ * @param <V> Response type
+ * @param <T> Query info type
+ */
+public class SettableRiakFuture<V, T> extends ListenableFuture<V, T> {
+
+  private final CountDownLatch latch = new CountDownLatch(1);
+  private final AtomicBoolean completed = new AtomicBoolean();
+  @Nullable private volatile T queryInfo;
+  @Nullable private volatile V value;
+  @Nullable private volatile Throwable cause;
+
+  /**
+   * Constructor
+   *
+   * @param queryInfo Query info returned by {@link #getQueryInfo()}
+   */
+  public SettableRiakFuture(@Nullable final T queryInfo) {
+    this.queryInfo = queryInfo;
+  }
+
+  /**
+   * Create a future which has already completed successfully
+   *
+   * @param value Response
+   * @param queryInfo Query info
+   * @return a completed future
+   */
+  public static <V, T> SettableRiakFuture<V, T> completed(
+      @Nullable final V value, @Nullable final T queryInfo) {
+    final SettableRiakFuture<V, T> future = new SettableRiakFuture<>(queryInfo);
+    future.set(value);
+    return future;
+  }
+
+  /**
+   * Create a future which has already failed
+   *
+   * @param cause Failure cause
+   * @param queryInfo Query info
+   * @return a failed future
+   */
+  public static <V, T> SettableRiakFuture<V, T> failed(
+      final Throwable cause, @Nullable final T queryInfo) {
+    final SettableRiakFuture<V, T> future = new SettableRiakFuture<>(queryInfo);
+    future.setException(cause);
+    return future;
+  }
+
+  /**
+   * Complete this future with the same outcome as another, completed, future. If this future was
+   * created without query info, it takes the query info of the other future.
+   *
+   * @param future Completed future to copy
+   * @return true if this future was completed by this call
+   */
+  public boolean setFrom(final RiakFuture<V, T> future) {
+    if (queryInfo == null && !isDone()) {
+      queryInfo = future.getQueryInfo();
+    }
+    if (future.isSuccess()) {
+      return set(future.getNow());
+    }
+    return setException(future.cause());
+  }
+
+  /**
+   * Complete this future successfully
+   *
+   * @param value Response
+   * @return true if this future was completed by this call
+   */
+  public boolean set(@Nullable final V value) {
+    if (!completed.compareAndSet(false, true)) {
+      return false;
+    }
+    this.value = value;
+    latch.countDown();
+    notifyListeners();
+    return true;
+  }
+
+  /**
+   * Complete this future with a failure
+   *
+   * @param cause Failure cause
+   * @return true if this future was completed by this call
+   */
+  public boolean setException(final Throwable cause) {
+    if (!completed.compareAndSet(false, true)) {
+      return false;
+    }
+    this.cause = Objects.requireNonNull(cause);
+    latch.countDown();
+    notifyListeners();
+    return true;
+  }
+
+  @Override
+  public boolean cancel(final boolean mayInterruptIfRunning) {
+    return setException(new CancellationException());
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return cause instanceof CancellationException;
+  }
+
+  @Override
+  public boolean isDone() {
+    return latch.getCount() == 0;
+  }
+
+  @Override
+  public boolean isSuccess() {
+    return isDone() && cause == null;
+  }
+
+  @Nullable
+  @Override
+  public Throwable cause() {
+    return cause;
+  }
+
+  @Override
+  public V get() throws InterruptedException, ExecutionException {
+    latch.await();
+    return getOrThrow();
+  }
+
+  @Override
+  public V get(final long timeout, final TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    if (!latch.await(timeout, unit)) {
+      throw new TimeoutException();
+    }
+    return getOrThrow();
+  }
+
+  @Nullable
+  @Override
+  public V getNow() {
+    return value;
+  }
+
+  @Override
+  public void await() throws InterruptedException {
+    latch.await();
+  }
+
+  @Override
+  public boolean await(final long timeout, final TimeUnit unit) throws InterruptedException {
+    return latch.await(timeout, unit);
+  }
+
+  @Nullable
+  @Override
+  public T getQueryInfo() {
+    return queryInfo;
+  }
+
+  private V getOrThrow() throws ExecutionException {
+    final Throwable throwable = cause;
+    if (throwable instanceof CancellationException) {
+      throw (CancellationException) throwable;
+    }
+    if (throwable != null) {
+      throw new ExecutionException(throwable);
+    }
+    return value;
+  }
+}
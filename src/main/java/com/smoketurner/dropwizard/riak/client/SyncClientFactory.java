@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.client;
+
+import com.basho.riak.client.api.RiakClient;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import java.util.concurrent.TimeUnit;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class SyncClientFactory {
+
+  @Min(1)
+  private int maxConcurrentOperations = 256;
+
+  @NotNull
+  @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+  private Duration acquireTimeout = Duration.seconds(1);
+
+  @NotNull
+  @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+  private Duration timeout = Duration.seconds(10);
+
+  @JsonProperty
+  public int getMaxConcurrentOperations() {
+    return maxConcurrentOperations;
+  }
+
+  @JsonProperty
+  public void setMaxConcurrentOperations(final int operations) {
+    this.maxConcurrentOperations = operations;
+  }
+
+  @JsonProperty
+  public Duration getAcquireTimeout() {
+    return acquireTimeout;
+  }
+
+  @JsonProperty
+  public void setAcquireTimeout(final Duration timeout) {
+    this.acquireTimeout = timeout;
+  }
+
+  @JsonProperty
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  @JsonProperty
+  public void setTimeout(final Duration timeout) {
+    this.timeout = timeout;
+  }
+
+  public RiakSyncClient build(
+      final RiakClient client, final MetricRegistry metrics, final String prefix) {
+    return new RiakSyncClient(
+        client,
+        maxConcurrentOperations,
+        acquireTimeout.toNanoseconds(),
+        timeout.toNanoseconds(),
+        metrics,
+        prefix);
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import javax.annotation.Nullable;
+
+/**
+ * Stops sending operations to a node once the proportion of failed operations in a window crosses a
+ * threshold. After the open duration a single trial operation is let through: if it succeeds the
+ * breaker closes, otherwise it opens again.
+ *
+ * <p>Each operation holds a {@link Permit} from the state it was admitted in, and outcomes are only
+ * counted by the state which issued them. A late response to an operation admitted before the
+ * breaker opened is ignored rather than being taken for the trial's outcome.
+ */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final double failureRateThreshold;
+  private final int minimumRequests;
+  private final long windowNanos;
+  private final long openNanos;
+  private volatile State state = State.CLOSED;
+  private volatile Permit closed = new Permit(0, false);
+  private long generation = 0;
+  private long windowStart = System.nanoTime();
+  private int requests;
+  private int failures;
+  private long openedAt;
+  private boolean trialInFlight;
+
+  /**
+   * Constructor
+   *
+   * @param failureRateThreshold Proportion of failed operations which opens the breaker
+   * @param minimumRequests Minimum number of operations in a window before the breaker can open
+   * @param windowNanos Length of the window failures are counted over, in nanoseconds
+   * @param openNanos Time the breaker stays open before a trial operation, in nanoseconds
+   */
+  public CircuitBreaker(
+      final double failureRateThreshold,
+      final int minimumRequests,
+      final long windowNanos,
+      final long openNanos) {
+    this.failureRateThreshold = failureRateThreshold;
+    this.minimumRequests = minimumRequests;
+    this.windowNanos = windowNanos;
+    this.openNanos = openNanos;
+  }
+
+  /**
+   * Check whether an operation may be sent to the node
+   *
+   * @return a permit if the operation may be executed, on which {@link Permit#record(boolean)} or
+   *     {@link Permit#cancel()} must be called once it is finished with, or null if it may not
+   */
+  @Nullable
+  public Permit tryAcquire() {
+    if (state == State.CLOSED) {
+      // shared by every operation in this closed state; if the breaker has just opened, its
+      // outcome is ignored
+      return closed;
+    }
+    synchronized (this) {
+      switch (state) {
+        case CLOSED:
+          return closed;
+        case OPEN:
+          if (System.nanoTime() - openedAt < openNanos) {
+            return null;
+          }
+          transition(State.HALF_OPEN);
+          trialInFlight = true;
+          return new Permit(generation, true);
+        case HALF_OPEN:
+        default:
+          if (trialInFlight) {
+            return null;
+          }
+          trialInFlight = true;
+          return new Permit(generation, true);
+      }
+    }
+  }
+
+  /** @return the current state */
+  public State getState() {
+    return state;
+  }
+
+  private synchronized void record(final Permit permit, final boolean success) {
+    if (permit.generation != generation) {
+      // a late response to an operation admitted in an earlier state
+      return;
+    }
+    final long now = System.nanoTime();
+    switch (state) {
+      case HALF_OPEN:
+        if (!permit.trial) {
+          return;
+        }
+        trialInFlight = false;
+        if (success) {
+          transition(State.CLOSED);
+          reset(now);
+        } else {
+          open(now);
+        }
+        break;
+      case CLOSED:
+        if (now - windowStart >= windowNanos) {
+          reset(now);
+        }
+        requests++;
+        if (!success) {
+          failures++;
+          if (requests >= minimumRequests && failures >= failureRateThreshold * requests) {
+            open(now);
+          }
+        }
+        break;
+      case OPEN:
+      default:
+        break;
+    }
+  }
+
+  private synchronized void cancel(final Permit permit) {
+    if (state == State.HALF_OPEN && permit.trial && permit.generation == generation) {
+      trialInFlight = false;
+    }
+  }
+
+  private void open(final long now) {
+    transition(State.OPEN);
+    openedAt = now;
+  }
+
+  private void transition(final State next) {
+    generation++;
+    if (next == State.CLOSED) {
+      closed = new Permit(generation, false);
+    }
+    state = next;
+  }
+
+  private void reset(final long now) {
+    windowStart = now;
+    requests = 0;
+    failures = 0;
+  }
+
+  /** Permission to execute one operation, tied to the breaker state which granted it. */
+  public final class Permit {
+    private final long generation;
+    private final boolean trial;
+
+    private Permit(final long generation, final boolean trial) {
+      this.generation = generation;
+      this.trial = trial;
+    }
+
+    /**
+     * Record the outcome of the operation
+     *
+     * @param success Whether the operation succeeded
+     */
+    public void record(final boolean success) {
+      CircuitBreaker.this.record(this, success);
+    }
+
+    /** Give up the permit without recording an outcome, used when the operation never executed. */
+    public void cancel() {
+      CircuitBreaker.this.cancel(this);
+    }
+  }
+}
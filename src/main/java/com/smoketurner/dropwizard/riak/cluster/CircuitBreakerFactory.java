@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import java.util.concurrent.TimeUnit;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class CircuitBreakerFactory {
+
+  @DecimalMin("0.01")
+  @DecimalMax("1.0")
+  private double failureRateThreshold = 0.5;
+
+  @Min(1)
+  private int minimumRequests = 20;
+
+  @NotNull
+  @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+  private Duration window = Duration.seconds(10);
+
+  @NotNull
+  @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+  private Duration openDuration = Duration.seconds(5);
+
+  @JsonProperty
+  public double getFailureRateThreshold() {
+    return failureRateThreshold;
+  }
+
+  @JsonProperty
+  public void setFailureRateThreshold(final double threshold) {
+    this.failureRateThreshold = threshold;
+  }
+
+  @JsonProperty
+  public int getMinimumRequests() {
+    return minimumRequests;
+  }
+
+  @JsonProperty
+  public void setMinimumRequests(final int requests) {
+    this.minimumRequests = requests;
+  }
+
+  @JsonProperty
+  public Duration getWindow() {
+    return window;
+  }
+
+  @JsonProperty
+  public void setWindow(final Duration window) {
+    this.window = window;
+  }
+
+  @JsonProperty
+  public Duration getOpenDuration() {
+    return openDuration;
+  }
+
+  @JsonProperty
+  public void setOpenDuration(final Duration duration) {
+    this.openDuration = duration;
+  }
+
+  /** @return a new circuit breaker for a node */
+  public CircuitBreaker build() {
+    return new CircuitBreaker(
+        failureRateThreshold,
+        minimumRequests,
+        window.toNanoseconds(),
+        openDuration.toNanoseconds());
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import java.util.concurrent.TimeUnit;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class ConcurrencyLimitFactory {
+
+  @Min(1)
+  private int initialLimit = 20;
+
+  @Min(1)
+  private int minLimit = 1;
+
+  @Min(1)
+  private int maxLimit = 200;
+
+  @NotNull
+  @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+  private Duration latencyThreshold = Duration.seconds(1);
+
+  @DecimalMin("0.5")
+  @DecimalMax("0.99")
+  private double backoffRatio = 0.9;
+
+  @NotNull
+  @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+  private Duration maxWait = Duration.milliseconds(0);
+
+  @JsonProperty
+  public int getInitialLimit() {
+    return initialLimit;
+  }
+
+  @JsonProperty
+  public void setInitialLimit(final int limit) {
+    this.initialLimit = limit;
+  }
+
+  @JsonProperty
+  public int getMinLimit() {
+    return minLimit;
+  }
+
+  @JsonProperty
+  public void setMinLimit(final int limit) {
+    this.minLimit = limit;
+  }
+
+  @JsonProperty
+  public int getMaxLimit() {
+    return maxLimit;
+  }
+
+  @JsonProperty
+  public void setMaxLimit(final int limit) {
+    this.maxLimit = limit;
+  }
+
+  @JsonProperty
+  public Duration getLatencyThreshold() {
+    return latencyThreshold;
+  }
+
+  @JsonProperty
+  public void setLatencyThreshold(final Duration threshold) {
+    this.latencyThreshold = threshold;
+  }
+
+  @JsonProperty
+  public double getBackoffRatio() {
+    return backoffRatio;
+  }
+
+  @JsonProperty
+  public void setBackoffRatio(final double ratio) {
+    this.backoffRatio = ratio;
+  }
+
+  @JsonProperty
+  public Duration getMaxWait() {
+    return maxWait;
+  }
+
+  @JsonProperty
+  public void setMaxWait(final Duration wait) {
+    this.maxWait = wait;
+  }
+
+  /** @return a new limiter for a node */
+  public ConcurrencyLimiter build() {
+    return new ConcurrencyLimiter(
+        initialLimit, minLimit, maxLimit, latencyThreshold.toNanoseconds(), backoffRatio);
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of operations in flight to a node, adjusting the limit with additive increase,
+ * multiplicative decrease (AIMD): every operation which completes successfully within the latency
+ * threshold while the limit is in use raises the limit by roughly one per round trip, and every
+ * failure or slow response cuts it by the backoff ratio.
+ */
+public class ConcurrencyLimiter {
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyThresholdNanos;
+  private final double backoffRatio;
+  private volatile double limit;
+  private volatile int inFlight;
+
+  /**
+   * Constructor
+   *
+   * @param initialLimit Initial limit
+   * @param minLimit Minimum limit
+   * @param maxLimit Maximum limit
+   * @param latencyThresholdNanos Latency above which the limit is reduced, in nanoseconds
+   * @param backoffRatio Ratio the limit is multiplied by when it is reduced
+   */
+  public ConcurrencyLimiter(
+      final int initialLimit,
+      final int minLimit,
+      final int maxLimit,
+      final long latencyThresholdNanos,
+      final double backoffRatio) {
+    if (minLimit < 1 || maxLimit < minLimit) {
+      throw new IllegalArgumentException("limits must satisfy 1 <= minLimit <= maxLimit");
+    }
+    if (backoffRatio <= 0 || backoffRatio >= 1) {
+      throw new IllegalArgumentException("backoffRatio must be between 0 and 1");
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.latencyThresholdNanos = latencyThresholdNanos;
+    this.backoffRatio = backoffRatio;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+  }
+
+  /**
+   * Take a slot if the node is below its limit
+   *
+   * @return true if the operation may be executed, in which case {@link #release(long, boolean)} or
+   *     {@link #cancel()} must be called once it is finished with
+   */
+  public boolean tryAcquire() {
+    lock.lock();
+    try {
+      if (inFlight >= (int) limit) {
+        return false;
+      }
+      inFlight++;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Wait until the node is below its limit, without taking a slot
+   *
+   * @param timeoutNanos Maximum time to wait, in nanoseconds
+   * @return true if the node was below its limit before the timeout
+   */
+  public boolean awaitAvailable(final long timeoutNanos) {
+    long remaining = timeoutNanos;
+    lock.lock();
+    try {
+      while (inFlight >= (int) limit) {
+        if (remaining <= 0) {
+          return false;
+        }
+        remaining = released.awaitNanos(remaining);
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Release a slot and adjust the limit based on how the operation went
+   *
+   * @param latencyNanos Operation latency in nanoseconds
+   * @param success Whether the operation succeeded
+   */
+  public void release(final long latencyNanos, final boolean success) {
+    lock.lock();
+    try {
+      if (!success || latencyNanos > latencyThresholdNanos) {
+        limit = Math.max(minLimit, limit * backoffRatio);
+      } else if (inFlight * 2 >= limit) {
+        // only grow while the limit is actually being used
+        limit = Math.min(maxLimit, limit + 1.0 / limit);
+      }
+      inFlight--;
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Release a slot without adjusting the limit, used when the operation was never executed. */
+  public void cancel() {
+    lock.lock();
+    try {
+      inFlight--;
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** @return the current limit */
+  public int getLimit() {
+    return (int) limit;
+  }
+
+  /** @return the number of operations in flight */
+  public int getInFlight() {
+    return inFlight;
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrencyLimiter{limit="
+        + getLimit()
+        + ", inFlight="
+        + inFlight
+        + ", latencyThreshold="
+        + TimeUnit.NANOSECONDS.toMillis(latencyThresholdNanos)
+        + "ms}";
+  }
+}
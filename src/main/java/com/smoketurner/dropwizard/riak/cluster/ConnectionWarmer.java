@@ -0,0 +1,247 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.core.RiakCluster;
+import com.basho.riak.client.core.RiakNode;
+import com.basho.riak.client.core.operations.PingOperation;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.util.Duration;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens connections to started nodes in parallel. {@link RiakNode#start()} opens its minimum
+ * connections one at a time, and the cluster starts its nodes one at a time, so with TLS a large
+ * pool takes a long time to start. Nodes are instead started without connections, and the warmer
+ * sends concurrent pings to each node, so pings which find no idle connection open (and complete
+ * the TLS handshake and authentication for) a new one. A node's pings are repeated until it has
+ * opened {@code connectionsPerNode} connections, counted by the {@code connections.created} meter
+ * of nodes using {@link InstrumentedSocketChannel#bootstrap}, since a ping which is answered before
+ * the next one is sent leaves its connection to be reused. Once warmed, each node's minimum
+ * connections is raised so the connections aren't reaped as idle.
+ */
+public class ConnectionWarmer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionWarmer.class);
+
+  private final int connectionsPerNode;
+  private final int parallelism;
+  private final double readyFraction;
+  private final Duration timeout;
+  private final Timer clusterStart;
+  private final Timer warmup;
+  private final Counter connections;
+  private final Counter failures;
+  private final MetricRegistry metrics;
+  private final String prefix;
+
+  /**
+   * Constructor
+   *
+   * @param connectionsPerNode Number of connections to open to each node
+   * @param parallelism Maximum number of connections opened at once
+   * @param readyFraction Fraction of connections to wait for before {@link #warm(Collection)}
+   *     returns
+   * @param timeout Maximum time to wait for connections
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public ConnectionWarmer(
+      final int connectionsPerNode,
+      final int parallelism,
+      final double readyFraction,
+      final Duration timeout,
+      final MetricRegistry metrics,
+      final String prefix) {
+    this.connectionsPerNode = connectionsPerNode;
+    this.parallelism = parallelism;
+    this.readyFraction = readyFraction;
+    this.timeout = Objects.requireNonNull(timeout);
+    this.metrics = Objects.requireNonNull(metrics);
+    this.prefix = Objects.requireNonNull(prefix);
+
+    final String name = name(prefix, "startup");
+    this.clusterStart = metrics.timer(name(name, "cluster"));
+    this.warmup = metrics.timer(name(name, "warmup"));
+    this.connections = metrics.counter(name(name, "connections"));
+    this.failures = metrics.counter(name(name, "failures"));
+  }
+
+  /**
+   * Start a cluster whose nodes were built without minimum connections, then warm its nodes
+   *
+   * @param cluster Cluster to start
+   * @return the number of connections opened before returning
+   */
+  public int start(final RiakCluster cluster) {
+    try (Timer.Context context = clusterStart.time()) {
+      cluster.start();
+    }
+    return warm(cluster.getNodes());
+  }
+
+  /**
+   * Open connections to every node, waiting until {@code readyFraction} of them are open or the
+   * timeout expires. Connections which are still being opened continue in the background.
+   *
+   * @param nodes Started nodes
+   * @return the number of connections opened before returning
+   */
+  public int warm(final Collection<RiakNode> nodes) {
+    final int target = nodes.size() * connectionsPerNode;
+    if (target == 0) {
+      return 0;
+    }
+
+    final Timer.Context context = warmup.time();
+    final ExecutorService executor =
+        new ThreadPoolExecutor(
+            Math.min(parallelism, target),
+            Math.min(parallelism, target),
+            0,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("riak-warmup-%d").setDaemon(true).build());
+    final CountDownLatch ready = new CountDownLatch((int) Math.ceil(target * readyFraction));
+    final AtomicInteger opened = new AtomicInteger();
+    final long deadline = System.nanoTime() + timeout.toNanoseconds();
+
+    for (RiakNode node : nodes) {
+      final NodeWarmup warmup = new NodeWarmup(node, ready, opened, deadline);
+      for (int i = 0; i < connectionsPerNode; i++) {
+        executor.execute(warmup::connect);
+      }
+    }
+    executor.shutdown();
+
+    try {
+      if (!ready.await(timeout.getQuantity(), timeout.getUnit())) {
+        LOGGER.warn("Timed out after {} waiting for Riak connections", timeout);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    context.stop();
+
+    for (RiakNode node : nodes) {
+      try {
+        node.setMinConnections(connectionsPerNode);
+      } catch (IllegalStateException | IllegalArgumentException e) {
+        LOGGER.warn(
+            "Unable to set minimum connections for {}:{}",
+            node.getRemoteAddress(),
+            node.getPort(),
+            e);
+      }
+    }
+
+    LOGGER.info("Opened {} of {} Riak connections", opened.get(), target);
+    return opened.get();
+  }
+
+  private final class NodeWarmup {
+
+    private final RiakNode node;
+    private final Meter created;
+    private final long baseline;
+    private final AtomicInteger counted = new AtomicInteger();
+    private final CountDownLatch ready;
+    private final AtomicInteger opened;
+    private final long deadline;
+
+    private NodeWarmup(
+        final RiakNode node,
+        final CountDownLatch ready,
+        final AtomicInteger opened,
+        final long deadline) {
+      this.node = node;
+      this.created =
+          metrics.meter(
+              name(
+                  InstrumentedNodeManager.nodeName(prefix, node.getRemoteAddress(), node.getPort()),
+                  "connections",
+                  "created"));
+      this.baseline = created.getCount();
+      this.ready = ready;
+      this.opened = opened;
+      this.deadline = deadline;
+    }
+
+    private int open() {
+      return (int) Math.min(created.getCount() - baseline, connectionsPerNode);
+    }
+
+    private void connect() {
+      while (open() < connectionsPerNode) {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return;
+        }
+        final PingOperation ping = new PingOperation();
+        try {
+          if (!node.execute(ping)
+              || !ping.await(remaining, TimeUnit.NANOSECONDS)
+              || !ping.isSuccess()) {
+            failures.inc();
+            return;
+          }
+        } catch (IllegalStateException e) {
+          // the node is shutting down
+          failures.inc();
+          return;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          failures.inc();
+          return;
+        }
+        record();
+      }
+    }
+
+    /** Count the connections opened since the last call, whichever task's ping opened them */
+    private void record() {
+      final int open = open();
+      int previous = counted.get();
+      while (previous < open) {
+        if (counted.compareAndSet(previous, open)) {
+          final int added = open - previous;
+          connections.inc(added);
+          opened.addAndGet(added);
+          for (int i = 0; i < added; i++) {
+            ready.countDown();
+          }
+          return;
+        }
+        previous = counted.get();
+      }
+    }
+  }
+}
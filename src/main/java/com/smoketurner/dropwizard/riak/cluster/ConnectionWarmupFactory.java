@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import java.util.concurrent.TimeUnit;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class ConnectionWarmupFactory {
+
+  @DecimalMin("0.0")
+  @DecimalMax("1.0")
+  private double readyFraction = 1.0;
+
+  @NotNull
+  @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+  private Duration timeout = Duration.seconds(30);
+
+  @Min(1)
+  private int parallelism = 32;
+
+  @JsonProperty
+  public double getReadyFraction() {
+    return readyFraction;
+  }
+
+  @JsonProperty
+  public void setReadyFraction(final double fraction) {
+    this.readyFraction = fraction;
+  }
+
+  @JsonProperty
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  @JsonProperty
+  public void setTimeout(final Duration timeout) {
+    this.timeout = timeout;
+  }
+
+  @JsonProperty
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  @JsonProperty
+  public void setParallelism(final int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Build a warmer which opens connections to every node
+   *
+   * @param connectionsPerNode Number of connections to open to each node
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   * @return the connection warmer
+   */
+  public ConnectionWarmer build(
+      final int connectionsPerNode, final MetricRegistry metrics, final String prefix) {
+    return new ConnectionWarmer(
+        connectionsPerNode, parallelism, readyFraction, timeout, metrics, prefix);
+  }
+}
@@ -0,0 +1,757 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.core.DefaultNodeManager;
+import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.NodeManager;
+import com.basho.riak.client.core.RiakNode;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.smoketurner.dropwizard.riak.tracing.RiakTracer;
+import io.netty.util.concurrent.FastThreadLocalThread;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link NodeManager} which distributes operations across the healthy nodes using a {@link
+ * NodeSelectionStrategy} (round-robin by default, like {@link DefaultNodeManager}) and registers
+ * connection pool metrics for every node.
+ *
+ * <p>For each node, gauges are registered for the available, in-use and maximum number of
+ * connections, along with a {@link Timer} measuring how long it took to acquire a connection from
+ * the node's pool (which includes any time spent blocked when {@code blockOnMaxConnections} is
+ * enabled, or connecting when the pool is below its maximum). The {@link NodeStats} used for
+ * selection are reported as {@code latency} (in milliseconds), {@code outstanding} and {@code
+ * score} gauges.
+ *
+ * <p>Optionally, each node can be guarded by a {@link ConcurrencyLimiter}, which sheds operations
+ * once the node's adaptive in-flight limit is reached (after waiting up to {@code maxWait} for a
+ * slot), and a {@link CircuitBreaker}, which stops sending operations to a node whose failure rate
+ * spikes. Their state is reported under {@code limiter} and {@code circuit-breaker}. Netty I/O
+ * threads, and actions run through {@link #withoutWaiting(Supplier)}, are never parked waiting for
+ * a slot or a pooled connection, so operations executed from them are shed at once.
+ *
+ * <p>On shutdown, {@link #drain(long, TimeUnit)} stops new operations from being executed, while
+ * still allowing in-flight operations to be retried, and waits for the in-flight operations to
+ * complete.
+ *
+ * <p>When a {@link RiakTracer} is set, each operation is recorded on a span tagged with its bucket,
+ * the node of its last attempt, the number of attempts, the time spent acquiring connections and
+ * the time spent on the wire.
+ *
+ * <p>When a {@link SlowOperationLog} is set, operations are also timed per node and operation type,
+ * under {@code <prefix>.nodes.<host:port>.operations.<type>}, and slow operations are recorded in
+ * the log.
+ */
+public class InstrumentedNodeManager implements NodeManager {
+
+  private static final ThreadLocal<Boolean> WITHOUT_WAITING = ThreadLocal.withInitial(() -> false);
+  private static final ThreadLocal<Boolean> SHED = ThreadLocal.withInitial(() -> false);
+  private static final Logger LOGGER = LoggerFactory.getLogger(InstrumentedNodeManager.class);
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+  private final List<RiakNode> healthy = new ArrayList<>();
+  private final List<RiakNode> unhealthy = new ArrayList<>();
+  private final List<RiakNode> retiring = new ArrayList<>();
+  private final AtomicInteger index = new AtomicInteger();
+  private final ConcurrentMap<RiakNode, Timer> acquireTimers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<RiakNode, NodeStats> stats = new ConcurrentHashMap<>();
+  private final ConcurrentMap<RiakNode, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<RiakNode, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<FutureOperation<?, ?, ?>, Attempt> attempts =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<FutureOperation<?, ?, ?>, OperationTrace> traces =
+      new ConcurrentHashMap<>();
+  private final Set<FutureOperation<?, ?, ?>> shed = ConcurrentHashMap.newKeySet();
+  private final ConcurrentMap<RiakNode, ConcurrentMap<Class<?>, Timer>> operationTimers =
+      new ConcurrentHashMap<>();
+  private final MetricRegistry metrics;
+  private final String prefix;
+  private final NodeSelectionStrategy strategy;
+  @Nullable private final ConcurrencyLimitFactory limit;
+  @Nullable private final CircuitBreakerFactory circuitBreaker;
+  private final RiakTracer tracer;
+  @Nullable private final SlowOperationLog slowLog;
+  private final long maxWaitNanos;
+  private volatile boolean draining = false;
+
+  /**
+   * Constructor
+   *
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public InstrumentedNodeManager(final MetricRegistry metrics, final String prefix) {
+    this(metrics, prefix, NodeSelectionStrategy.ROUND_ROBIN);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   * @param strategy Node selection strategy
+   */
+  public InstrumentedNodeManager(
+      final MetricRegistry metrics, final String prefix, final NodeSelectionStrategy strategy) {
+    this(metrics, prefix, strategy, null, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   * @param strategy Node selection strategy
+   * @param limit Per-node concurrency limit configuration, or null for no limit
+   * @param circuitBreaker Per-node circuit breaker configuration, or null for no circuit breaker
+   */
+  public InstrumentedNodeManager(
+      final MetricRegistry metrics,
+      final String prefix,
+      final NodeSelectionStrategy strategy,
+      @Nullable final ConcurrencyLimitFactory limit,
+      @Nullable final CircuitBreakerFactory circuitBreaker) {
+    this(metrics, prefix, strategy, limit, circuitBreaker, RiakTracer.NOOP);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   * @param strategy Node selection strategy
+   * @param limit Per-node concurrency limit configuration, or null for no limit
+   * @param circuitBreaker Per-node circuit breaker configuration, or null for no circuit breaker
+   * @param tracer Tracer to record operations with
+   */
+  public InstrumentedNodeManager(
+      final MetricRegistry metrics,
+      final String prefix,
+      final NodeSelectionStrategy strategy,
+      @Nullable final ConcurrencyLimitFactory limit,
+      @Nullable final CircuitBreakerFactory circuitBreaker,
+      final RiakTracer tracer) {
+    this(metrics, prefix, strategy, limit, circuitBreaker, tracer, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   * @param strategy Node selection strategy
+   * @param limit Per-node concurrency limit configuration, or null for no limit
+   * @param circuitBreaker Per-node circuit breaker configuration, or null for no circuit breaker
+   * @param tracer Tracer to record operations with
+   * @param slowLog Log to record slow operations in, or null to not time operations per node
+   */
+  public InstrumentedNodeManager(
+      final MetricRegistry metrics,
+      final String prefix,
+      final NodeSelectionStrategy strategy,
+      @Nullable final ConcurrencyLimitFactory limit,
+      @Nullable final CircuitBreakerFactory circuitBreaker,
+      final RiakTracer tracer,
+      @Nullable final SlowOperationLog slowLog) {
+    this.metrics = Objects.requireNonNull(metrics);
+    this.prefix = Objects.requireNonNull(prefix);
+    this.strategy = Objects.requireNonNull(strategy);
+    this.limit = limit;
+    this.circuitBreaker = circuitBreaker;
+    this.tracer = Objects.requireNonNull(tracer);
+    this.slowLog = slowLog;
+    this.maxWaitNanos = limit != null ? limit.getMaxWait().toNanoseconds() : 0;
+  }
+
+  /**
+   * Return the metric name prefix used for a node
+   *
+   * @param prefix Metric name prefix
+   * @param host Node host name
+   * @param port Node port
+   * @return the metric name prefix for the node
+   */
+  public static String nodeName(final String prefix, final String host, final int port) {
+    return name(prefix, "nodes", host + ":" + port);
+  }
+
+  @Override
+  public void init(final List<RiakNode> nodes) {
+    lock.writeLock().lock();
+    try {
+      healthy.addAll(nodes);
+    } finally {
+      lock.writeLock().unlock();
+    }
+    nodes.forEach(this::register);
+  }
+
+  @Override
+  public boolean executeOnNode(final FutureOperation operation, @Nullable RiakNode previousNode) {
+    if ((draining && previousNode == null) || shed.contains(operation)) {
+      return false;
+    }
+    final Attempt current = attempts.get(operation);
+    final OperationTrace trace = trace(operation);
+    if (!executeOnNode(operation, previousNode, current, trace)) {
+      if (trace != null) {
+        // the cluster either requeues the operation or fails it, which ends the trace
+        trace.rejected();
+      }
+      if (WITHOUT_WAITING.get()) {
+        // the cluster's retries of the operation must not wait either, so they fail at once
+        SHED.set(true);
+        if (shed.add(operation)) {
+          operation.addListener(f -> shed.remove(operation));
+        }
+      }
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Return the trace of an operation, starting one on its first execution. The trace outlives any
+   * requeues of the operation and ends only once the operation completes.
+   */
+  @Nullable
+  private OperationTrace trace(final FutureOperation<?, ?, ?> operation) {
+    if (tracer == RiakTracer.NOOP) {
+      return null;
+    }
+    final OperationTrace existing = traces.get(operation);
+    if (existing != null) {
+      return existing;
+    }
+    final OperationTrace trace = OperationTrace.start(tracer, operation);
+    if (trace != null) {
+      traces.put(operation, trace);
+      operation.addListener(
+          f -> {
+            traces.remove(operation);
+            trace.end(f.isSuccess() ? null : f.cause());
+          });
+    }
+    return trace;
+  }
+
+  private boolean executeOnNode(
+      final FutureOperation operation,
+      @Nullable final RiakNode previousNode,
+      @Nullable final Attempt current,
+      @Nullable final OperationTrace trace) {
+    final long deadline = System.nanoTime() + maxWaitNanos;
+    while (true) {
+      final RiakNode preferred;
+      lock.readLock().lock();
+      try {
+        final int size = healthy.size();
+        if (size == 0) {
+          return false;
+        }
+
+        final int rotation = index.getAndIncrement() & Integer.MAX_VALUE;
+        int start = strategy.select(healthy, rotation, this::stats) % size;
+        if (size > 1 && healthy.get(start).equals(previousNode)) {
+          // retry on a different node
+          start = (start + 1) % size;
+        }
+        for (int i = 0; i < size; i++) {
+          if (track(healthy.get((start + i) % size), operation, current, trace)) {
+            return true;
+          }
+        }
+        preferred = healthy.get(start);
+      } finally {
+        lock.readLock().unlock();
+      }
+
+      // every node is at its limit, so wait (outside the lock) for the preferred node to free up,
+      // unless this is an I/O thread which would stall every channel it serves
+      final ConcurrencyLimiter limiter = limiters.get(preferred);
+      final long remaining = deadline - System.nanoTime();
+      if (limiter == null || remaining <= 0 || !mayWait() || !limiter.awaitAvailable(remaining)) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Run an action on the current thread, shedding any operation it executes which no node can
+   * accept at once, rather than waiting for a concurrency limit slot or a pooled connection. A shed
+   * operation is failed, without waiting, on each of its retries as well.
+   *
+   * @param action Action which executes operations
+   * @param <T> Result type
+   * @return the result of the action, or empty if any operation it executed was shed
+   */
+  public static <T> Optional<T> withoutWaiting(final Supplier<T> action) {
+    WITHOUT_WAITING.set(true);
+    SHED.set(false);
+    try {
+      final T result = action.get();
+      return SHED.get() ? Optional.empty() : Optional.of(result);
+    } finally {
+      WITHOUT_WAITING.set(false);
+      SHED.set(false);
+    }
+  }
+
+  /**
+   * @return false on Netty I/O threads and within {@link #withoutWaiting(Supplier)}, where an
+   *     operation must not wait for capacity
+   */
+  private static boolean mayWait() {
+    return !(Thread.currentThread() instanceof FastThreadLocalThread) && !WITHOUT_WAITING.get();
+  }
+
+  /** @return true if the node would block waiting for one of its connections to be returned */
+  private static boolean poolExhausted(final RiakNode node) {
+    try {
+      return node.getBlockOnMaxConnections() && node.availablePermits() <= 0;
+    } catch (IllegalStateException e) {
+      // the node is shutting down
+      return true;
+    }
+  }
+
+  /**
+   * Return the selection statistics of a node
+   *
+   * @param node Node
+   * @return the node's statistics
+   */
+  public NodeStats stats(final RiakNode node) {
+    return stats.computeIfAbsent(node, n -> new NodeStats());
+  }
+
+  /**
+   * Stop executing new operations and wait for the operations in flight to complete. Operations
+   * which are already in flight may still be retried.
+   *
+   * @param timeout Maximum time to wait
+   * @param unit Unit of the timeout
+   * @return the number of operations which were still in flight when the timeout expired
+   */
+  public int drain(final long timeout, final TimeUnit unit) {
+    draining = true;
+    final int inFlight = attempts.size();
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    try {
+      while (!attempts.isEmpty() && System.nanoTime() - deadline < 0) {
+        Thread.sleep(10);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    final int abandoned = attempts.size();
+    final int completed = Math.max(0, inFlight - abandoned);
+    metrics.counter(name(prefix, "drain", "completed")).inc(completed);
+    metrics.counter(name(prefix, "drain", "abandoned")).inc(abandoned);
+    if (abandoned > 0) {
+      LOGGER.warn(
+          "Drained {} in-flight operations, abandoned {} after {}ms",
+          completed,
+          abandoned,
+          unit.toMillis(timeout));
+    } else {
+      LOGGER.info("Drained {} in-flight operations", completed);
+    }
+    return abandoned;
+  }
+
+  /** @return true once {@link #drain(long, TimeUnit)} has been called */
+  public boolean isDraining() {
+    return draining;
+  }
+
+  /** @return the slow operation log, if enabled */
+  public Optional<SlowOperationLog> getSlowOperationLog() {
+    return Optional.ofNullable(slowLog);
+  }
+
+  /**
+   * Return the state of every node's circuit breaker
+   *
+   * @return the circuit breaker state keyed by {@code host:port}, empty if circuit breakers are
+   *     disabled
+   */
+  public Map<String, CircuitBreaker.State> getCircuitBreakerStates() {
+    final Map<String, CircuitBreaker.State> states = new TreeMap<>();
+    breakers.forEach(
+        (node, breaker) ->
+            states.put(node.getRemoteAddress() + ":" + node.getPort(), breaker.getState()));
+    return states;
+  }
+
+  /**
+   * Execute an operation on a node, recording it in the node's statistics until it completes or is
+   * retried on another node.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean track(
+      final RiakNode node,
+      final FutureOperation operation,
+      @Nullable final Attempt current,
+      @Nullable final OperationTrace trace) {
+    if (!mayWait() && poolExhausted(node)) {
+      return false;
+    }
+    final CircuitBreaker breaker = breakers.get(node);
+    final CircuitBreaker.Permit permit = breaker != null ? breaker.tryAcquire() : null;
+    if (breaker != null && permit == null) {
+      return false;
+    }
+    final ConcurrencyLimiter limiter = limiters.get(node);
+    if (limiter != null && !limiter.tryAcquire()) {
+      if (permit != null) {
+        permit.cancel();
+      }
+      metrics.meter(name(nodeName(prefix, node), "limiter", "rejected")).mark();
+      return false;
+    }
+
+    final Attempt attempt = new Attempt(node, stats(node), limiter, permit, current);
+    final Attempt previous = attempts.put(operation, attempt);
+    if (previous != null) {
+      // the operation failed on the previous node and is being retried
+      previous.complete(false);
+    }
+
+    final long start = trace != null ? System.nanoTime() : 0;
+    if (!execute(node, operation)) {
+      attempts.remove(operation, attempt);
+      attempt.cancel();
+      return false;
+    }
+    if (trace != null) {
+      trace.attempt(node, System.nanoTime() - start);
+    }
+
+    if (previous == null) {
+      operation.addListener(
+          f -> {
+            final Attempt last = attempts.remove(operation);
+            if (last != null) {
+              last.complete(f.isSuccess());
+              if (slowLog != null) {
+                record(operation, last);
+              }
+            }
+          });
+    }
+    return true;
+  }
+
+  /** Time a completed operation against its node and record it in the slow operation log. */
+  private void record(final FutureOperation<?, ?, ?> operation, final Attempt last) {
+    final long elapsed = System.nanoTime() - last.operationStart;
+    final ConcurrentMap<Class<?>, Timer> timers = operationTimers.get(last.node);
+    if (timers != null) {
+      Timer timer = timers.get(operation.getClass());
+      if (timer == null) {
+        timer =
+            timers.computeIfAbsent(
+                operation.getClass(),
+                type ->
+                    metrics.timer(
+                        name(
+                            nodeName(prefix, last.node),
+                            "operations",
+                            OperationTrace.operationType(operation))));
+      }
+      timer.update(elapsed, TimeUnit.NANOSECONDS);
+    }
+    slowLog.record(operation, last.node, last.number, elapsed);
+  }
+
+  /**
+   * Execute an operation on a node, timing how long it takes to acquire a connection.
+   *
+   * @param node Node to execute the operation on
+   * @param operation Operation to execute
+   * @return true if the operation was written to a connection, otherwise false
+   */
+  protected boolean execute(final RiakNode node, final FutureOperation operation) {
+    final Timer timer = acquireTimers.get(node);
+    if (timer == null) {
+      return node.execute(operation);
+    }
+    final long start = System.nanoTime();
+    try {
+      return node.execute(operation);
+    } finally {
+      timer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public void nodeStateChanged(final RiakNode node, final RiakNode.State state) {
+    switch (state) {
+      case RUNNING:
+        lock.writeLock().lock();
+        try {
+          if (unhealthy.remove(node)) {
+            healthy.add(node);
+            LOGGER.info(
+                "NodeManager moved node to healthy list; {}:{}",
+                node.getRemoteAddress(),
+                node.getPort());
+          }
+        } finally {
+          lock.writeLock().unlock();
+        }
+        break;
+      case HEALTH_CHECKING:
+        lock.writeLock().lock();
+        try {
+          if (healthy.remove(node)) {
+            unhealthy.add(node);
+            LOGGER.info(
+                "NodeManager moved node to unhealthy list; {}:{}",
+                node.getRemoteAddress(),
+                node.getPort());
+          }
+        } finally {
+          lock.writeLock().unlock();
+        }
+        break;
+      case SHUTTING_DOWN:
+      case SHUTDOWN:
+        if (remove(node)) {
+          LOGGER.info(
+              "NodeManager removed node due to it shutting down; {}:{}",
+              node.getRemoteAddress(),
+              node.getPort());
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Override
+  public void addNode(final RiakNode node) {
+    lock.writeLock().lock();
+    try {
+      healthy.add(node);
+    } finally {
+      lock.writeLock().unlock();
+    }
+    // the cluster only registers the node manager as a listener of its initial nodes
+    node.removeStateListener(this);
+    node.addStateListener(this);
+    register(node);
+  }
+
+  /**
+   * Stop executing new operations on a node and wait for its in-flight operations to complete. The
+   * node is not shut down, it should be removed from the cluster afterwards.
+   *
+   * @param node Node to drain
+   * @param timeout Maximum time to wait
+   * @param unit Unit of the timeout
+   * @return the number of operations which were still in flight on the node when the timeout
+   *     expired
+   */
+  public int drainNode(final RiakNode node, final long timeout, final TimeUnit unit) {
+    lock.writeLock().lock();
+    try {
+      if (healthy.remove(node) || unhealthy.remove(node)) {
+        retiring.add(node);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    final NodeStats nodeStats = stats(node);
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    try {
+      while (nodeStats.getOutstanding() > 0 && System.nanoTime() - deadline < 0) {
+        Thread.sleep(10);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return nodeStats.getOutstanding();
+  }
+
+  @Override
+  public boolean removeNode(final RiakNode node) {
+    final boolean removed = remove(node);
+    if (removed) {
+      node.removeStateListener(this);
+      node.shutdown();
+      LOGGER.info(
+          "NodeManager removed and shutdown node; {}:{}", node.getRemoteAddress(), node.getPort());
+    }
+    return removed;
+  }
+
+  private boolean remove(final RiakNode node) {
+    final boolean removed;
+    lock.writeLock().lock();
+    try {
+      removed = healthy.remove(node) || unhealthy.remove(node) || retiring.remove(node);
+    } finally {
+      lock.writeLock().unlock();
+    }
+    if (removed) {
+      unregister(node);
+    }
+    return removed;
+  }
+
+  private static String nodeName(final String prefix, final RiakNode node) {
+    return nodeName(prefix, node.getRemoteAddress(), node.getPort());
+  }
+
+  private void register(final RiakNode node) {
+    final String name = nodeName(prefix, node);
+    metrics.gauge(
+        name(name, "connections", "available"),
+        () -> connections(node, RiakNode::availablePermits));
+    metrics.gauge(
+        name(name, "connections", "in-use"),
+        () -> connections(node, n -> n.getMaxConnections() - n.availablePermits()));
+    metrics.gauge(
+        name(name, "connections", "max"), () -> connections(node, RiakNode::getMaxConnections));
+    acquireTimers.put(node, metrics.timer(name(name, "connections", "acquire")));
+    if (slowLog != null) {
+      operationTimers.put(node, new ConcurrentHashMap<>());
+    }
+
+    final NodeStats nodeStats = stats(node);
+    metrics.gauge(
+        name(name, "latency"),
+        () -> () -> nodeStats.getLatency() / TimeUnit.MILLISECONDS.toNanos(1));
+    metrics.gauge(name(name, "outstanding"), () -> nodeStats::getOutstanding);
+    metrics.gauge(name(name, "score"), () -> nodeStats::getScore);
+
+    if (limit != null) {
+      final ConcurrencyLimiter limiter = limit.build();
+      limiters.put(node, limiter);
+      metrics.gauge(name(name, "limiter", "limit"), () -> limiter::getLimit);
+      metrics.gauge(name(name, "limiter", "in-flight"), () -> limiter::getInFlight);
+      metrics.meter(name(name, "limiter", "rejected"));
+    }
+    if (circuitBreaker != null) {
+      final CircuitBreaker breaker = circuitBreaker.build();
+      breakers.put(node, breaker);
+      metrics.gauge(name(name, "circuit-breaker", "state"), () -> () -> breaker.getState().name());
+      metrics.gauge(
+          name(name, "circuit-breaker", "open"),
+          () -> () -> breaker.getState() == CircuitBreaker.State.OPEN ? 1 : 0);
+    }
+  }
+
+  private void unregister(final RiakNode node) {
+    if (acquireTimers.remove(node) == null) {
+      return;
+    }
+    stats.remove(node);
+    operationTimers.remove(node);
+    limiters.remove(node);
+    breakers.remove(node);
+    final String name = nodeName(prefix, node);
+    metrics.removeMatching((metricName, metric) -> metricName.startsWith(name + "."));
+  }
+
+  private static final class Attempt {
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final long start = System.nanoTime();
+    private final RiakNode node;
+    private final long operationStart;
+    private final int number;
+    private final NodeStats stats;
+    @Nullable private final ConcurrencyLimiter limiter;
+    @Nullable private final CircuitBreaker.Permit permit;
+
+    private Attempt(
+        final RiakNode node,
+        final NodeStats stats,
+        @Nullable final ConcurrencyLimiter limiter,
+        @Nullable final CircuitBreaker.Permit permit,
+        @Nullable final Attempt previous) {
+      this.node = node;
+      this.operationStart = previous != null ? previous.operationStart : start;
+      this.number = previous != null ? previous.number + 1 : 1;
+      this.stats = stats;
+      this.limiter = limiter;
+      this.permit = permit;
+      stats.start();
+    }
+
+    private void complete(final boolean success) {
+      if (done.compareAndSet(false, true)) {
+        final long elapsed = System.nanoTime() - start;
+        stats.complete(elapsed, success);
+        if (limiter != null) {
+          limiter.release(elapsed, success);
+        }
+        if (permit != null) {
+          permit.record(success);
+        }
+      }
+    }
+
+    private void cancel() {
+      if (done.compareAndSet(false, true)) {
+        stats.cancel();
+        if (limiter != null) {
+          limiter.cancel();
+        }
+        if (permit != null) {
+          permit.cancel();
+        }
+      }
+    }
+  }
+
+  private static Gauge<Integer> connections(
+      final RiakNode node, final ToIntFunction<RiakNode> function) {
+    return () -> {
+      try {
+        return function.applyAsInt(node);
+      } catch (IllegalStateException e) {
+        // the node is shutting down
+        return 0;
+      }
+    };
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.codahale.metrics.MetricRegistry;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelFactory;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Objects;
+
+/**
+ * A {@link NioSocketChannel} which marks a per-node meter every time a new connection is
+ * established, so the connection creation rate of each node's pool can be tracked.
+ */
+public class InstrumentedSocketChannel extends NioSocketChannel {
+
+  private final MetricRegistry metrics;
+  private final String prefix;
+
+  /**
+   * Constructor
+   *
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public InstrumentedSocketChannel(final MetricRegistry metrics, final String prefix) {
+    this.metrics = Objects.requireNonNull(metrics);
+    this.prefix = Objects.requireNonNull(prefix);
+  }
+
+  /**
+   * Create a {@link Bootstrap} equivalent to the one {@code RiakCluster} creates by default, but
+   * which opens {@link InstrumentedSocketChannel}s.
+   *
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   * @return a new bootstrap
+   */
+  public static Bootstrap bootstrap(final MetricRegistry metrics, final String prefix) {
+    final ChannelFactory<NioSocketChannel> factory =
+        () -> new InstrumentedSocketChannel(metrics, prefix);
+    return new Bootstrap().group(new NioEventLoopGroup()).channelFactory(factory);
+  }
+
+  @Override
+  protected boolean doConnect(final SocketAddress remoteAddress, final SocketAddress localAddress)
+      throws Exception {
+    final boolean connected = super.doConnect(remoteAddress, localAddress);
+    if (connected) {
+      created(remoteAddress);
+    }
+    return connected;
+  }
+
+  @Override
+  protected void doFinishConnect() throws Exception {
+    super.doFinishConnect();
+    created(remoteAddress());
+  }
+
+  private void created(final SocketAddress remoteAddress) {
+    if (remoteAddress instanceof InetSocketAddress) {
+      final InetSocketAddress address = (InetSocketAddress) remoteAddress;
+      final String node =
+          InstrumentedNodeManager.nodeName(prefix, address.getHostString(), address.getPort());
+      metrics.meter(name(node, "connections", "created")).mark();
+    }
+  }
+}
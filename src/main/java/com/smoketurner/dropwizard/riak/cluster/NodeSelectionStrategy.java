@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import com.basho.riak.client.core.RiakNode;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Strategies for choosing which healthy node an operation is sent to first. If the chosen node
+ * can't accept the operation, the remaining nodes are tried in round-robin order.
+ */
+public enum NodeSelectionStrategy {
+
+  /** Rotate through the nodes, like the default {@code NodeManager}. */
+  ROUND_ROBIN {
+    @Override
+    int select(
+        final List<RiakNode> nodes, final int rotation, final Function<RiakNode, NodeStats> stats) {
+      return rotation;
+    }
+  },
+
+  /** Choose the node with the fewest operations in flight. */
+  LEAST_OUTSTANDING {
+    @Override
+    int select(
+        final List<RiakNode> nodes, final int rotation, final Function<RiakNode, NodeStats> stats) {
+      return min(nodes, rotation, node -> stats.apply(node).getOutstanding());
+    }
+  },
+
+  /** Choose the node with the lowest latency average weighted by its operations in flight. */
+  EWMA {
+    @Override
+    int select(
+        final List<RiakNode> nodes, final int rotation, final Function<RiakNode, NodeStats> stats) {
+      return min(nodes, rotation, node -> stats.apply(node).getScore());
+    }
+  },
+
+  /**
+   * Choose the better scoring of two random nodes, which avoids every client herding onto the same
+   * node between score updates.
+   */
+  POWER_OF_TWO_CHOICES {
+    @Override
+    int select(
+        final List<RiakNode> nodes, final int rotation, final Function<RiakNode, NodeStats> stats) {
+      final int size = nodes.size();
+      if (size < 2) {
+        return 0;
+      }
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      final int first = random.nextInt(size);
+      final int second = (first + 1 + random.nextInt(size - 1)) % size;
+      return stats.apply(nodes.get(first)).getScore() <= stats.apply(nodes.get(second)).getScore()
+          ? first
+          : second;
+    }
+  };
+
+  /**
+   * Choose the node to try first
+   *
+   * @param nodes Healthy nodes, never empty
+   * @param rotation Non-negative counter incremented for every operation
+   * @param stats Statistics of each node
+   * @return the index of the node to try first, which may exceed the number of nodes
+   */
+  abstract int select(List<RiakNode> nodes, int rotation, Function<RiakNode, NodeStats> stats);
+
+  private static int min(
+      final List<RiakNode> nodes, final int rotation, final ToDoubleFunction<RiakNode> score) {
+    final int size = nodes.size();
+    int best = rotation % size;
+    double bestScore = score.applyAsDouble(nodes.get(best));
+    // start at the rotation so ties are spread across nodes
+    for (int i = 1; i < size; i++) {
+      final int candidate = (rotation + i) % size;
+      final double candidateScore = score.applyAsDouble(nodes.get(candidate));
+      if (candidateScore < bestScore) {
+        best = candidate;
+        bestScore = candidateScore;
+      }
+    }
+    return best;
+  }
+}
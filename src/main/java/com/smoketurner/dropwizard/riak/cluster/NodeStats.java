@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the outstanding operations and a peak-sensitive exponentially weighted moving average of
+ * the latency of a single node, used to score nodes for selection.
+ *
+ * <p>Samples above the current average replace it immediately, so a node which starts to slow down
+ * is penalized at once, while faster samples pull the average down gradually. The average also
+ * decays while a node receives no traffic, so a node which was avoided is eventually probed again.
+ * Failed operations count as at least {@link #FAILURE_PENALTY_NANOS}, so a node which fails fast
+ * doesn't look attractive.
+ */
+public class NodeStats {
+
+  static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final AtomicInteger outstanding = new AtomicInteger();
+  private double latencyNanos = 0.0;
+  private long lastUpdate = System.nanoTime();
+
+  /** Record the start of an operation. */
+  public void start() {
+    outstanding.incrementAndGet();
+  }
+
+  /** Record an operation which never reached the node. */
+  public void cancel() {
+    outstanding.decrementAndGet();
+  }
+
+  /**
+   * Record the completion of an operation
+   *
+   * @param elapsedNanos Time taken by the operation
+   * @param success Whether the operation succeeded
+   */
+  public void complete(final long elapsedNanos, final boolean success) {
+    outstanding.decrementAndGet();
+    final long sample = success ? elapsedNanos : Math.max(elapsedNanos, FAILURE_PENALTY_NANOS);
+    final long now = System.nanoTime();
+    synchronized (this) {
+      if (sample > latencyNanos) {
+        latencyNanos = sample;
+      } else {
+        // the weight is the decay since the last update, which is applied once, here
+        final double weight = Math.exp(-Math.max(0, now - lastUpdate) / DECAY_NANOS);
+        latencyNanos = latencyNanos * weight + sample * (1.0 - weight);
+      }
+      lastUpdate = now;
+    }
+  }
+
+  /** @return the number of operations executing on the node */
+  public int getOutstanding() {
+    return Math.max(0, outstanding.get());
+  }
+
+  /** @return the moving average latency, in nanoseconds */
+  public synchronized double getLatency() {
+    return decayed(System.nanoTime());
+  }
+
+  /**
+   * @return the node's score, where lower is better: the average latency weighted by the number of
+   *     outstanding operations
+   */
+  public double getScore() {
+    return (getLatency() + 1.0) * (getOutstanding() + 1);
+  }
+
+  private double decayed(final long now) {
+    return latencyNanos * Math.exp(-Math.max(0, now - lastUpdate) / DECAY_NANOS);
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.RiakNode;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.smoketurner.dropwizard.riak.tracing.RiakSpan;
+import com.smoketurner.dropwizard.riak.tracing.RiakTracer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * Records the attempts of an operation on a {@link RiakSpan}: the node each attempt ran on, the
+ * time spent acquiring a connection from the node's pool and the time spent on the wire, from
+ * writing the request until the operation completed.
+ */
+final class OperationTrace {
+
+  private final AtomicBoolean ended = new AtomicBoolean();
+  private final RiakSpan span;
+  private int attempts = 0;
+  private long acquireNanos = 0;
+  private long sentNanos = 0;
+  private boolean sent = false;
+
+  private OperationTrace(final RiakSpan span) {
+    this.span = span;
+  }
+
+  /**
+   * Start tracing an operation
+   *
+   * @param tracer Tracer
+   * @param operation Operation
+   * @return the trace, or null if tracing is disabled or the operation is not sampled
+   */
+  @Nullable
+  static OperationTrace start(final RiakTracer tracer, final FutureOperation<?, ?, ?> operation) {
+    if (tracer == RiakTracer.NOOP) {
+      return null;
+    }
+    // the name is only built for sampled operations
+    final RiakSpan span = tracer.startSpan(() -> "riak " + operationType(operation));
+    if (span == null) {
+      return null;
+    }
+    final String type = operationType(operation);
+    span.setAttribute("db.system", "riak");
+    span.setAttribute("db.operation", type);
+
+    final Object queryInfo = operation.getQueryInfo();
+    final Namespace namespace =
+        queryInfo instanceof Location
+            ? ((Location) queryInfo).getNamespace()
+            : queryInfo instanceof Namespace ? (Namespace) queryInfo : null;
+    if (namespace != null) {
+      span.setAttribute("riak.bucket_type", namespace.getBucketTypeAsString());
+      span.setAttribute("riak.bucket", namespace.getBucketNameAsString());
+    }
+    return new OperationTrace(span);
+  }
+
+  /**
+   * Record an attempt which was written to a node
+   *
+   * @param node Node the attempt was sent to
+   * @param acquireNanos Time taken to acquire a connection and write the request
+   */
+  synchronized void attempt(final RiakNode node, final long acquireNanos) {
+    attempts++;
+    if (attempts > 1) {
+      span.addEvent("retry");
+    }
+    this.acquireNanos += acquireNanos;
+    this.sentNanos = System.nanoTime();
+    this.sent = true;
+    span.setAttribute("net.peer.name", node.getRemoteAddress());
+    span.setAttribute("net.peer.port", node.getPort());
+  }
+
+  /** Record an attempt which no node could accept, before the operation is requeued or failed */
+  synchronized void rejected() {
+    attempts++;
+    span.addEvent("rejected");
+  }
+
+  /**
+   * End the span
+   *
+   * @param cause Failure cause, or null if the operation succeeded
+   */
+  void end(@Nullable final Throwable cause) {
+    if (!ended.compareAndSet(false, true)) {
+      return;
+    }
+    synchronized (this) {
+      span.setAttribute("riak.attempts", attempts);
+      span.setAttribute("riak.pool.acquire_ns", acquireNanos);
+      if (sent) {
+        span.setAttribute("riak.wire_ns", System.nanoTime() - sentNanos);
+      }
+    }
+    if (cause != null) {
+      span.recordException(cause);
+    }
+    span.end();
+  }
+
+  static String operationType(final FutureOperation<?, ?, ?> operation) {
+    return operationType(operation.getClass());
+  }
+
+  static String operationType(final Class<?> type) {
+    final String name = type.getSimpleName();
+    return name.endsWith("Operation") ? name.substring(0, name.length() - 9) : name;
+  }
+}
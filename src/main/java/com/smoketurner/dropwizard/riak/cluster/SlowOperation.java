@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import com.basho.riak.client.core.RiakNode;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * An operation recorded by the {@link SlowOperationLog}. Only the operation's type and location are
+ * kept, rather than the operation and its response, and they are formatted when read to keep
+ * recording cheap.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class SlowOperation {
+
+  private final long timestamp;
+  private final Class<?> type;
+  @Nullable private final Object queryInfo;
+  private final RiakNode node;
+  private final long size;
+  private final long durationNanos;
+  private final int attempts;
+
+  SlowOperation(
+      final long timestamp,
+      final Class<?> type,
+      @Nullable final Object queryInfo,
+      final RiakNode node,
+      final long size,
+      final long durationNanos,
+      final int attempts) {
+    this.timestamp = timestamp;
+    this.type = type;
+    this.queryInfo = queryInfo;
+    this.node = node;
+    this.size = size;
+    this.durationNanos = durationNanos;
+    this.attempts = attempts;
+  }
+
+  /** @return when the operation completed, in milliseconds since the epoch */
+  @JsonProperty
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /** @return the operation type, such as {@code Fetch} */
+  @JsonProperty
+  public String getOperation() {
+    return OperationTrace.operationType(type);
+  }
+
+  @Nullable
+  @JsonProperty
+  public String getBucketType() {
+    final Namespace namespace = namespace();
+    return namespace != null ? namespace.getBucketTypeAsString() : null;
+  }
+
+  @Nullable
+  @JsonProperty
+  public String getBucket() {
+    final Namespace namespace = namespace();
+    return namespace != null ? namespace.getBucketNameAsString() : null;
+  }
+
+  @Nullable
+  @JsonProperty
+  public String getKey() {
+    return queryInfo instanceof Location ? ((Location) queryInfo).getKeyAsString() : null;
+  }
+
+  /** @return the {@code host:port} of the node the last attempt ran on */
+  @JsonProperty
+  public String getNode() {
+    return node.getRemoteAddress() + ":" + node.getPort();
+  }
+
+  /** @return the number of value bytes returned, or -1 if not known for the operation type */
+  @JsonProperty
+  public long getSize() {
+    return size;
+  }
+
+  /** @return the time from the first attempt until the operation completed, in nanoseconds */
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  @JsonProperty
+  public double getDurationMillis() {
+    return durationNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @JsonProperty
+  public int getAttempts() {
+    return attempts;
+  }
+
+  @Nullable
+  private Namespace namespace() {
+    if (queryInfo instanceof Location) {
+      return ((Location) queryInfo).getNamespace();
+    }
+    return queryInfo instanceof Namespace ? (Namespace) queryInfo : null;
+  }
+
+  @Override
+  public String toString() {
+    return getOperation()
+        + " "
+        + queryInfo
+        + " on "
+        + getNode()
+        + " took "
+        + getDurationMillis()
+        + "ms";
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.RiakNode;
+import com.basho.riak.client.core.operations.FetchOperation;
+import com.basho.riak.client.core.operations.StoreOperation;
+import com.basho.riak.client.core.query.RiakObject;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded log of the most recent operations which took longer than a threshold. Operations are
+ * written to a ring buffer with a single atomic increment, so recording never blocks, and
+ * operations under the threshold cost a single comparison. Once the buffer is full, the oldest
+ * entries are overwritten.
+ */
+public class SlowOperationLog {
+
+  private final AtomicReferenceArray<SlowOperation> entries;
+  private final AtomicLong next = new AtomicLong();
+  private final long thresholdNanos;
+
+  /**
+   * Constructor
+   *
+   * @param capacity Maximum number of operations kept
+   * @param thresholdNanos Minimum duration of a recorded operation, in nanoseconds
+   */
+  public SlowOperationLog(final int capacity, final long thresholdNanos) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be at least 1");
+    }
+    this.entries = new AtomicReferenceArray<>(capacity);
+    this.thresholdNanos = thresholdNanos;
+  }
+
+  /** @return the minimum duration of a recorded operation, in nanoseconds */
+  public long getThresholdNanos() {
+    return thresholdNanos;
+  }
+
+  /**
+   * Record a completed operation if it took longer than the threshold
+   *
+   * @param operation Completed operation
+   * @param node Node the last attempt ran on
+   * @param attempts Number of attempts
+   * @param durationNanos Time from the first attempt until completion, in nanoseconds
+   * @return true if the operation was recorded
+   */
+  public boolean record(
+      final FutureOperation<?, ?, ?> operation,
+      final RiakNode node,
+      final int attempts,
+      final long durationNanos) {
+    if (durationNanos < thresholdNanos) {
+      return false;
+    }
+
+    final SlowOperation entry =
+        new SlowOperation(
+            System.currentTimeMillis(),
+            operation.getClass(),
+            operation.getQueryInfo(),
+            node,
+            size(operation),
+            durationNanos,
+            attempts);
+    final int index = (int) (next.getAndIncrement() % entries.length());
+    entries.set(index, entry);
+    return true;
+  }
+
+  /** @return the recorded operations, slowest first */
+  public List<SlowOperation> getOperations() {
+    final List<SlowOperation> operations = new ArrayList<>(entries.length());
+    for (int i = 0; i < entries.length(); i++) {
+      final SlowOperation entry = entries.get(i);
+      if (entry != null) {
+        operations.add(entry);
+      }
+    }
+    operations.sort(Comparator.comparingLong(SlowOperation::getDurationNanos).reversed());
+    return operations;
+  }
+
+  /** Remove every recorded operation. */
+  public void clear() {
+    for (int i = 0; i < entries.length(); i++) {
+      entries.set(i, null);
+    }
+  }
+
+  private static long size(final FutureOperation<?, ?, ?> operation) {
+    if (!operation.isSuccess()) {
+      return -1;
+    }
+    final Object response = operation.getNow();
+    final List<RiakObject> values;
+    if (response instanceof FetchOperation.Response) {
+      values = ((FetchOperation.Response) response).getObjectList();
+    } else if (response instanceof StoreOperation.Response) {
+      values = ((StoreOperation.Response) response).getObjectList();
+    } else {
+      return -1;
+    }
+    long size = 0;
+    for (RiakObject value : values) {
+      if (value.hasValue()) {
+        size += value.getValue().length();
+      }
+    }
+    return size;
+  }
+}
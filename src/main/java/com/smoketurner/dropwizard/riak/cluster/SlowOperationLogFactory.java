@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import java.util.concurrent.TimeUnit;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class SlowOperationLogFactory {
+
+  @Min(1)
+  private int capacity = 100;
+
+  @NotNull
+  @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+  private Duration threshold = Duration.milliseconds(100);
+
+  @JsonProperty
+  public int getCapacity() {
+    return capacity;
+  }
+
+  @JsonProperty
+  public void setCapacity(final int capacity) {
+    this.capacity = capacity;
+  }
+
+  @JsonProperty
+  public Duration getThreshold() {
+    return threshold;
+  }
+
+  @JsonProperty
+  public void setThreshold(final Duration threshold) {
+    this.threshold = threshold;
+  }
+
+  public SlowOperationLog build() {
+    return new SlowOperationLog(capacity, threshold.toNanoseconds());
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMultimap;
+import io.dropwizard.servlets.tasks.Task;
+import java.io.PrintWriter;
+import java.util.Objects;
+
+/**
+ * Admin task which prints the operations recorded by a {@link SlowOperationLog} as JSON, slowest
+ * first. With a {@code clear} parameter the log is emptied after printing:
+ *
+ * <pre>
+ * curl -X POST 'http://localhost:8081/tasks/riak-slow-operations?clear=true'
+ * </pre>
+ */
+public class SlowOperationsTask extends Task {
+
+  private final SlowOperationLog log;
+  private final ObjectMapper mapper;
+
+  /**
+   * Constructor
+   *
+   * @param name Task name
+   * @param log Slow operation log
+   * @param mapper Object mapper to write the operations with
+   */
+  public SlowOperationsTask(
+      final String name, final SlowOperationLog log, final ObjectMapper mapper) {
+    super(name);
+    this.log = Objects.requireNonNull(log);
+    this.mapper = Objects.requireNonNull(mapper);
+  }
+
+  @Override
+  public void execute(final ImmutableMultimap<String, String> parameters, final PrintWriter output)
+      throws Exception {
+    output.println(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(log.getOperations()));
+    if (parameters.get("clear").contains("true")) {
+      log.clear();
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.compression;
+
+import com.basho.riak.client.api.convert.Converter;
+import com.basho.riak.client.api.convert.ConverterFactory;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.util.BinaryValue;
+import java.lang.reflect.Type;
+import java.util.Objects;
+
+/**
+ * A {@link Converter} which compresses the values produced by another converter, and decompresses
+ * values before handing them to it. Registering one with the riak client's {@link ConverterFactory}
+ * compresses every object of that type stored with {@code StoreValue} or {@code UpdateValue}.
+ *
+ * <p>The riak client's {@link ConverterFactory} is shared by the whole JVM, so a type's values are
+ * compressed whichever client stores them, and every client must use the same settings for it.
+ *
+ * <p>{@link RiakObject}s stored directly are not converted, so they can't be compressed this way;
+ * call {@link ValueCompressor#compress(RiakObject)} before storing them instead.
+ *
+ * @param <T> Domain object type
+ */
+public class CompressingConverter<T> extends Converter<T> {
+
+  private final Converter<T> delegate;
+  private final ValueCompressor compressor;
+
+  /**
+   * Constructor
+   *
+   * @param type Domain object type
+   * @param delegate Converter to compress the values of
+   * @param compressor Value compressor
+   */
+  public CompressingConverter(
+      final Type type, final Converter<T> delegate, final ValueCompressor compressor) {
+    super(Objects.requireNonNull(type));
+    this.delegate = Objects.requireNonNull(delegate);
+    this.compressor = Objects.requireNonNull(compressor);
+  }
+
+  /**
+   * Wrap the converter currently registered for a class with the riak client's {@link
+   * ConverterFactory}, which is a {@code JSONConverter} unless another has been registered
+   *
+   * @param type Domain object type
+   * @param compressor Value compressor
+   * @return the registered converter
+   * @throws IllegalArgumentException if the class is {@link RiakObject}
+   * @throws IllegalStateException if the class already has a compressing converter with a different
+   *     threshold or level
+   */
+  public static <T> CompressingConverter<T> register(
+      final Class<T> type, final ValueCompressor compressor) {
+    if (RiakObject.class.isAssignableFrom(type)) {
+      throw new IllegalArgumentException("RiakObjects are stored without conversion");
+    }
+    final ConverterFactory factory = ConverterFactory.getInstance();
+    final Converter<T> current = factory.getConverter(type);
+    if (current instanceof CompressingConverter) {
+      final CompressingConverter<T> registered = (CompressingConverter<T>) current;
+      if (registered.compressor.getThreshold() != compressor.getThreshold()
+          || registered.compressor.getLevel() != compressor.getLevel()) {
+        throw new IllegalStateException(
+            "A compressing converter with a different threshold or level is already registered for "
+                + type.getName());
+      }
+      return registered;
+    }
+    final CompressingConverter<T> converter = new CompressingConverter<>(type, current, compressor);
+    factory.registerConverterForClass(type, converter);
+    return converter;
+  }
+
+  @Override
+  public T toDomain(final RiakObject obj, final Location location) {
+    compressor.decompress(obj);
+    return delegate.toDomain(obj, location);
+  }
+
+  @Override
+  public T toDomain(final BinaryValue value, final String contentType) {
+    return delegate.toDomain(value, contentType);
+  }
+
+  @Override
+  public OrmExtracted fromDomain(
+      final T domainObject, final Namespace namespace, final BinaryValue key) {
+    final OrmExtracted extracted = delegate.fromDomain(domainObject, namespace, key);
+    compressor.compress(extracted.getRiakObject());
+    return extracted;
+  }
+
+  /** Converts the value with the delegate, without compressing it, since no object is produced */
+  @Override
+  public ContentAndType fromDomain(final T domainObject) {
+    return delegate.fromDomain(domainObject);
+  }
+}
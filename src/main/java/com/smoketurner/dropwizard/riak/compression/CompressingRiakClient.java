@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.compression;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.RiakObject;
+import com.smoketurner.dropwizard.riak.client.DelegatingRiakClient;
+import com.smoketurner.dropwizard.riak.client.SettableRiakFuture;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A {@link RiakClient} which decompresses the values returned by {@link FetchValue} and {@link
+ * StoreValue} commands before completing them, so callers reading raw {@link RiakObject}s never see
+ * compressed values. Values are compressed on write by {@link CompressingConverter}s.
+ */
+public class CompressingRiakClient extends DelegatingRiakClient {
+
+  private final ValueCompressor compressor;
+
+  /**
+   * Constructor
+   *
+   * @param delegate Riak client to execute commands with
+   * @param compressor Value compressor
+   */
+  public CompressingRiakClient(final RiakClient delegate, final ValueCompressor compressor) {
+    super(delegate);
+    this.compressor = Objects.requireNonNull(compressor);
+  }
+
+  /** @return the compressor used by this client */
+  public ValueCompressor getCompressor() {
+    return compressor;
+  }
+
+  @Override
+  public <T, S> RiakFuture<T, S> executeAsync(final RiakCommand<T, S> command) {
+    final RiakFuture<T, S> future = super.executeAsync(command);
+    if (!(command instanceof FetchValue) && !(command instanceof StoreValue)) {
+      return future;
+    }
+
+    final SettableRiakFuture<T, S> result = new SettableRiakFuture<>(null);
+    future.addListener(
+        f -> {
+          if (f.isSuccess()) {
+            try {
+              values(f.getNow()).forEach(compressor::decompress);
+            } catch (RuntimeException e) {
+              result.setException(e);
+              return;
+            }
+          }
+          result.setFrom(f);
+        });
+    return result;
+  }
+
+  private static List<RiakObject> values(final Object response) {
+    if (response instanceof FetchValue.Response) {
+      return ((FetchValue.Response) response).getValues();
+    }
+    if (response instanceof StoreValue.Response) {
+      return ((StoreValue.Response) response).getValues();
+    }
+    return Collections.emptyList();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.compression;
+
+import com.basho.riak.client.api.RiakClient;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Size;
+import io.dropwizard.validation.MinSize;
+import java.util.Collections;
+import java.util.List;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class CompressionFactory {
+
+  @NotNull
+  @MinSize(0)
+  private Size threshold = Size.kilobytes(1);
+
+  @Min(1)
+  @Max(9)
+  private int level = 6;
+
+  @NotNull private List<Class<?>> types = Collections.emptyList();
+
+  @JsonProperty
+  public Size getThreshold() {
+    return threshold;
+  }
+
+  @JsonProperty
+  public void setThreshold(final Size threshold) {
+    this.threshold = threshold;
+  }
+
+  @JsonProperty
+  public int getLevel() {
+    return level;
+  }
+
+  @JsonProperty
+  public void setLevel(final int level) {
+    this.level = level;
+  }
+
+  @JsonProperty
+  public List<Class<?>> getTypes() {
+    return types;
+  }
+
+  @JsonProperty
+  public void setTypes(final List<Class<?>> types) {
+    this.types = types;
+  }
+
+  /**
+   * Wrap a client so values it reads are decompressed, and register {@link CompressingConverter}s
+   * for the configured {@code types} so their values are compressed when stored
+   *
+   * @param client Riak client to wrap
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   * @return the decompressing client
+   */
+  public CompressingRiakClient build(
+      final RiakClient client, final MetricRegistry metrics, final String prefix) {
+    final ValueCompressor compressor =
+        new ValueCompressor(
+            (int) Math.min(threshold.toBytes(), Integer.MAX_VALUE), level, metrics, prefix);
+    for (Class<?> type : types) {
+      CompressingConverter.register(type, compressor);
+    }
+    return new CompressingRiakClient(client, compressor);
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.compression;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.api.convert.ConversionException;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses the values of {@link RiakObject}s with gzip. Compressed objects are marked with a
+ * {@code content-encoding} user metadata entry, stored by Riak as {@code
+ * X-Riak-Meta-content-encoding}, so objects without it, including every object written before
+ * compression was enabled, are read unchanged.
+ *
+ * <p>Metrics are named {@code <prefix>.compression.compress} and {@code decompress} (timers),
+ * {@code ratio} (a histogram of compressed size as a percentage of the original), {@code
+ * bytes-saved} (a counter) and {@code skipped} (a meter of values too small or incompressible to be
+ * stored compressed).
+ */
+public class ValueCompressor {
+
+  public static final String CONTENT_ENCODING = "content-encoding";
+  public static final String GZIP = "gzip";
+
+  private final int threshold;
+  private final int level;
+  private final Timer compress;
+  private final Timer decompress;
+  private final Histogram ratio;
+  private final Counter bytesSaved;
+  private final Meter skipped;
+
+  /**
+   * Constructor
+   *
+   * @param threshold Minimum size, in bytes, of values to compress
+   * @param level Deflate compression level, from 1 (fastest) to 9 (smallest)
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public ValueCompressor(
+      final int threshold, final int level, final MetricRegistry metrics, final String prefix) {
+    if (level < 1 || level > 9) {
+      throw new IllegalArgumentException("level must be between 1 and 9");
+    }
+    this.threshold = threshold;
+    this.level = level;
+
+    final String name = name(prefix, "compression");
+    this.compress = metrics.timer(name(name, "compress"));
+    this.decompress = metrics.timer(name(name, "decompress"));
+    this.ratio = metrics.histogram(name(name, "ratio"));
+    this.bytesSaved = metrics.counter(name(name, "bytes-saved"));
+    this.skipped = metrics.meter(name(name, "skipped"));
+  }
+
+  /** @return the minimum size, in bytes, of values to compress */
+  public int getThreshold() {
+    return threshold;
+  }
+
+  /** @return the deflate compression level */
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * Return whether an object's value is stored compressed
+   *
+   * @param object Riak object
+   * @return true if the value is compressed
+   */
+  public static boolean isCompressed(final RiakObject object) {
+    return object.hasUserMeta() && GZIP.equals(object.getUserMeta().get(CONTENT_ENCODING));
+  }
+
+  /**
+   * Compress an object's value in place, if it is at least the threshold size and compressing it
+   * makes it smaller
+   *
+   * @param object Riak object to compress
+   * @return true if the value was compressed
+   */
+  public boolean compress(final RiakObject object) {
+    if (!object.hasValue() || isCompressed(object) || object.getValue().length() < threshold) {
+      skipped.mark();
+      return false;
+    }
+
+    final BinaryValue value = object.getValue();
+    final byte[] compressed;
+    try (Timer.Context ignored = compress.time()) {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream(value.length() / 4);
+      try (GZIPOutputStream gzip = new LeveledGZIPOutputStream(output, level)) {
+        gzip.write(value.unsafeGetValue(), 0, value.length());
+      }
+      compressed = output.toByteArray();
+    } catch (IOException e) {
+      throw new ConversionException(e);
+    }
+
+    if (compressed.length >= value.length()) {
+      skipped.mark();
+      return false;
+    }
+    ratio.update(compressed.length * 100L / value.length());
+    bytesSaved.inc(value.length() - compressed.length);
+    object.setValue(BinaryValue.unsafeCreate(compressed));
+    object.getUserMeta().put(CONTENT_ENCODING, GZIP);
+    return true;
+  }
+
+  /**
+   * Decompress an object's value in place, if it is marked as compressed
+   *
+   * @param object Riak object to decompress
+   * @return true if the value was decompressed
+   * @throws ConversionException if the value is not valid gzip data
+   */
+  public boolean decompress(final RiakObject object) {
+    if (!isCompressed(object)) {
+      return false;
+    }
+    try (Timer.Context ignored = decompress.time();
+        InputStream input =
+            new GZIPInputStream(new ByteArrayInputStream(object.getValue().unsafeGetValue()))) {
+      object.setValue(BinaryValue.unsafeCreate(ByteStreams.toByteArray(input)));
+    } catch (IOException e) {
+      throw new ConversionException(e);
+    }
+    object.getUserMeta().remove(CONTENT_ENCODING);
+    return true;
+  }
+
+  private static final class LeveledGZIPOutputStream extends GZIPOutputStream {
+    private LeveledGZIPOutputStream(final ByteArrayOutputStream output, final int level)
+        throws IOException {
+      super(output);
+      def.setLevel(level);
+    }
+  }
+}
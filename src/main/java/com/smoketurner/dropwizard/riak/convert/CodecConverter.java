@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.convert;
+
+import com.basho.riak.client.api.convert.ConversionException;
+import com.basho.riak.client.api.convert.Converter;
+import com.basho.riak.client.api.convert.ConverterFactory;
+import com.basho.riak.client.core.util.BinaryValue;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Objects;
+
+/**
+ * A {@link Converter} which encodes and decodes domain objects with a {@link RiakCodec}. Values are
+ * decoded straight from the bytes received from the cluster, and encoded into a reused per-thread
+ * buffer, so the only array allocated when storing an object is the one handed to the client.
+ *
+ * <p>Converters are registered with the riak client's {@link ConverterFactory}, after which {@code
+ * FetchValue.Response#getValue(Class)} and {@code StoreValue.Builder#withValue(Object)} use them:
+ *
+ * <pre>
+ * CodecConverter.register(User.class, JacksonCodec.json(environment.getObjectMapper(), User.class));
+ * </pre>
+ *
+ * @param <T> Domain object type
+ */
+public class CodecConverter<T> extends Converter<T> {
+
+  private final RiakCodec<T> codec;
+
+  /**
+   * Constructor
+   *
+   * @param type Domain object type
+   * @param codec Codec to encode and decode with
+   */
+  public CodecConverter(final Type type, final RiakCodec<T> codec) {
+    super(Objects.requireNonNull(type));
+    this.codec = Objects.requireNonNull(codec);
+  }
+
+  /**
+   * Register a codec as the converter for a class with the riak client's {@link ConverterFactory}
+   *
+   * @param type Domain object type
+   * @param codec Codec to encode and decode with
+   * @return the registered converter
+   */
+  public static <T> CodecConverter<T> register(final Class<T> type, final RiakCodec<T> codec) {
+    final CodecConverter<T> converter = new CodecConverter<>(type, codec);
+    ConverterFactory.getInstance().registerConverterForClass(type, converter);
+    return converter;
+  }
+
+  /** @return the codec used by this converter */
+  public RiakCodec<T> getCodec() {
+    return codec;
+  }
+
+  @Override
+  public T toDomain(final BinaryValue value, final String contentType) {
+    try {
+      return codec.decode(value.unsafeGetValue(), 0, value.length());
+    } catch (IOException e) {
+      throw new ConversionException(e);
+    }
+  }
+
+  @Override
+  public ContentAndType fromDomain(final T domainObject) {
+    final PooledBuffer buffer = PooledBuffer.acquire();
+    try {
+      codec.encode(domainObject, buffer);
+      return new ContentAndType(buffer.toBinaryValue(), codec.getContentType());
+    } catch (IOException e) {
+      throw new ConversionException(e);
+    } finally {
+      buffer.release();
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.convert;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * A {@link RiakCodec} which binds objects with Jackson. The reader and writer are resolved once,
+ * and any binary format with a Jackson {@code JsonFactory}, such as Smile or CBOR, can be used by
+ * passing a mapper built with that factory:
+ *
+ * <pre>
+ * new JacksonCodec&lt;&gt;(new ObjectMapper(new SmileFactory()), User.class, "application/x-jackson-smile");
+ * </pre>
+ *
+ * @param <T> Domain object type
+ */
+public class JacksonCodec<T> implements RiakCodec<T> {
+
+  public static final String JSON = "application/json";
+
+  private final ObjectReader reader;
+  private final ObjectWriter writer;
+  private final String contentType;
+
+  /**
+   * Constructor
+   *
+   * @param mapper Object mapper to bind with
+   * @param type Domain object type
+   * @param contentType Content type stored with encoded values
+   */
+  public JacksonCodec(final ObjectMapper mapper, final JavaType type, final String contentType) {
+    this.reader = mapper.readerFor(type);
+    this.writer = mapper.writerFor(type);
+    this.contentType = Objects.requireNonNull(contentType);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param mapper Object mapper to bind with
+   * @param type Domain object type
+   * @param contentType Content type stored with encoded values
+   */
+  public JacksonCodec(final ObjectMapper mapper, final Class<T> type, final String contentType) {
+    this(mapper, mapper.constructType(type), contentType);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param mapper Object mapper to bind with
+   * @param type Domain object type
+   * @param contentType Content type stored with encoded values
+   */
+  public JacksonCodec(
+      final ObjectMapper mapper, final TypeReference<T> type, final String contentType) {
+    this(mapper, mapper.getTypeFactory().constructType(type), contentType);
+  }
+
+  /**
+   * Create a codec which stores objects as JSON
+   *
+   * @param mapper Object mapper to bind with, such as {@code Environment#getObjectMapper()}
+   * @param type Domain object type
+   * @return a new JSON codec
+   */
+  public static <T> JacksonCodec<T> json(final ObjectMapper mapper, final Class<T> type) {
+    return new JacksonCodec<>(mapper, type, JSON);
+  }
+
+  @Override
+  public String getContentType() {
+    return contentType;
+  }
+
+  @Override
+  public void encode(final T value, final OutputStream output) throws IOException {
+    writer.writeValue(output, value);
+  }
+
+  @Override
+  public T decode(final byte[] data, final int offset, final int length) throws IOException {
+    return reader.readValue(data, offset, length);
+  }
+}
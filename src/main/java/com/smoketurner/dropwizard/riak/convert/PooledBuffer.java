@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.convert;
+
+import com.basho.riak.client.core.util.BinaryValue;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * A per-thread, growable, output buffer which is reused between encodes, so encoding an object
+ * allocates only the final, exactly sized, array. Buffers which grow beyond {@link #MAX_RETAINED}
+ * bytes are released after use rather than held by the thread.
+ */
+final class PooledBuffer extends ByteArrayOutputStream {
+
+  static final int INITIAL_SIZE = 4096;
+  static final int MAX_RETAINED = 1024 * 1024;
+
+  private static final ThreadLocal<PooledBuffer> BUFFERS =
+      ThreadLocal.withInitial(PooledBuffer::new);
+
+  private boolean inUse = false;
+
+  private PooledBuffer() {
+    super(INITIAL_SIZE);
+  }
+
+  /**
+   * Take the calling thread's buffer, or a new buffer if a codec is already encoding into it on
+   * this thread
+   *
+   * @return an empty buffer
+   */
+  static PooledBuffer acquire() {
+    final PooledBuffer buffer = BUFFERS.get();
+    if (buffer.inUse) {
+      return new PooledBuffer();
+    }
+    buffer.inUse = true;
+    return buffer;
+  }
+
+  /** Return the buffer to the calling thread, once its contents have been copied out */
+  void release() {
+    reset();
+    if (inUse) {
+      inUse = false;
+      if (buf.length > MAX_RETAINED) {
+        BUFFERS.remove();
+      }
+    }
+  }
+
+  /** @return a copy of the contents, wrapped without a further copy */
+  BinaryValue toBinaryValue() {
+    return BinaryValue.unsafeCreate(Arrays.copyOf(buf, count));
+  }
+
+  /** @return the capacity of the buffer */
+  int capacity() {
+    return buf.length;
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.convert;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Serializes domain objects to and from the bytes stored in Riak. Codecs read straight from the
+ * bytes received from the cluster and write into a reused buffer, so no intermediate copies are
+ * made.
+ *
+ * @param <T> Domain object type
+ */
+public interface RiakCodec<T> {
+
+  /** @return the content type stored with encoded values */
+  String getContentType();
+
+  /**
+   * Write an object's encoded form
+   *
+   * @param value Object to encode
+   * @param output Stream to write to
+   * @throws IOException if unable to encode the object
+   */
+  void encode(T value, OutputStream output) throws IOException;
+
+  /**
+   * Read an object from its encoded form. The array must not be modified or retained.
+   *
+   * @param data Array holding the encoded object
+   * @param offset Offset of the encoded object
+   * @param length Length of the encoded object
+   * @return the decoded object
+   * @throws IOException if unable to decode the object
+   */
+  T decode(byte[] data, int offset, int length) throws IOException;
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.discovery;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.core.RiakCluster;
+import com.basho.riak.client.core.RiakNode;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.smoketurner.dropwizard.riak.cluster.InstrumentedNodeManager;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adds and removes nodes on a running {@link RiakCluster} to match a {@link NodeDiscovery} source,
+ * which is re-read on a fixed interval, or an explicit list of nodes.
+ *
+ * <p>New nodes open their minimum connections as they start, before the node manager routes any
+ * operations to them. Removed nodes stop receiving new operations and are only shut down once their
+ * in-flight operations have completed, or the drain timeout expires.
+ *
+ * <p>Nodes are matched by their resolved address, so a node configured by hostname is the same node
+ * as one discovered by IP address.
+ */
+public class ClusterMembership implements Managed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClusterMembership.class);
+
+  private final RiakCluster cluster;
+  private final InstrumentedNodeManager nodeManager;
+  private final NodeDiscovery discovery;
+  private final Function<HostAndPort, RiakNode> nodeBuilder;
+  private final Duration refreshInterval;
+  private final Duration drainTimeout;
+  private final Counter added;
+  private final Counter removed;
+  private final Counter errors;
+  @Nullable private ScheduledExecutorService scheduler;
+
+  /**
+   * Constructor
+   *
+   * @param cluster Cluster to update
+   * @param nodeManager Node manager of the cluster
+   * @param discovery Node discovery source
+   * @param nodeBuilder Builds a node for an address
+   * @param refreshInterval Time between reads of the discovery source
+   * @param drainTimeout Maximum time to wait for operations on a removed node to complete
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public ClusterMembership(
+      final RiakCluster cluster,
+      final InstrumentedNodeManager nodeManager,
+      final NodeDiscovery discovery,
+      final Function<HostAndPort, RiakNode> nodeBuilder,
+      final Duration refreshInterval,
+      final Duration drainTimeout,
+      final MetricRegistry metrics,
+      final String prefix) {
+    this.cluster = Objects.requireNonNull(cluster);
+    this.nodeManager = Objects.requireNonNull(nodeManager);
+    this.discovery = Objects.requireNonNull(discovery);
+    this.nodeBuilder = Objects.requireNonNull(nodeBuilder);
+    this.refreshInterval = Objects.requireNonNull(refreshInterval);
+    this.drainTimeout = Objects.requireNonNull(drainTimeout);
+
+    final String name = name(prefix, "membership");
+    this.added = metrics.counter(name(name, "added"));
+    this.removed = metrics.counter(name(name, "removed"));
+    this.errors = metrics.counter(name(name, "errors"));
+    metrics.gauge(name(name, "nodes"), () -> () -> cluster.getNodes().size());
+  }
+
+  @Override
+  public void start() throws Exception {
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("riak-membership-%d").setDaemon(true).build());
+    scheduler.scheduleWithFixedDelay(
+        this::safeRefresh,
+        refreshInterval.toMilliseconds(),
+        refreshInterval.toMilliseconds(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() throws Exception {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * Read the discovery source and update the cluster to match it
+   *
+   * @return a description of the nodes which were added and removed
+   * @throws Exception if the discovery source could not be read
+   */
+  public String refresh() throws Exception {
+    return update(discovery.discover());
+  }
+
+  /**
+   * Update the cluster to contain exactly the given nodes. An empty list is ignored rather than
+   * removing every node.
+   *
+   * @param addresses Node addresses, which may omit the port to use the default
+   * @return a description of the nodes which were added and removed
+   */
+  public synchronized String update(final Collection<HostAndPort> addresses) {
+    final Map<HostAndPort, HostAndPort> wanted = new LinkedHashMap<>();
+    for (HostAndPort address : addresses) {
+      final HostAndPort withPort =
+          HostAndPort.fromParts(
+              address.getHost(), address.getPortOrDefault(RiakNode.Builder.DEFAULT_REMOTE_PORT));
+      wanted.putIfAbsent(key(withPort), withPort);
+    }
+    if (wanted.isEmpty()) {
+      LOGGER.warn("Node discovery returned no nodes, keeping the current nodes");
+      return "No nodes discovered, keeping the current nodes";
+    }
+
+    final Map<HostAndPort, RiakNode> current = new LinkedHashMap<>();
+    for (RiakNode node : cluster.getNodes()) {
+      current.put(key(HostAndPort.fromParts(node.getRemoteAddress(), node.getPort())), node);
+    }
+
+    final List<HostAndPort> addedNodes = new ArrayList<>();
+    for (Map.Entry<HostAndPort, HostAndPort> entry : wanted.entrySet()) {
+      if (!current.containsKey(entry.getKey()) && add(entry.getValue())) {
+        addedNodes.add(entry.getValue());
+      }
+    }
+
+    final List<HostAndPort> removedNodes = new ArrayList<>();
+    for (Map.Entry<HostAndPort, RiakNode> entry : current.entrySet()) {
+      if (!wanted.containsKey(entry.getKey())) {
+        final RiakNode node = entry.getValue();
+        remove(node);
+        removedNodes.add(HostAndPort.fromParts(node.getRemoteAddress(), node.getPort()));
+      }
+    }
+
+    if (addedNodes.isEmpty() && removedNodes.isEmpty()) {
+      return "No changes";
+    }
+    final String changes = "Added " + addedNodes + ", removed " + removedNodes;
+    LOGGER.info("Riak cluster membership changed; {}", changes);
+    return changes;
+  }
+
+  /**
+   * Key a node by the address its host resolves to, or by its host if it can't be resolved
+   *
+   * @param address Node address
+   * @return the resolved address and port of the node
+   */
+  private static HostAndPort key(final HostAndPort address) {
+    try {
+      return HostAndPort.fromParts(
+          InetAddress.getByName(address.getHost()).getHostAddress(), address.getPort());
+    } catch (UnknownHostException e) {
+      return address;
+    }
+  }
+
+  private boolean add(final HostAndPort address) {
+    try {
+      // starting the node opens its minimum connections before it is handed to the node manager
+      cluster.addNode(nodeBuilder.apply(address));
+      added.inc();
+      return true;
+    } catch (Exception e) {
+      errors.inc();
+      LOGGER.error("Unable to add Riak node {}", address, e);
+      return false;
+    }
+  }
+
+  private void remove(final RiakNode node) {
+    final int abandoned =
+        nodeManager.drainNode(node, drainTimeout.getQuantity(), drainTimeout.getUnit());
+    if (abandoned > 0) {
+      LOGGER.warn(
+          "Removing Riak node {}:{} with {} operations in flight",
+          node.getRemoteAddress(),
+          node.getPort(),
+          abandoned);
+    }
+    cluster.removeNode(node);
+    removed.inc();
+  }
+
+  private void safeRefresh() {
+    try {
+      refresh();
+    } catch (Exception e) {
+      errors.inc();
+      LOGGER.warn("Unable to refresh Riak cluster membership", e);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.discovery;
+
+import com.basho.riak.client.core.RiakNode;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.net.HostAndPort;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.naming.Context;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import org.hibernate.validator.constraints.NotEmpty;
+
+/**
+ * Resolves nodes from DNS, either every address record of a name, all using the same port, or the
+ * targets and ports of its SRV records. Address records are resolved through {@link InetAddress},
+ * so they are subject to the JVM's {@code networkaddress.cache.ttl}.
+ */
+public class DnsNodeDiscovery implements NodeDiscovery {
+
+  @NotEmpty private String name = "";
+
+  @Min(1)
+  @Max(65535)
+  private int port = RiakNode.Builder.DEFAULT_REMOTE_PORT;
+
+  private boolean srv = false;
+
+  @JsonProperty
+  public String getName() {
+    return name;
+  }
+
+  @JsonProperty
+  public void setName(final String name) {
+    this.name = name;
+  }
+
+  @JsonProperty
+  public int getPort() {
+    return port;
+  }
+
+  @JsonProperty
+  public void setPort(final int port) {
+    this.port = port;
+  }
+
+  @JsonProperty
+  public boolean isSrv() {
+    return srv;
+  }
+
+  @JsonProperty
+  public void setSrv(final boolean srv) {
+    this.srv = srv;
+  }
+
+  @Override
+  public List<HostAndPort> discover() throws Exception {
+    if (srv) {
+      return resolveSrv();
+    }
+    return Arrays.stream(InetAddress.getAllByName(name))
+        .map(address -> HostAndPort.fromParts(address.getHostAddress(), port))
+        .distinct()
+        .collect(Collectors.toList());
+  }
+
+  private List<HostAndPort> resolveSrv() throws NamingException {
+    final Hashtable<String, String> env = new Hashtable<>();
+    env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.dns.DnsContextFactory");
+    final DirContext context = new InitialDirContext(env);
+    try {
+      final Attribute records = context.getAttributes(name, new String[] {"SRV"}).get("SRV");
+      final List<HostAndPort> nodes = new ArrayList<>();
+      if (records == null) {
+        return nodes;
+      }
+      final NamingEnumeration<?> values = records.getAll();
+      while (values.hasMore()) {
+        nodes.add(parseSrv(String.valueOf(values.next())));
+      }
+      return nodes;
+    } finally {
+      context.close();
+    }
+  }
+
+  /**
+   * Parse the text of an SRV record, {@code priority weight port target}
+   *
+   * @param record SRV record
+   * @return the target and port
+   */
+  static HostAndPort parseSrv(final String record) {
+    final String[] parts = record.trim().split("\\s+");
+    if (parts.length != 4) {
+      throw new IllegalArgumentException("Invalid SRV record: " + record);
+    }
+    String target = parts[3];
+    if (target.endsWith(".")) {
+      target = target.substring(0, target.length() - 1);
+    }
+    return HostAndPort.fromParts(target, Integer.parseInt(parts[2]));
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.discovery;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.net.HostAndPort;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.hibernate.validator.constraints.NotEmpty;
+
+/**
+ * Reads nodes from a file containing one {@code host[:port]} per line. Blank lines and lines
+ * starting with {@code #} are ignored.
+ */
+public class FileNodeDiscovery implements NodeDiscovery {
+
+  @NotEmpty private String path = "";
+
+  @JsonProperty
+  public String getPath() {
+    return path;
+  }
+
+  @JsonProperty
+  public void setPath(final String path) {
+    this.path = path;
+  }
+
+  @Override
+  public List<HostAndPort> discover() throws IOException {
+    return Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8).stream()
+        .map(String::trim)
+        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+        .map(HostAndPort::fromString)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.discovery;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.core.RiakNode;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.net.HostAndPort;
+import com.smoketurner.dropwizard.riak.cluster.InstrumentedNodeManager;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+public class MembershipFactory {
+
+  @Valid @Nullable private NodeDiscovery discovery;
+
+  @NotNull
+  @MinDuration(value = 1, unit = TimeUnit.SECONDS)
+  private Duration refreshInterval = Duration.seconds(30);
+
+  @Nullable
+  @JsonProperty
+  public NodeDiscovery getDiscovery() {
+    return discovery;
+  }
+
+  @JsonProperty
+  public void setDiscovery(@Nullable final NodeDiscovery discovery) {
+    this.discovery = discovery;
+  }
+
+  @JsonProperty
+  public Duration getRefreshInterval() {
+    return refreshInterval;
+  }
+
+  @JsonProperty
+  public void setRefreshInterval(final Duration interval) {
+    this.refreshInterval = interval;
+  }
+
+  /**
+   * Build a service which keeps the nodes of a client's cluster in line with the discovered nodes
+   *
+   * @param client Riak client
+   * @param nodeManager Node manager of the client's cluster
+   * @param nodeBuilder Builds a node for an address
+   * @param defaults Nodes used when no discovery source is configured
+   * @param drainTimeout Maximum time to wait for operations on a removed node to complete
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   * @return the membership service, which must be started to refresh periodically
+   */
+  public ClusterMembership build(
+      final RiakClient client,
+      final InstrumentedNodeManager nodeManager,
+      final Function<HostAndPort, RiakNode> nodeBuilder,
+      final NodeDiscovery defaults,
+      final Duration drainTimeout,
+      final MetricRegistry metrics,
+      final String prefix) {
+    return new ClusterMembership(
+        client.getRiakCluster(),
+        nodeManager,
+        discovery != null ? discovery : defaults,
+        nodeBuilder,
+        refreshInterval,
+        drainTimeout,
+        metrics,
+        prefix);
+  }
+}
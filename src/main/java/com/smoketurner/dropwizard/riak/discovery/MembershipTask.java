@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.discovery;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.net.HostAndPort;
+import io.dropwizard.servlets.tasks.Task;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Admin task which changes the cluster's nodes. Without parameters the discovery source is re-read
+ * immediately, otherwise the cluster is updated to the nodes given by the {@code node} parameters:
+ *
+ * <pre>
+ * curl -X POST 'http://localhost:8081/tasks/riak-membership?node=riak1:8087&amp;node=riak2:8087'
+ * </pre>
+ */
+public class MembershipTask extends Task {
+
+  private final ClusterMembership membership;
+
+  /**
+   * Constructor
+   *
+   * @param membership Cluster membership to update
+   */
+  public MembershipTask(final ClusterMembership membership) {
+    this("riak-membership", membership);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param name Task name
+   * @param membership Cluster membership to update
+   */
+  public MembershipTask(final String name, final ClusterMembership membership) {
+    super(name);
+    this.membership = Objects.requireNonNull(membership);
+  }
+
+  @Override
+  public void execute(final ImmutableMultimap<String, String> parameters, final PrintWriter output)
+      throws Exception {
+    final Collection<String> nodes = parameters.get("node");
+    if (nodes.isEmpty()) {
+      output.println(membership.refresh());
+      return;
+    }
+    final List<HostAndPort> addresses =
+        nodes.stream().map(HostAndPort::fromString).collect(Collectors.toList());
+    output.println(membership.update(addresses));
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.discovery;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.google.common.net.HostAndPort;
+import java.util.List;
+
+/** A source of the addresses of the nodes in a Riak cluster. */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+  @JsonSubTypes.Type(value = StaticNodeDiscovery.class, name = "static"),
+  @JsonSubTypes.Type(value = FileNodeDiscovery.class, name = "file"),
+  @JsonSubTypes.Type(value = DnsNodeDiscovery.class, name = "dns")
+})
+public interface NodeDiscovery {
+
+  /**
+   * Return the current nodes of the cluster
+   *
+   * @return the node addresses, which may omit the port to use the default
+   * @throws Exception if the nodes could not be discovered
+   */
+  List<HostAndPort> discover() throws Exception;
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.discovery;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.net.HostAndPort;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Returns a fixed list of nodes. With an empty list, the {@code nodes} configured on the factory
+ * are used, so membership only changes through the admin task.
+ */
+public class StaticNodeDiscovery implements NodeDiscovery {
+
+  private List<HostAndPort> nodes = Collections.emptyList();
+
+  @JsonProperty
+  public List<HostAndPort> getNodes() {
+    return nodes;
+  }
+
+  @JsonProperty
+  public void setNodes(final List<HostAndPort> nodes) {
+    this.nodes = nodes;
+  }
+
+  @Override
+  public List<HostAndPort> discover() {
+    return nodes;
+  }
+}
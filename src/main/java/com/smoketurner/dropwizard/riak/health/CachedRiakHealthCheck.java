@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.health;
+
+import com.codahale.metrics.health.HealthCheck;
+import io.dropwizard.util.Duration;
+import java.util.Objects;
+
+/**
+ * Reports the last result of a {@link RiakHealthProbe}, so checking health never blocks or sends
+ * anything to the cluster.
+ */
+public class CachedRiakHealthCheck extends HealthCheck {
+
+  private final RiakHealthProbe probe;
+  private final int minHealthyNodes;
+  private final Duration maxAge;
+
+  /**
+   * Constructor
+   *
+   * @param probe Health probe
+   * @param minHealthyNodes Minimum number of nodes which must respond to be healthy
+   * @param maxAge Age after which a probe result is considered stale
+   */
+  public CachedRiakHealthCheck(
+      final RiakHealthProbe probe, final int minHealthyNodes, final Duration maxAge) {
+    this.probe = Objects.requireNonNull(probe);
+    this.minHealthyNodes = minHealthyNodes;
+    this.maxAge = Objects.requireNonNull(maxAge);
+  }
+
+  @Override
+  protected Result check() throws Exception {
+    final RiakHealthProbe.Result result = probe.getResult();
+    if (result == null) {
+      return Result.unhealthy("Riak has not been probed yet");
+    }
+
+    final ResultBuilder builder = Result.builder();
+    result.getNodes().forEach((node, status) -> builder.withDetail(node, status.toString()));
+
+    final long age = System.nanoTime() - result.getTimestamp();
+    if (age > maxAge.toNanoseconds()) {
+      return builder
+          .unhealthy()
+          .withMessage("Riak was last probed %dms ago", age / 1_000_000)
+          .build();
+    }
+
+    final int healthy = result.getHealthyNodes();
+    if (healthy < minHealthyNodes) {
+      return builder
+          .unhealthy()
+          .withMessage("%d of %d Riak nodes are up", healthy, result.getNodes().size())
+          .build();
+    }
+    return builder
+        .healthy()
+        .withMessage("%d of %d Riak nodes are up", healthy, result.getNodes().size())
+        .build();
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.health;
+
+import com.basho.riak.client.api.RiakClient;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import java.util.concurrent.TimeUnit;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class HealthProbeFactory {
+
+  @NotNull
+  @MinDuration(value = 100, unit = TimeUnit.MILLISECONDS)
+  private Duration interval = Duration.seconds(5);
+
+  @NotNull
+  @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+  private Duration timeout = Duration.seconds(1);
+
+  @Min(1)
+  private int minHealthyNodes = 1;
+
+  @JsonProperty
+  public Duration getInterval() {
+    return interval;
+  }
+
+  @JsonProperty
+  public void setInterval(final Duration interval) {
+    this.interval = interval;
+  }
+
+  @JsonProperty
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  @JsonProperty
+  public void setTimeout(final Duration timeout) {
+    this.timeout = timeout;
+  }
+
+  @JsonProperty
+  public int getMinHealthyNodes() {
+    return minHealthyNodes;
+  }
+
+  @JsonProperty
+  public void setMinHealthyNodes(final int nodes) {
+    this.minHealthyNodes = nodes;
+  }
+
+  /**
+   * Build a probe which pings every node of a client's cluster in the background
+   *
+   * @param client Riak client
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   * @return the health probe, which must be started
+   */
+  public RiakHealthProbe build(
+      final RiakClient client, final MetricRegistry metrics, final String prefix) {
+    return new RiakHealthProbe(client, interval, timeout, metrics, prefix);
+  }
+
+  /**
+   * Build a health check which reports the result of a probe
+   *
+   * @param probe Health probe
+   * @return the health check
+   */
+  public CachedRiakHealthCheck buildHealthCheck(final RiakHealthProbe probe) {
+    // a result which missed a couple of rounds is no longer trusted
+    final Duration maxAge =
+        Duration.milliseconds(3 * interval.toMilliseconds() + timeout.toMilliseconds());
+    return new CachedRiakHealthCheck(probe, minHealthyNodes, maxAge);
+  }
+}
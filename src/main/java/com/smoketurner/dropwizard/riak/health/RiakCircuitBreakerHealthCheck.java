@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.health;
+
+import com.codahale.metrics.health.HealthCheck;
+import com.smoketurner.dropwizard.riak.cluster.CircuitBreaker;
+import com.smoketurner.dropwizard.riak.cluster.InstrumentedNodeManager;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/** Reports the Riak nodes whose circuit breaker is open. */
+public class RiakCircuitBreakerHealthCheck extends HealthCheck {
+
+  private final InstrumentedNodeManager nodeManager;
+
+  /**
+   * Constructor
+   *
+   * @param nodeManager Node manager holding the circuit breakers
+   */
+  public RiakCircuitBreakerHealthCheck(final InstrumentedNodeManager nodeManager) {
+    this.nodeManager = Objects.requireNonNull(nodeManager);
+  }
+
+  @Override
+  protected Result check() throws Exception {
+    final Map<String, CircuitBreaker.State> states = nodeManager.getCircuitBreakerStates();
+    final List<String> open =
+        states.entrySet().stream()
+            .filter(entry -> entry.getValue() == CircuitBreaker.State.OPEN)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+
+    final ResultBuilder builder = Result.builder();
+    states.forEach((node, state) -> builder.withDetail(node, state.name()));
+    if (open.isEmpty()) {
+      return builder.healthy().build();
+    }
+    return builder
+        .unhealthy()
+        .withMessage("Circuit breaker open for %s", String.join(", ", open))
+        .build();
+  }
+}
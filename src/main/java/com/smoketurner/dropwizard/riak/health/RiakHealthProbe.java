@@ -0,0 +1,253 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.health;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.core.RiakNode;
+import com.basho.riak.client.core.operations.PingOperation;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.smoketurner.dropwizard.riak.cluster.InstrumentedNodeManager;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pings every node of the cluster in parallel on a fixed interval, so health checks can report the
+ * last result without blocking or adding load. Round trip times are recorded by a {@code ping}
+ * timer for each node.
+ */
+public class RiakHealthProbe implements Managed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RiakHealthProbe.class);
+
+  private final RiakClient client;
+  private final Duration interval;
+  private final Duration timeout;
+  private final MetricRegistry metrics;
+  private final String prefix;
+  @Nullable private ScheduledExecutorService scheduler;
+  @Nullable private volatile Result result;
+
+  /**
+   * Constructor
+   *
+   * @param client Riak client
+   * @param interval Time between probes
+   * @param timeout Ping timeout
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public RiakHealthProbe(
+      final RiakClient client,
+      final Duration interval,
+      final Duration timeout,
+      final MetricRegistry metrics,
+      final String prefix) {
+    this.client = Objects.requireNonNull(client);
+    this.interval = Objects.requireNonNull(interval);
+    this.timeout = Objects.requireNonNull(timeout);
+    this.metrics = Objects.requireNonNull(metrics);
+    this.prefix = Objects.requireNonNull(prefix);
+  }
+
+  @Override
+  public void start() throws Exception {
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("riak-health-probe-%d")
+                .setDaemon(true)
+                .build());
+    scheduler.scheduleWithFixedDelay(
+        this::safeProbe, 0, interval.toMilliseconds(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() throws Exception {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * Return the result of the last probe
+   *
+   * @return the last result, or null if no probe has completed yet
+   */
+  @Nullable
+  public Result getResult() {
+    return result;
+  }
+
+  private void safeProbe() {
+    try {
+      probe();
+    } catch (RuntimeException e) {
+      LOGGER.warn("Unable to probe Riak nodes", e);
+    }
+  }
+
+  /**
+   * Ping every node and wait, up to the timeout, for all of the responses
+   *
+   * @return the result, which is also returned by {@link #getResult()} from now on
+   */
+  public Result probe() {
+    final long start = System.nanoTime();
+    final Map<RiakNode, PingOperation> pings = new LinkedHashMap<>();
+    final Map<RiakNode, Long> sentTimes = new LinkedHashMap<>();
+    final Map<RiakNode, Long> roundTrips = new ConcurrentHashMap<>();
+    final ImmutableMap.Builder<String, NodeStatus> statuses = ImmutableMap.builder();
+
+    for (RiakNode node : client.getRiakCluster().getNodes()) {
+      final PingOperation ping = new PingOperation();
+      final long sent = System.nanoTime();
+      // timed when the response arrives, since the pings are awaited one after another
+      ping.addListener(f -> roundTrips.put(node, System.nanoTime() - sent));
+      try {
+        if (node.execute(ping)) {
+          pings.put(node, ping);
+          sentTimes.put(node, sent);
+        } else {
+          statuses.put(address(node), NodeStatus.down("No connections available"));
+        }
+      } catch (IllegalStateException e) {
+        statuses.put(address(node), NodeStatus.down("Node is " + node.getNodeState()));
+      }
+    }
+
+    final long deadline = start + timeout.toNanoseconds();
+    for (Map.Entry<RiakNode, PingOperation> entry : pings.entrySet()) {
+      final RiakNode node = entry.getKey();
+      final PingOperation ping = entry.getValue();
+      try {
+        ping.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+
+      if (ping.isSuccess()) {
+        // the listener may not have run yet when the ping has only just completed
+        final Long roundTrip = roundTrips.get(node);
+        final long elapsed =
+            roundTrip != null ? roundTrip : System.nanoTime() - sentTimes.get(node);
+        metrics.timer(name(nodeName(node), "ping")).update(elapsed, TimeUnit.NANOSECONDS);
+        statuses.put(address(node), NodeStatus.up(elapsed));
+      } else if (ping.isDone()) {
+        final Throwable cause = ping.cause();
+        statuses.put(
+            address(node), NodeStatus.down(cause != null ? cause.getMessage() : "Ping failed"));
+      } else {
+        statuses.put(address(node), NodeStatus.down("Timed out after " + timeout));
+      }
+    }
+
+    final Result probed = new Result(System.nanoTime(), statuses.build());
+    this.result = probed;
+    return probed;
+  }
+
+  private String nodeName(final RiakNode node) {
+    return InstrumentedNodeManager.nodeName(prefix, node.getRemoteAddress(), node.getPort());
+  }
+
+  private static String address(final RiakNode node) {
+    return node.getRemoteAddress() + ":" + node.getPort();
+  }
+
+  /** The outcome of pinging every node. */
+  public static final class Result {
+    private final long timestamp;
+    private final Map<String, NodeStatus> nodes;
+
+    private Result(final long timestamp, final Map<String, NodeStatus> nodes) {
+      this.timestamp = timestamp;
+      this.nodes = nodes;
+    }
+
+    /** @return the {@link System#nanoTime()} at which the probe completed */
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    /** @return the status of each node, keyed by {@code host:port} */
+    public Map<String, NodeStatus> getNodes() {
+      return nodes;
+    }
+
+    /** @return the number of nodes which responded */
+    public int getHealthyNodes() {
+      return (int) nodes.values().stream().filter(NodeStatus::isUp).count();
+    }
+  }
+
+  /** Whether a node responded to a ping, and how quickly. */
+  public static final class NodeStatus {
+    private final boolean up;
+    private final long roundTripNanos;
+    @Nullable private final String message;
+
+    private NodeStatus(
+        final boolean up, final long roundTripNanos, @Nullable final String message) {
+      this.up = up;
+      this.roundTripNanos = roundTripNanos;
+      this.message = message;
+    }
+
+    private static NodeStatus up(final long roundTripNanos) {
+      return new NodeStatus(true, roundTripNanos, null);
+    }
+
+    private static NodeStatus down(@Nullable final String message) {
+      return new NodeStatus(false, -1, message);
+    }
+
+    public boolean isUp() {
+      return up;
+    }
+
+    /** @return the round trip time in nanoseconds, or -1 if the node did not respond */
+    public long getRoundTripNanos() {
+      return roundTripNanos;
+    }
+
+    @Nullable
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String toString() {
+      if (up) {
+        return String.format("up (%.3fms)", roundTripNanos / 1e6);
+      }
+      return "down: " + message;
+    }
+  }
+}
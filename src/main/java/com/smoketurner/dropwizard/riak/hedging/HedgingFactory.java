@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.hedging;
+
+import com.basho.riak.client.api.RiakClient;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import java.util.concurrent.TimeUnit;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class HedgingFactory {
+
+  @DecimalMin("0.0")
+  @DecimalMax("1.0")
+  private double maxExtraLoad = 0.05;
+
+  @DecimalMin("0.5")
+  @DecimalMax("0.999")
+  private double percentile = 0.95;
+
+  @NotNull
+  @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+  private Duration minDelay = Duration.milliseconds(1);
+
+  @Min(1)
+  private int maxBurst = 10;
+
+  @JsonProperty
+  public double getMaxExtraLoad() {
+    return maxExtraLoad;
+  }
+
+  @JsonProperty
+  public void setMaxExtraLoad(final double load) {
+    this.maxExtraLoad = load;
+  }
+
+  @JsonProperty
+  public double getPercentile() {
+    return percentile;
+  }
+
+  @JsonProperty
+  public void setPercentile(final double percentile) {
+    this.percentile = percentile;
+  }
+
+  @JsonProperty
+  public Duration getMinDelay() {
+    return minDelay;
+  }
+
+  @JsonProperty
+  public void setMinDelay(final Duration delay) {
+    this.minDelay = delay;
+  }
+
+  @JsonProperty
+  public int getMaxBurst() {
+    return maxBurst;
+  }
+
+  @JsonProperty
+  public void setMaxBurst(final int burst) {
+    this.maxBurst = burst;
+  }
+
+  /**
+   * Wrap a client so slow fetches are hedged
+   *
+   * @param client Riak client to execute commands with
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   * @return the hedging client
+   */
+  public HedgingRiakClient build(
+      final RiakClient client, final MetricRegistry metrics, final String prefix) {
+    return new HedgingRiakClient(
+        client, maxExtraLoad, maxBurst, percentile, minDelay.toNanoseconds(), metrics, prefix);
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.hedging;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.core.NoNodesAvailableException;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.Location;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.smoketurner.dropwizard.riak.client.DelegatingRiakClient;
+import com.smoketurner.dropwizard.riak.client.SettableRiakFuture;
+import com.smoketurner.dropwizard.riak.cluster.InstrumentedNodeManager;
+import java.util.Optional;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link RiakClient} which hedges slow {@link FetchValue} commands: if a fetch has not completed
+ * within the recently observed latency percentile, the same fetch is sent again, normally to
+ * another node, and the caller receives whichever response arrives first.
+ *
+ * <p>Hedges are limited by a budget, expressed as a fraction of fetches, so a cluster which is slow
+ * across the board doesn't have its load multiplied. The riak client can't abandon a request once
+ * it has been written, so the losing request still completes and its response is discarded.
+ *
+ * <p>Hedges are sent from a single scheduler thread and never wait for capacity: a hedge which no
+ * node can accept at once, because every node is at its concurrency limit or out of connections, is
+ * skipped and its budget refunded.
+ */
+public class HedgingRiakClient extends DelegatingRiakClient {
+
+  private static final long TOKEN = 1000;
+  private static final long MIN_SAMPLES = 100;
+  private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final ScheduledThreadPoolExecutor scheduler;
+  private final AtomicLong tokens = new AtomicLong();
+  private final long tokensPerFetch;
+  private final long maxTokens;
+  private final double percentile;
+  private final long minDelayNanos;
+  private final Timer latency;
+  private final Meter sent;
+  private final Meter won;
+  private final Meter skipped;
+  private volatile long delayNanos = -1;
+  private volatile long delayExpiresAt = System.nanoTime();
+
+  /**
+   * Constructor
+   *
+   * @param delegate Riak client to execute commands with
+   * @param maxExtraLoad Maximum number of hedges sent, as a fraction of fetches
+   * @param maxBurst Maximum number of hedges which may be sent back to back
+   * @param percentile Latency percentile after which a fetch is hedged
+   * @param minDelayNanos Minimum time to wait before hedging a fetch, in nanoseconds
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public HedgingRiakClient(
+      final RiakClient delegate,
+      final double maxExtraLoad,
+      final int maxBurst,
+      final double percentile,
+      final long minDelayNanos,
+      final MetricRegistry metrics,
+      final String prefix) {
+    super(delegate);
+    this.tokensPerFetch = Math.round(maxExtraLoad * TOKEN);
+    this.maxTokens = maxBurst * TOKEN;
+    this.percentile = percentile;
+    this.minDelayNanos = minDelayNanos;
+
+    this.scheduler =
+        new ScheduledThreadPoolExecutor(
+            1, new ThreadFactoryBuilder().setNameFormat("riak-hedging-%d").setDaemon(true).build());
+    scheduler.setRemoveOnCancelPolicy(true);
+
+    final String name = name(prefix, "hedging");
+    this.latency =
+        metrics.timer(
+            name(name, "latency"),
+            () -> new Timer(new SlidingTimeWindowArrayReservoir(1, TimeUnit.MINUTES)));
+    this.sent = metrics.meter(name(name, "sent"));
+    this.won = metrics.meter(name(name, "won"));
+    this.skipped = metrics.meter(name(name, "skipped"));
+    metrics.gauge(
+        name(name, "delay"),
+        () -> () -> delayNanos < 0 ? 0.0 : delayNanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T, S> RiakFuture<T, S> executeAsync(final RiakCommand<T, S> command) {
+    if (command instanceof FetchValue) {
+      return (RiakFuture<T, S>) fetch((FetchValue) command);
+    }
+    return super.executeAsync(command);
+  }
+
+  @Override
+  public Future<Boolean> shutdown() {
+    scheduler.shutdownNow();
+    return super.shutdown();
+  }
+
+  private RiakFuture<FetchValue.Response, Location> fetch(final FetchValue command) {
+    tokens.accumulateAndGet(tokensPerFetch, (current, add) -> Math.min(maxTokens, current + add));
+
+    final long start = System.nanoTime();
+    final RiakFuture<FetchValue.Response, Location> primary = super.executeAsync(command);
+    final long delay = delay();
+    if (primary.isDone() || delay < 0) {
+      primary.addListener(f -> record(f, start));
+      return primary;
+    }
+
+    final Race race = new Race(command, primary);
+    final ScheduledFuture<?> timer = scheduler.schedule(race::hedge, delay, TimeUnit.NANOSECONDS);
+    primary.addListener(
+        f -> {
+          timer.cancel(false);
+          record(f, start);
+          race.complete(f, false);
+        });
+    return race.result;
+  }
+
+  private void record(final RiakFuture<?, ?> future, final long start) {
+    if (future.isSuccess()) {
+      latency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Return the time to wait before hedging a fetch, recalculated at most once a second once enough
+   * fetches have completed
+   *
+   * @return the delay in nanoseconds, or -1 if not enough fetches have completed to hedge
+   */
+  private long delay() {
+    final long now = System.nanoTime();
+    if (delayNanos < 0 || now - delayExpiresAt >= 0) {
+      delayExpiresAt = now + DELAY_REFRESH_NANOS;
+      if (latency.getCount() < MIN_SAMPLES) {
+        delayNanos = -1;
+      } else {
+        delayNanos = Math.max(minDelayNanos, (long) latency.getSnapshot().getValue(percentile));
+      }
+    }
+    return delayNanos;
+  }
+
+  private boolean acquireToken() {
+    long current;
+    do {
+      current = tokens.get();
+      if (current < TOKEN) {
+        return false;
+      }
+    } while (!tokens.compareAndSet(current, current - TOKEN));
+    return true;
+  }
+
+  /** Tracks the primary fetch and its hedge, completing the result with the first success. */
+  private final class Race {
+    private final FetchValue command;
+    private final SettableRiakFuture<FetchValue.Response, Location> result;
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final RiakFuture<FetchValue.Response, Location> primary;
+    @Nullable private volatile RiakFuture<FetchValue.Response, Location> hedge;
+    @Nullable private volatile RiakFuture<FetchValue.Response, Location> failure;
+
+    private Race(
+        final FetchValue command, final RiakFuture<FetchValue.Response, Location> primary) {
+      this.command = command;
+      this.primary = primary;
+      this.result = new SettableRiakFuture<>(primary.getQueryInfo());
+    }
+
+    private void hedge() {
+      // only hedge while the primary fetch is still the only one in flight
+      if (result.isDone() || !acquireToken()) {
+        return;
+      }
+      if (!pending.compareAndSet(1, 2)) {
+        tokens.addAndGet(TOKEN);
+        return;
+      }
+
+      final Optional<RiakFuture<FetchValue.Response, Location>> sending;
+      try {
+        sending = InstrumentedNodeManager.withoutWaiting(() -> getDelegate().executeAsync(command));
+      } catch (RuntimeException e) {
+        if (pending.decrementAndGet() == 0) {
+          fail(e);
+        }
+        return;
+      }
+      if (!sending.isPresent()) {
+        // no node could take the hedge without waiting, so it fails without being sent
+        skipped.mark();
+        tokens.addAndGet(TOKEN);
+        if (pending.decrementAndGet() == 0) {
+          fail(new NoNodesAvailableException());
+        }
+        return;
+      }
+      final RiakFuture<FetchValue.Response, Location> future = sending.get();
+      sent.mark();
+      hedge = future;
+      future.addListener(f -> complete(f, true));
+    }
+
+    private void complete(
+        final RiakFuture<FetchValue.Response, Location> future, final boolean hedged) {
+      if (future.isSuccess()) {
+        if (result.setFrom(future)) {
+          if (hedged) {
+            won.mark();
+          }
+          final RiakFuture<FetchValue.Response, Location> loser = hedged ? primary : hedge;
+          if (loser != null) {
+            // a no-op for operations already written to a connection, but harmless
+            loser.cancel(false);
+          }
+        }
+        return;
+      }
+
+      failure = future;
+      if (pending.decrementAndGet() == 0) {
+        result.setFrom(future);
+      }
+    }
+
+    private void fail(final Throwable cause) {
+      final RiakFuture<FetchValue.Response, Location> previous = failure;
+      if (previous != null) {
+        result.setFrom(previous);
+      } else {
+        result.setException(cause);
+      }
+    }
+  }
+}
@@ -16,14 +16,20 @@
 package com.smoketurner.dropwizard.riak.managed;
 
 import com.basho.riak.client.api.RiakClient;
+import com.smoketurner.dropwizard.riak.cluster.ConnectionWarmer;
+import com.smoketurner.dropwizard.riak.cluster.InstrumentedNodeManager;
 import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.util.Duration;
 import java.util.Objects;
+import javax.annotation.Nullable;
 
 public class RiakClientManager implements Managed {
 
-  private static final Duration timeout = Duration.seconds(5);
   private final RiakClient client;
+  @Nullable private final ConnectionWarmer warmer;
+  @Nullable private final InstrumentedNodeManager nodeManager;
+  private final Duration drainTimeout;
+  private final Duration shutdownTimeout;
 
   /**
    * Constructor
@@ -31,17 +37,58 @@ public class RiakClientManager implements Managed {
    * @param client Riak client instance to manage
    */
   public RiakClientManager(final RiakClient client) {
+    this(client, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param client Riak client instance to manage
+   * @param warmer Opens the connection pools of the client's nodes once started, or null if the
+   *     nodes open their own connections as they start
+   */
+  public RiakClientManager(final RiakClient client, @Nullable final ConnectionWarmer warmer) {
+    this(client, warmer, null, Duration.seconds(0), Duration.seconds(5));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param client Riak client instance to manage
+   * @param warmer Opens the connection pools of the client's nodes once started, or null if the
+   *     nodes open their own connections as they start
+   * @param nodeManager Node manager to drain before shutting down, or null to shut down immediately
+   * @param drainTimeout Maximum time to wait for in-flight operations to complete
+   * @param shutdownTimeout Maximum time to wait for the cluster to shut down
+   */
+  public RiakClientManager(
+      final RiakClient client,
+      @Nullable final ConnectionWarmer warmer,
+      @Nullable final InstrumentedNodeManager nodeManager,
+      final Duration drainTimeout,
+      final Duration shutdownTimeout) {
     this.client = Objects.requireNonNull(client);
+    this.warmer = warmer;
+    this.nodeManager = nodeManager;
+    this.drainTimeout = Objects.requireNonNull(drainTimeout);
+    this.shutdownTimeout = Objects.requireNonNull(shutdownTimeout);
   }
 
   @Override
   public void start() throws Exception {
-    client.getRiakCluster().start();
+    if (warmer != null) {
+      warmer.start(client.getRiakCluster());
+    } else {
+      client.getRiakCluster().start();
+    }
   }
 
   @Override
   public void stop() throws Exception {
-    client.shutdown().get(timeout.getQuantity(), timeout.getUnit());
+    if (nodeManager != null) {
+      nodeManager.drain(drainTimeout.getQuantity(), drainTimeout.getUnit());
+    }
+    client.shutdown().get(shutdownTimeout.getQuantity(), shutdownTimeout.getUnit());
     client.cleanup();
   }
 }
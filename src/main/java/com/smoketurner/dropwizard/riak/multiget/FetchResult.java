@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.multiget;
+
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.core.query.Location;
+import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.Nullable;
+
+/** The outcome of fetching a single location as part of a {@link RiakMultiGet}. */
+public final class FetchResult {
+
+  private final Location location;
+  @Nullable private final FetchValue.Response response;
+  @Nullable private final Throwable cause;
+
+  /**
+   * Constructor
+   *
+   * @param location Location which was fetched
+   * @param response Response, if the fetch succeeded
+   * @param cause Failure cause, if the fetch failed
+   */
+  public FetchResult(
+      final Location location,
+      @Nullable final FetchValue.Response response,
+      @Nullable final Throwable cause) {
+    this.location = Objects.requireNonNull(location);
+    this.response = response;
+    this.cause = cause;
+  }
+
+  public Location getLocation() {
+    return location;
+  }
+
+  public boolean isSuccess() {
+    return cause == null;
+  }
+
+  public Optional<FetchValue.Response> getResponse() {
+    return Optional.ofNullable(response);
+  }
+
+  public Optional<Throwable> getCause() {
+    return Optional.ofNullable(cause);
+  }
+
+  @Override
+  public String toString() {
+    return "FetchResult{location=" + location + ", success=" + isSuccess() + "}";
+  }
+}
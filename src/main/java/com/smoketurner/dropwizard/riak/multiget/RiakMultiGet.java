@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.multiget;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.Location;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+/**
+ * Fetches many locations with a bounded number of fetches in flight, handing each result to a
+ * consumer as soon as it arrives.
+ *
+ * <p>Locations are pulled from the source lazily, one for each completed fetch, so neither the
+ * locations nor the results are ever held in memory all at once. Unlike {@code MultiFetch}, results
+ * are delivered in completion order rather than source order.
+ *
+ * <p>The first fetches are issued from the calling thread. Every completed fetch is handed to the
+ * executor, which calls the consumer and issues the follow-up fetch, so neither the consumer nor a
+ * fetch, which may block waiting for a connection, ever runs on a Netty I/O thread.
+ */
+public class RiakMultiGet {
+
+  private final RiakClient client;
+  private final int maxInFlight;
+  private final Executor executor;
+
+  /**
+   * Constructor
+   *
+   * @param client Riak client to fetch with
+   * @param maxInFlight Maximum number of concurrent fetches per call
+   * @param executor Runs the consumer and issues follow-up fetches as fetches complete
+   */
+  public RiakMultiGet(final RiakClient client, final int maxInFlight, final Executor executor) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be at least 1");
+    }
+    this.client = Objects.requireNonNull(client);
+    this.maxInFlight = maxInFlight;
+    this.executor = Objects.requireNonNull(executor);
+  }
+
+  /**
+   * Fetch every location with default options
+   *
+   * @param locations Locations to fetch
+   * @param consumer Receives each result on an executor thread, possibly concurrently
+   * @return a future completed once every result has been consumed. Cancelling it stops further
+   *     locations from being fetched.
+   */
+  public CompletableFuture<Void> fetch(
+      final Iterable<Location> locations, final Consumer<FetchResult> consumer) {
+    return fetch(locations, location -> new FetchValue.Builder(location).build(), consumer);
+  }
+
+  /**
+   * Fetch every location with commands built by the given function
+   *
+   * @param locations Locations to fetch
+   * @param command Builds the command used to fetch a location
+   * @param consumer Receives each result on an executor thread, possibly concurrently
+   * @return a future completed once every result has been consumed. Cancelling it stops further
+   *     locations from being fetched.
+   */
+  public CompletableFuture<Void> fetch(
+      final Iterable<Location> locations,
+      final Function<Location, FetchValue> command,
+      final Consumer<FetchResult> consumer) {
+    final Operation operation =
+        new Operation(locations.iterator(), Objects.requireNonNull(command), consumer);
+    operation.drain();
+    return operation.done;
+  }
+
+  /**
+   * Fetch every location in a stream with default options. The stream is closed once the returned
+   * future completes.
+   *
+   * @param locations Locations to fetch
+   * @param consumer Receives each result on an executor thread, possibly concurrently
+   * @return a future completed once every result has been consumed
+   */
+  public CompletableFuture<Void> fetch(
+      final Stream<Location> locations, final Consumer<FetchResult> consumer) {
+    final CompletableFuture<Void> future = fetch(locations::iterator, consumer);
+    future.whenComplete((result, cause) -> locations.close());
+    return future;
+  }
+
+  private final class Operation {
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final Iterator<Location> locations;
+    private final Function<Location, FetchValue> command;
+    private final Consumer<FetchResult> consumer;
+
+    // guarded by this
+    private int inFlight = 0;
+    private boolean exhausted = false;
+
+    private Operation(
+        final Iterator<Location> locations,
+        final Function<Location, FetchValue> command,
+        final Consumer<FetchResult> consumer) {
+      this.locations = Objects.requireNonNull(locations);
+      this.command = command;
+      this.consumer = Objects.requireNonNull(consumer);
+    }
+
+    /**
+     * Issue fetches until the in-flight limit is reached. Only one thread drains at a time, and
+     * fetches which complete synchronously re-run the loop instead of recursing.
+     */
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      do {
+        Location next;
+        while ((next = pull()) != null) {
+          issue(next);
+        }
+        synchronized (this) {
+          if (exhausted && inFlight == 0) {
+            done.complete(null);
+          }
+        }
+      } while (wip.decrementAndGet() != 0);
+    }
+
+    @Nullable
+    private synchronized Location pull() {
+      if (done.isDone() || exhausted || inFlight >= maxInFlight) {
+        return null;
+      }
+      try {
+        if (!locations.hasNext()) {
+          exhausted = true;
+          return null;
+        }
+        final Location location = Objects.requireNonNull(locations.next());
+        inFlight++;
+        return location;
+      } catch (RuntimeException e) {
+        done.completeExceptionally(e);
+        return null;
+      }
+    }
+
+    private void issue(final Location location) {
+      final RiakFuture<FetchValue.Response, Location> future;
+      try {
+        future = client.executeAsync(command.apply(location));
+      } catch (RuntimeException e) {
+        dispatch(new FetchResult(location, null, e));
+        return;
+      }
+      future.addListener(
+          f -> dispatch(new FetchResult(location, f.isSuccess() ? f.getNow() : null, f.cause())));
+    }
+
+    /** Hand a result to the executor, off the thread which completed the fetch. */
+    private void dispatch(final FetchResult result) {
+      try {
+        executor.execute(() -> complete(result));
+      } catch (RejectedExecutionException e) {
+        done.completeExceptionally(e);
+        synchronized (this) {
+          inFlight--;
+        }
+      }
+    }
+
+    private void complete(final FetchResult result) {
+      try {
+        if (!done.isDone()) {
+          consumer.accept(result);
+        }
+      } catch (RuntimeException e) {
+        done.completeExceptionally(e);
+      }
+      synchronized (this) {
+        inFlight--;
+      }
+      drain();
+    }
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.options;
+
+import com.basho.riak.client.api.cap.Quorum;
+import com.basho.riak.client.api.commands.kv.DeleteValue;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.api.commands.kv.UpdateValue;
+import com.basho.riak.client.core.query.Location;
+import javax.annotation.Nullable;
+
+/**
+ * The default request options of a bucket, applied to the command builders it returns. Options set
+ * on a builder afterwards replace the defaults, so call sites only set the options they need to
+ * change. Instances are immutable and resolved once, so callers can keep the options of the buckets
+ * they use in a field rather than looking them up on every request.
+ */
+public final class BucketOptions {
+
+  /** Options which leave every request option to the bucket properties on the cluster */
+  public static final BucketOptions DEFAULT =
+      new BucketOptions(null, null, null, null, null, null, null, null, null);
+
+  @Nullable private final Quorum r;
+  @Nullable private final Quorum pr;
+  @Nullable private final Quorum w;
+  @Nullable private final Quorum dw;
+  @Nullable private final Quorum pw;
+  @Nullable private final Boolean basicQuorum;
+  @Nullable private final Boolean notFoundOk;
+  @Nullable private final Boolean head;
+  @Nullable private final Integer timeout;
+
+  /**
+   * Constructor
+   *
+   * @param r Read quorum
+   * @param pr Primary read quorum
+   * @param w Write quorum
+   * @param dw Durable write quorum
+   * @param pw Primary write quorum
+   * @param basicQuorum Whether reads return as soon as a quorum of vnodes report not found
+   * @param notFoundOk Whether a vnode reporting not found counts towards the read quorum
+   * @param head Whether fetches return metadata only, without values
+   * @param timeout Server side timeout in milliseconds
+   */
+  public BucketOptions(
+      @Nullable final Quorum r,
+      @Nullable final Quorum pr,
+      @Nullable final Quorum w,
+      @Nullable final Quorum dw,
+      @Nullable final Quorum pw,
+      @Nullable final Boolean basicQuorum,
+      @Nullable final Boolean notFoundOk,
+      @Nullable final Boolean head,
+      @Nullable final Integer timeout) {
+    this.r = r;
+    this.pr = pr;
+    this.w = w;
+    this.dw = dw;
+    this.pw = pw;
+    this.basicQuorum = basicQuorum;
+    this.notFoundOk = notFoundOk;
+    this.head = head;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Build a fetch with the default read options
+   *
+   * @param location Location to fetch
+   * @return a fetch builder
+   */
+  public FetchValue.Builder fetch(final Location location) {
+    final FetchValue.Builder builder = new FetchValue.Builder(location);
+    if (r != null) {
+      builder.withOption(FetchValue.Option.R, r);
+    }
+    if (pr != null) {
+      builder.withOption(FetchValue.Option.PR, pr);
+    }
+    if (basicQuorum != null) {
+      builder.withOption(FetchValue.Option.BASIC_QUORUM, basicQuorum);
+    }
+    if (notFoundOk != null) {
+      builder.withOption(FetchValue.Option.NOTFOUND_OK, notFoundOk);
+    }
+    if (head != null) {
+      builder.withOption(FetchValue.Option.HEAD, head);
+    }
+    if (timeout != null) {
+      builder.withTimeout(timeout);
+    }
+    return builder;
+  }
+
+  /**
+   * Build a store with the default write options
+   *
+   * @param location Location to store the value at
+   * @param value Value to store
+   * @return a store builder
+   */
+  public StoreValue.Builder store(final Location location, final Object value) {
+    final StoreValue.Builder builder = new StoreValue.Builder(value).withLocation(location);
+    if (w != null) {
+      builder.withOption(StoreValue.Option.W, w);
+    }
+    if (dw != null) {
+      builder.withOption(StoreValue.Option.DW, dw);
+    }
+    if (pw != null) {
+      builder.withOption(StoreValue.Option.PW, pw);
+    }
+    if (timeout != null) {
+      builder.withTimeout(timeout);
+    }
+    return builder;
+  }
+
+  /**
+   * Build a delete with the default quorums
+   *
+   * @param location Location to delete
+   * @return a delete builder
+   */
+  public DeleteValue.Builder delete(final Location location) {
+    final DeleteValue.Builder builder = new DeleteValue.Builder(location);
+    if (r != null) {
+      builder.withOption(DeleteValue.Option.R, r);
+    }
+    if (pr != null) {
+      builder.withOption(DeleteValue.Option.PR, pr);
+    }
+    if (w != null) {
+      builder.withOption(DeleteValue.Option.W, w);
+    }
+    if (dw != null) {
+      builder.withOption(DeleteValue.Option.DW, dw);
+    }
+    if (pw != null) {
+      builder.withOption(DeleteValue.Option.PW, pw);
+    }
+    if (timeout != null) {
+      builder.withTimeout(timeout);
+    }
+    return builder;
+  }
+
+  /**
+   * Build an update with the default read options for its fetch and write options for its store.
+   * The {@code head} option is not applied, since an update needs the current value.
+   *
+   * @param location Location to update
+   * @return an update builder
+   */
+  public UpdateValue.Builder update(final Location location) {
+    final UpdateValue.Builder builder = new UpdateValue.Builder(location);
+    if (r != null) {
+      builder.withFetchOption(FetchValue.Option.R, r);
+    }
+    if (pr != null) {
+      builder.withFetchOption(FetchValue.Option.PR, pr);
+    }
+    if (basicQuorum != null) {
+      builder.withFetchOption(FetchValue.Option.BASIC_QUORUM, basicQuorum);
+    }
+    if (notFoundOk != null) {
+      builder.withFetchOption(FetchValue.Option.NOTFOUND_OK, notFoundOk);
+    }
+    if (w != null) {
+      builder.withStoreOption(StoreValue.Option.W, w);
+    }
+    if (dw != null) {
+      builder.withStoreOption(StoreValue.Option.DW, dw);
+    }
+    if (pw != null) {
+      builder.withStoreOption(StoreValue.Option.PW, pw);
+    }
+    if (timeout != null) {
+      builder.withTimeout(timeout);
+    }
+    return builder;
+  }
+
+  @Override
+  public String toString() {
+    return "BucketOptions{r="
+        + r
+        + ", pr="
+        + pr
+        + ", w="
+        + w
+        + ", dw="
+        + dw
+        + ", pw="
+        + pw
+        + ", basicQuorum="
+        + basicQuorum
+        + ", notFoundOk="
+        + notFoundOk
+        + ", head="
+        + head
+        + ", timeout="
+        + timeout
+        + "}";
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.options;
+
+import com.basho.riak.client.api.cap.Quorum;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.validation.constraints.Pattern;
+import org.hibernate.validator.constraints.NotEmpty;
+
+/**
+ * Default request options for a bucket type, or for a single bucket within it. Options which are
+ * not set are left to the bucket properties on the cluster. Quorums are {@code one}, {@code
+ * quorum}, {@code all}, {@code default} or a number of vnodes.
+ */
+public class BucketOptionsFactory {
+
+  private static final String QUORUM = "one|quorum|all|default|[0-9]+";
+
+  @NotEmpty private String bucketType = "default";
+
+  @Nullable private String bucket;
+
+  @Nullable
+  @Pattern(regexp = QUORUM)
+  private String r;
+
+  @Nullable
+  @Pattern(regexp = QUORUM)
+  private String pr;
+
+  @Nullable
+  @Pattern(regexp = QUORUM)
+  private String w;
+
+  @Nullable
+  @Pattern(regexp = QUORUM)
+  private String dw;
+
+  @Nullable
+  @Pattern(regexp = QUORUM)
+  private String pw;
+
+  @Nullable private Boolean basicQuorum;
+
+  @Nullable private Boolean notFoundOk;
+
+  @Nullable private Boolean head;
+
+  @Nullable
+  @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+  private Duration timeout;
+
+  @JsonProperty
+  public String getBucketType() {
+    return bucketType;
+  }
+
+  @JsonProperty
+  public void setBucketType(final String bucketType) {
+    this.bucketType = bucketType;
+  }
+
+  @Nullable
+  @JsonProperty
+  public String getBucket() {
+    return bucket;
+  }
+
+  @JsonProperty
+  public void setBucket(@Nullable final String bucket) {
+    this.bucket = bucket;
+  }
+
+  @Nullable
+  @JsonProperty
+  public String getR() {
+    return r;
+  }
+
+  @JsonProperty
+  public void setR(@Nullable final String r) {
+    this.r = r;
+  }
+
+  @Nullable
+  @JsonProperty
+  public String getPr() {
+    return pr;
+  }
+
+  @JsonProperty
+  public void setPr(@Nullable final String pr) {
+    this.pr = pr;
+  }
+
+  @Nullable
+  @JsonProperty
+  public String getW() {
+    return w;
+  }
+
+  @JsonProperty
+  public void setW(@Nullable final String w) {
+    this.w = w;
+  }
+
+  @Nullable
+  @JsonProperty
+  public String getDw() {
+    return dw;
+  }
+
+  @JsonProperty
+  public void setDw(@Nullable final String dw) {
+    this.dw = dw;
+  }
+
+  @Nullable
+  @JsonProperty
+  public String getPw() {
+    return pw;
+  }
+
+  @JsonProperty
+  public void setPw(@Nullable final String pw) {
+    this.pw = pw;
+  }
+
+  @Nullable
+  @JsonProperty
+  public Boolean getBasicQuorum() {
+    return basicQuorum;
+  }
+
+  @JsonProperty
+  public void setBasicQuorum(@Nullable final Boolean basicQuorum) {
+    this.basicQuorum = basicQuorum;
+  }
+
+  @Nullable
+  @JsonProperty
+  public Boolean getNotFoundOk() {
+    return notFoundOk;
+  }
+
+  @JsonProperty
+  public void setNotFoundOk(@Nullable final Boolean notFoundOk) {
+    this.notFoundOk = notFoundOk;
+  }
+
+  @Nullable
+  @JsonProperty
+  public Boolean getHead() {
+    return head;
+  }
+
+  @JsonProperty
+  public void setHead(@Nullable final Boolean head) {
+    this.head = head;
+  }
+
+  @Nullable
+  @JsonProperty
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  @JsonProperty
+  public void setTimeout(@Nullable final Duration timeout) {
+    this.timeout = timeout;
+  }
+
+  public BucketOptions build() {
+    return new BucketOptions(
+        quorum(r),
+        quorum(pr),
+        quorum(w),
+        quorum(dw),
+        quorum(pw),
+        basicQuorum,
+        notFoundOk,
+        head,
+        timeout != null ? Math.toIntExact(timeout.toMilliseconds()) : null);
+  }
+
+  @Nullable
+  private static Quorum quorum(@Nullable final String value) {
+    if (value == null) {
+      return null;
+    }
+    switch (value) {
+      case Quorum.ONE:
+        return Quorum.oneQuorum();
+      case Quorum.QUORUM:
+        return Quorum.quorumQuorum();
+      case Quorum.ALL:
+        return Quorum.allQuorum();
+      case Quorum.DEFAULT:
+        return Quorum.defaultQuorum();
+      default:
+        return new Quorum(Integer.parseInt(value));
+    }
+  }
+}
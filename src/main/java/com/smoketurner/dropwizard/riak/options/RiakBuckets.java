@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.options;
+
+import com.basho.riak.client.api.commands.kv.DeleteValue;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.api.commands.kv.UpdateValue;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of default {@link BucketOptions} by bucket type and bucket. Options registered for a
+ * bucket take precedence over those registered for its bucket type, and buckets without either use
+ * {@link BucketOptions#DEFAULT}.
+ *
+ * <p>The command builders of this class look up the options of the location's bucket on every call.
+ * Latency critical call sites should keep the result of {@link #get(Namespace)} instead.
+ */
+public class RiakBuckets {
+
+  private final ConcurrentMap<String, BucketOptions> bucketTypes = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Namespace, BucketOptions> buckets = new ConcurrentHashMap<>();
+
+  /**
+   * Register the options of every bucket of a bucket type
+   *
+   * @param bucketType Bucket type
+   * @param options Default request options
+   */
+  public void register(final String bucketType, final BucketOptions options) {
+    bucketTypes.put(Objects.requireNonNull(bucketType), Objects.requireNonNull(options));
+  }
+
+  /**
+   * Register the options of a bucket
+   *
+   * @param namespace Bucket type and bucket
+   * @param options Default request options
+   */
+  public void register(final Namespace namespace, final BucketOptions options) {
+    buckets.put(Objects.requireNonNull(namespace), Objects.requireNonNull(options));
+  }
+
+  /**
+   * Return the options of a bucket
+   *
+   * @param namespace Bucket type and bucket
+   * @return the registered options, or {@link BucketOptions#DEFAULT} if none are registered
+   */
+  public BucketOptions get(final Namespace namespace) {
+    final BucketOptions options = buckets.get(namespace);
+    if (options != null) {
+      return options;
+    }
+    return bucketTypes.getOrDefault(namespace.getBucketTypeAsString(), BucketOptions.DEFAULT);
+  }
+
+  /**
+   * Build a fetch with the default read options of the location's bucket
+   *
+   * @param location Location to fetch
+   * @return a fetch builder
+   */
+  public FetchValue.Builder fetch(final Location location) {
+    return get(location.getNamespace()).fetch(location);
+  }
+
+  /**
+   * Build a store with the default write options of the location's bucket
+   *
+   * @param location Location to store the value at
+   * @param value Value to store
+   * @return a store builder
+   */
+  public StoreValue.Builder store(final Location location, final Object value) {
+    return get(location.getNamespace()).store(location, value);
+  }
+
+  /**
+   * Build a delete with the default quorums of the location's bucket
+   *
+   * @param location Location to delete
+   * @return a delete builder
+   */
+  public DeleteValue.Builder delete(final Location location) {
+    return get(location.getNamespace()).delete(location);
+  }
+
+  /**
+   * Build an update with the default options of the location's bucket
+   *
+   * @param location Location to update
+   * @return an update builder
+   */
+  public UpdateValue.Builder update(final Location location) {
+    return get(location.getNamespace()).update(location);
+  }
+}
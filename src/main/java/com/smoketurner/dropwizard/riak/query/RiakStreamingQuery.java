@@ -0,0 +1,227 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.query;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.api.commands.indexes.BinIndexQuery;
+import com.basho.riak.client.api.commands.indexes.BucketIndexQuery;
+import com.basho.riak.client.api.commands.indexes.IntIndexQuery;
+import com.basho.riak.client.api.commands.indexes.SecondaryIndexQuery;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.google.common.util.concurrent.Futures;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.annotation.Nullable;
+
+/**
+ * Exposes secondary index queries and key listing as lazily pulled {@link Stream}s.
+ *
+ * <p>Queries are executed one page of {@code pageSize} results at a time, following continuations
+ * transparently. The next page is requested as soon as the previous one arrives, so at most two
+ * pages are held in memory, and index entries are only converted as the stream reaches them.
+ * Failures are thrown from the stream as {@link
+ * com.google.common.util.concurrent.UncheckedExecutionException}.
+ */
+public class RiakStreamingQuery {
+
+  private final RiakClient client;
+  private final int pageSize;
+
+  /**
+   * Constructor
+   *
+   * @param client Riak client to query with
+   * @param pageSize Maximum number of results requested per page
+   */
+  public RiakStreamingQuery(final RiakClient client, final int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be at least 1");
+    }
+    this.client = Objects.requireNonNull(client);
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Stream the entries of a binary index which match a value
+   *
+   * @param namespace Namespace to query
+   * @param index Index name, without the {@code _bin} suffix
+   * @param match Value to match
+   * @return the matching entries
+   */
+  public Stream<SecondaryIndexQuery.Response.Entry<String>> binIndex(
+      final Namespace namespace, final String index, final String match) {
+    return query(
+        continuation ->
+            new BinIndexQuery.Builder(namespace, index, match)
+                .withMaxResults(pageSize)
+                .withPaginationSort(true)
+                .withContinuation(continuation)
+                .build());
+  }
+
+  /**
+   * Stream the entries of a binary index within a range
+   *
+   * @param namespace Namespace to query
+   * @param index Index name, without the {@code _bin} suffix
+   * @param start Start of the range, inclusive
+   * @param end End of the range, inclusive
+   * @return the matching entries
+   */
+  public Stream<SecondaryIndexQuery.Response.Entry<String>> binIndex(
+      final Namespace namespace, final String index, final String start, final String end) {
+    return query(
+        continuation ->
+            new BinIndexQuery.Builder(namespace, index, start, end)
+                .withMaxResults(pageSize)
+                .withPaginationSort(true)
+                .withContinuation(continuation)
+                .build());
+  }
+
+  /**
+   * Stream the entries of an integer index which match a value
+   *
+   * @param namespace Namespace to query
+   * @param index Index name, without the {@code _int} suffix
+   * @param match Value to match
+   * @return the matching entries
+   */
+  public Stream<SecondaryIndexQuery.Response.Entry<Long>> intIndex(
+      final Namespace namespace, final String index, final long match) {
+    return query(
+        continuation ->
+            new IntIndexQuery.Builder(namespace, index, match)
+                .withMaxResults(pageSize)
+                .withPaginationSort(true)
+                .withContinuation(continuation)
+                .build());
+  }
+
+  /**
+   * Stream the entries of an integer index within a range
+   *
+   * @param namespace Namespace to query
+   * @param index Index name, without the {@code _int} suffix
+   * @param start Start of the range, inclusive
+   * @param end End of the range, inclusive
+   * @return the matching entries
+   */
+  public Stream<SecondaryIndexQuery.Response.Entry<Long>> intIndex(
+      final Namespace namespace, final String index, final long start, final long end) {
+    return query(
+        continuation ->
+            new IntIndexQuery.Builder(namespace, index, start, end)
+                .withMaxResults(pageSize)
+                .withPaginationSort(true)
+                .withContinuation(continuation)
+                .build());
+  }
+
+  /**
+   * Stream every key in a bucket. Keys are listed through the {@code $bucket} index, which unlike
+   * {@code ListKeys} supports pagination, so the bucket must use a backend which supports secondary
+   * indexes.
+   *
+   * @param namespace Bucket to list
+   * @return the location of every object in the bucket
+   */
+  public Stream<Location> listKeys(final Namespace namespace) {
+    return query(
+            continuation ->
+                new BucketIndexQuery.Builder(namespace)
+                    .withMaxResults(pageSize)
+                    .withPaginationSort(true)
+                    .withContinuation(continuation)
+                    .build())
+        .map(SecondaryIndexQuery.Response.Entry::getRiakObjectLocation);
+  }
+
+  /**
+   * Stream the results of an arbitrary, paginated, secondary index query
+   *
+   * @param pages Builds the query for a page given the continuation returned with the previous
+   *     page, or null for the first page
+   * @return the entries of every page
+   */
+  public <
+          T,
+          E extends SecondaryIndexQuery.Response.Entry<T>,
+          S extends SecondaryIndexQuery.Response<T, E>>
+      Stream<E> query(final Function<BinaryValue, ? extends RiakCommand<S, ?>> pages) {
+    final Iterator<E> iterator = new PageIterator<>(Objects.requireNonNull(pages));
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+        false);
+  }
+
+  private final class PageIterator<
+          T,
+          E extends SecondaryIndexQuery.Response.Entry<T>,
+          S extends SecondaryIndexQuery.Response<T, E>>
+      implements Iterator<E> {
+
+    private final Function<BinaryValue, ? extends RiakCommand<S, ?>> pages;
+    private Iterator<E> current = Collections.emptyIterator();
+    @Nullable private RiakFuture<S, ?> next;
+    private boolean started = false;
+
+    private PageIterator(final Function<BinaryValue, ? extends RiakCommand<S, ?>> pages) {
+      this.pages = pages;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (!started) {
+        started = true;
+        next = client.executeAsync(pages.apply(null));
+      }
+
+      while (!current.hasNext()) {
+        if (next == null) {
+          return false;
+        }
+        final S page = Futures.getUnchecked(next);
+        next =
+            page.hasContinuation()
+                ? client.executeAsync(pages.apply(page.getContinuation()))
+                : null;
+        current = page.iterator();
+      }
+      return true;
+    }
+
+    @Override
+    public E next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return current.next();
+    }
+  }
+}
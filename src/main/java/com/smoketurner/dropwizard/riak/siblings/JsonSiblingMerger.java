@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.siblings;
+
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * Base class for mergers of JSON values. The merged value is either the whole value of each sibling
+ * or, when {@code field} is set, one field of each sibling's JSON object, in which case the rest of
+ * the object is taken from the most recently modified sibling. Tombstones are ignored unless every
+ * sibling is a tombstone.
+ */
+public abstract class JsonSiblingMerger implements SiblingMerger {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final Comparator<RiakObject> LAST_MODIFIED =
+      Comparator.comparingLong(RiakObject::getLastModified);
+
+  @Nullable private String field;
+
+  @Nullable
+  @JsonProperty
+  public String getField() {
+    return field;
+  }
+
+  @JsonProperty
+  public void setField(@Nullable final String field) {
+    this.field = field;
+  }
+
+  @Override
+  public RiakObject merge(final List<RiakObject> siblings) throws IOException {
+    final List<RiakObject> live =
+        siblings.stream().filter(s -> !s.isDeleted()).collect(Collectors.toList());
+    if (live.isEmpty()) {
+      return newest(siblings);
+    }
+    if (live.size() == 1) {
+      return live.get(0);
+    }
+    return merge(live, newest(live));
+  }
+
+  /**
+   * Merge siblings which are not tombstones
+   *
+   * @param siblings At least two siblings
+   * @param newest The most recently modified sibling
+   * @return the merged object
+   * @throws IOException if a sibling's value can't be read
+   */
+  protected abstract RiakObject merge(List<RiakObject> siblings, RiakObject newest)
+      throws IOException;
+
+  /**
+   * Read the merged part of a sibling: its value, or its {@code field} if set
+   *
+   * @param sibling Sibling to read
+   * @return the value or field, which is a missing node if the field is absent
+   * @throws IOException if the value is not JSON
+   */
+  protected JsonNode read(final RiakObject sibling) throws IOException {
+    final JsonNode value = MAPPER.readTree(sibling.getValue().unsafeGetValue());
+    return field == null ? value : value.path(field);
+  }
+
+  /**
+   * Store the merged part into an object, replacing its value or, if {@code field} is set, its
+   * field
+   *
+   * @param object Object to update
+   * @param merged Merged value or field
+   * @return the object
+   * @throws IOException if the object's value is not a JSON object when {@code field} is set
+   */
+  protected RiakObject write(final RiakObject object, final JsonNode merged) throws IOException {
+    final JsonNode value;
+    if (field == null) {
+      value = merged;
+    } else {
+      final JsonNode current = MAPPER.readTree(object.getValue().unsafeGetValue());
+      if (!current.isObject()) {
+        throw new IOException("Expected a JSON object with a " + field + " field");
+      }
+      value = ((ObjectNode) current).set(field, merged);
+    }
+    return object.setValue(BinaryValue.unsafeCreate(MAPPER.writeValueAsBytes(value)));
+  }
+
+  /**
+   * Compare JSON values, numerically if both are numbers and as text otherwise. Missing values sort
+   * first.
+   */
+  protected static int compare(final JsonNode a, final JsonNode b) {
+    if (a.isMissingNode() || b.isMissingNode()) {
+      return Boolean.compare(!a.isMissingNode(), !b.isMissingNode());
+    }
+    if (a.isNumber() && b.isNumber()) {
+      return a.decimalValue().compareTo(b.decimalValue());
+    }
+    return a.asText().compareTo(b.asText());
+  }
+
+  /**
+   * @param siblings Siblings
+   * @return the most recently modified sibling
+   */
+  protected static RiakObject newest(final List<RiakObject> siblings) {
+    return siblings.stream().max(LAST_MODIFIED).orElseThrow(IllegalArgumentException::new);
+  }
+}
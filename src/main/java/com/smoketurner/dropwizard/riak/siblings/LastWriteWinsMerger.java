@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.siblings;
+
+import com.basho.riak.client.core.query.RiakObject;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Keeps the sibling with the greatest {@code field}, such as an {@code updatedAt} timestamp, which
+ * may be a number or text that sorts in time order. Without a field, or when siblings tie, the most
+ * recently modified sibling wins.
+ */
+public class LastWriteWinsMerger extends JsonSiblingMerger {
+
+  @Override
+  protected RiakObject merge(final List<RiakObject> siblings, final RiakObject newest)
+      throws IOException {
+    if (getField() == null) {
+      return newest;
+    }
+    RiakObject winner = newest;
+    JsonNode latest = read(newest);
+    for (RiakObject sibling : siblings) {
+      final JsonNode value = read(sibling);
+      if (compare(value, latest) > 0) {
+        winner = sibling;
+        latest = value;
+      }
+    }
+    return winner;
+  }
+}
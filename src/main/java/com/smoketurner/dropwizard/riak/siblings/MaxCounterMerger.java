@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.siblings;
+
+import com.basho.riak.client.core.query.RiakObject;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Keeps the largest of the siblings' numeric values, for counters and high-water marks which only
+ * increase. With {@code field} set, the field takes the largest value and the rest of the object is
+ * taken from the most recently modified sibling.
+ */
+public class MaxCounterMerger extends JsonSiblingMerger {
+
+  @Override
+  protected RiakObject merge(final List<RiakObject> siblings, final RiakObject newest)
+      throws IOException {
+    JsonNode max = null;
+    for (RiakObject sibling : siblings) {
+      final JsonNode value = read(sibling);
+      if (value.isMissingNode()) {
+        continue;
+      }
+      if (!value.isNumber()) {
+        throw new IOException("Expected a JSON number, found " + value.getNodeType());
+      }
+      if (max == null || compare(value, max) > 0) {
+        max = value;
+      }
+    }
+    return max == null ? newest : write(newest, max);
+  }
+}
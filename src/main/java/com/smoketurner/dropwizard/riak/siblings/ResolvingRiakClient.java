@@ -0,0 +1,176 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.siblings;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.query.indexes.RawIndex;
+import com.basho.riak.client.core.query.indexes.RiakIndex;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.smoketurner.dropwizard.riak.batch.RiakBatchWriter;
+import com.smoketurner.dropwizard.riak.client.DelegatingRiakClient;
+import com.smoketurner.dropwizard.riak.client.SettableRiakFuture;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link RiakClient} which merges the siblings returned by {@link FetchValue} commands with the
+ * {@link SiblingResolver}, so callers receive a single value. Merged values are queued on a {@link
+ * RiakBatchWriter} to be written back with the fetched vector clock, so the next read doesn't pay
+ * for the merge again. A write-back is skipped if the writer is full or already has a write queued
+ * for the location, since the next fetch will merge the siblings again. The writer is not stopped
+ * by {@link #shutdown()}, since a draining cluster rejects the writes it flushes; it must be
+ * managed so it stops before the client, as {@code RiakBundle} does.
+ *
+ * <p>Write-backs are reported by the {@code <prefix>.siblings.write-backs} and {@code
+ * <prefix>.siblings.write-backs-skipped} meters.
+ */
+public class ResolvingRiakClient extends DelegatingRiakClient {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResolvingRiakClient.class);
+
+  private final SiblingResolver resolver;
+  @Nullable private final RiakBatchWriter writer;
+  private final Meter writeBacks;
+  private final Meter writeBacksSkipped;
+
+  /**
+   * Constructor
+   *
+   * @param delegate Riak client to execute commands with
+   * @param resolver Sibling resolver
+   * @param writer Batch writer to write merged values back with, or null to not write them back
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public ResolvingRiakClient(
+      final RiakClient delegate,
+      final SiblingResolver resolver,
+      @Nullable final RiakBatchWriter writer,
+      final MetricRegistry metrics,
+      final String prefix) {
+    super(delegate);
+    this.resolver = Objects.requireNonNull(resolver);
+    this.writer = writer;
+
+    final String name = name(prefix, "siblings");
+    this.writeBacks = metrics.meter(name(name, "write-backs"));
+    this.writeBacksSkipped = metrics.meter(name(name, "write-backs-skipped"));
+  }
+
+  /** @return the resolver used by this client */
+  public SiblingResolver getResolver() {
+    return resolver;
+  }
+
+  /** @return the batch writer merged values are written back with, if write-back is enabled */
+  public Optional<RiakBatchWriter> getWriter() {
+    return Optional.ofNullable(writer);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T, S> RiakFuture<T, S> executeAsync(final RiakCommand<T, S> command) {
+    if (command instanceof FetchValue) {
+      return (RiakFuture<T, S>) fetch((FetchValue) command);
+    }
+    return super.executeAsync(command);
+  }
+
+  private RiakFuture<FetchValue.Response, Location> fetch(final FetchValue command) {
+    final RiakFuture<FetchValue.Response, Location> future = super.executeAsync(command);
+    final SettableRiakFuture<FetchValue.Response, Location> result =
+        new SettableRiakFuture<>(future.getQueryInfo());
+    future.addListener(
+        f -> {
+          if (!f.isSuccess()) {
+            result.setFrom(f);
+            return;
+          }
+          // the riak client converts a new response on every call to getNow()
+          final FetchValue.Response response = f.getNow();
+          if (response.getNumberOfValues() > 1) {
+            try {
+              resolve(f.getQueryInfo(), response.getValues());
+            } catch (RuntimeException e) {
+              LOGGER.warn("Unable to resolve siblings of {}", f.getQueryInfo(), e);
+            }
+          }
+          result.set(response);
+        });
+    return result;
+  }
+
+  private void resolve(final Location location, final List<RiakObject> siblings) {
+    final RiakObject merged = resolver.resolve(location, siblings);
+    if (merged == null) {
+      return;
+    }
+    // the response's list is mutable, and every sibling carries the fetched vector clock
+    siblings.clear();
+    siblings.add(merged);
+
+    if (writer == null) {
+      return;
+    }
+    // callers may modify the object they receive, so write back a copy
+    if (writer.writeIfAbsent(location, copy(merged)).isPresent()) {
+      writeBacks.mark();
+    } else {
+      writeBacksSkipped.mark();
+    }
+  }
+
+  private static RiakObject copy(final RiakObject object) {
+    final RiakObject copy =
+        new RiakObject()
+            .setValue(object.getValue())
+            .setContentType(object.getContentType())
+            .setVClock(object.getVClock());
+    if (object.hasCharset()) {
+      copy.setCharset(object.getCharset());
+    }
+    if (object.hasLinks()) {
+      copy.getLinks().addLinks(object.getLinks().getLinks());
+    }
+    if (object.hasUserMeta()) {
+      for (Map.Entry<BinaryValue, BinaryValue> entry : object.getUserMeta().getUserMetadata()) {
+        copy.getUserMeta().put(entry.getKey(), entry.getValue());
+      }
+    }
+    if (object.hasIndexes()) {
+      for (RiakIndex<?> index : object.getIndexes()) {
+        copy.getIndexes()
+            .getIndex(RawIndex.named(index.getName(), index.getType()))
+            .add(index.rawValues());
+      }
+    }
+    return copy;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.siblings;
+
+import com.basho.riak.client.core.query.RiakObject;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Merges JSON arrays into the union of their elements, in the order they are first seen. Removals
+ * are lost when siblings are merged, so this suits grow-only sets.
+ */
+public class SetUnionMerger extends JsonSiblingMerger {
+
+  @Override
+  protected RiakObject merge(final List<RiakObject> siblings, final RiakObject newest)
+      throws IOException {
+    final Set<JsonNode> elements = new LinkedHashSet<>();
+    for (RiakObject sibling : siblings) {
+      final JsonNode value = read(sibling);
+      if (value.isArray()) {
+        value.forEach(elements::add);
+      } else if (!value.isMissingNode() && !value.isNull()) {
+        throw new IOException("Expected a JSON array, found " + value.getNodeType());
+      }
+    }
+    final ArrayNode union = JsonNodeFactory.instance.arrayNode();
+    union.addAll(elements);
+    return write(newest, union);
+  }
+}
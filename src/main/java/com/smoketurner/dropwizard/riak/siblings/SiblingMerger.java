@@ -0,0 +1,41 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.siblings;
+
+import com.basho.riak.client.core.query.RiakObject;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import java.io.IOException;
+import java.util.List;
+
+/** Merges the siblings of an object in an {@code allow_mult} bucket into a single value. */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+  @JsonSubTypes.Type(value = SetUnionMerger.class, name = "union"),
+  @JsonSubTypes.Type(value = LastWriteWinsMerger.class, name = "last-write-wins"),
+  @JsonSubTypes.Type(value = MaxCounterMerger.class, name = "max")
+})
+public interface SiblingMerger {
+
+  /**
+   * Merge siblings
+   *
+   * @param siblings At least two siblings, which may include tombstones
+   * @return the merged object, which may be one of the siblings
+   * @throws IOException if a sibling's value can't be read
+   */
+  RiakObject merge(List<RiakObject> siblings) throws IOException;
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.siblings;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.core.query.Namespace;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.smoketurner.dropwizard.riak.batch.BatchWriterFactory;
+import com.smoketurner.dropwizard.riak.batch.RiakBatchWriter;
+import java.util.Collections;
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+public class SiblingResolutionFactory {
+
+  @Valid @NotNull private List<SiblingRule> rules = Collections.emptyList();
+
+  private boolean writeBack = true;
+
+  @Valid @NotNull private BatchWriterFactory batch = new BatchWriterFactory();
+
+  @JsonProperty
+  public List<SiblingRule> getRules() {
+    return rules;
+  }
+
+  @JsonProperty
+  public void setRules(final List<SiblingRule> rules) {
+    this.rules = rules;
+  }
+
+  @JsonProperty
+  public boolean isWriteBack() {
+    return writeBack;
+  }
+
+  @JsonProperty
+  public void setWriteBack(final boolean writeBack) {
+    this.writeBack = writeBack;
+  }
+
+  @JsonProperty
+  public BatchWriterFactory getBatch() {
+    return batch;
+  }
+
+  @JsonProperty
+  public void setBatch(final BatchWriterFactory batch) {
+    this.batch = batch;
+  }
+
+  /**
+   * Wrap a client so the siblings it fetches are merged by the configured rules, and written back
+   * in batches if {@code writeBack} is enabled
+   *
+   * @param client Riak client to wrap, which is also used to write back merged values
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   * @return the resolving client
+   */
+  public ResolvingRiakClient build(
+      final RiakClient client, final MetricRegistry metrics, final String prefix) {
+    final SiblingResolver resolver = new SiblingResolver(metrics, prefix);
+    for (SiblingRule rule : rules) {
+      if (rule.getBucket() == null) {
+        resolver.register(rule.getBucketType(), rule.getMerger());
+      } else {
+        resolver.register(new Namespace(rule.getBucketType(), rule.getBucket()), rule.getMerger());
+      }
+    }
+    final RiakBatchWriter writer =
+        writeBack ? batch.build(client, metrics, name(prefix, "siblings")) : null;
+    return new ResolvingRiakClient(client, resolver, writer, metrics, prefix);
+  }
+}
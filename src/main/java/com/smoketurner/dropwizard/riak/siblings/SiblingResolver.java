@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.siblings;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.basho.riak.client.api.cap.ConflictResolver;
+import com.basho.riak.client.api.cap.UnresolvedConflictException;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.query.RiakObject;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A registry of {@link SiblingMerger}s by bucket type and bucket. A merger registered for a bucket
+ * takes precedence over one registered for its bucket type.
+ *
+ * <p>Metrics are named {@code <prefix>.siblings.count} (a histogram of the number of siblings of
+ * each object with more than one), {@code resolve} (a timer), {@code unresolved} (a meter of
+ * objects without a merger) and {@code failures} (a meter of merges which failed).
+ */
+public class SiblingResolver {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SiblingResolver.class);
+
+  private final ConcurrentMap<String, SiblingMerger> bucketTypes = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Namespace, SiblingMerger> buckets = new ConcurrentHashMap<>();
+  private final Histogram count;
+  private final Timer resolve;
+  private final Meter unresolved;
+  private final Meter failures;
+
+  /**
+   * Constructor
+   *
+   * @param metrics Metric registry
+   * @param prefix Metric name prefix
+   */
+  public SiblingResolver(final MetricRegistry metrics, final String prefix) {
+    final String name = name(prefix, "siblings");
+    this.count = metrics.histogram(name(name, "count"));
+    this.resolve = metrics.timer(name(name, "resolve"));
+    this.unresolved = metrics.meter(name(name, "unresolved"));
+    this.failures = metrics.meter(name(name, "failures"));
+  }
+
+  /**
+   * Register the merger for every bucket of a bucket type
+   *
+   * @param bucketType Bucket type
+   * @param merger Sibling merger
+   */
+  public void register(final String bucketType, final SiblingMerger merger) {
+    bucketTypes.put(Objects.requireNonNull(bucketType), Objects.requireNonNull(merger));
+  }
+
+  /**
+   * Register the merger for a bucket
+   *
+   * @param namespace Bucket type and bucket
+   * @param merger Sibling merger
+   */
+  public void register(final Namespace namespace, final SiblingMerger merger) {
+    buckets.put(Objects.requireNonNull(namespace), Objects.requireNonNull(merger));
+  }
+
+  /**
+   * Return the merger for a bucket
+   *
+   * @param namespace Bucket type and bucket
+   * @return the merger, or null if none is registered
+   */
+  @Nullable
+  public SiblingMerger getMerger(final Namespace namespace) {
+    final SiblingMerger merger = buckets.get(namespace);
+    return merger != null ? merger : bucketTypes.get(namespace.getBucketTypeAsString());
+  }
+
+  /**
+   * Merge the siblings of an object
+   *
+   * @param location Location of the object
+   * @param siblings Siblings of the object
+   * @return the merged object, or null if there is a single value, no merger or the merge failed
+   */
+  @Nullable
+  public RiakObject resolve(final Location location, final List<RiakObject> siblings) {
+    if (siblings.size() < 2) {
+      return null;
+    }
+    count.update(siblings.size());
+
+    final SiblingMerger merger = getMerger(location.getNamespace());
+    if (merger == null) {
+      unresolved.mark();
+      return null;
+    }
+
+    try (Timer.Context ignored = resolve.time()) {
+      return merger.merge(siblings);
+    } catch (IOException | RuntimeException e) {
+      failures.mark();
+      LOGGER.warn("Unable to merge {} siblings of {}", siblings.size(), location, e);
+      return null;
+    }
+  }
+
+  /**
+   * Adapt the merger for a bucket to the riak client's {@link ConflictResolver}, for use with
+   * {@code FetchValue.Response#getValue(Converter, ConflictResolver)}
+   *
+   * @param location Location of the objects to resolve
+   * @return a conflict resolver which fails if the siblings can't be merged
+   */
+  public ConflictResolver<RiakObject> conflictResolver(final Location location) {
+    return siblings -> {
+      if (siblings.isEmpty()) {
+        return null;
+      }
+      if (siblings.size() == 1) {
+        return siblings.get(0);
+      }
+      final RiakObject merged = resolve(location, siblings);
+      if (merged == null) {
+        throw new UnresolvedConflictException("Unable to merge siblings of " + location, siblings);
+      }
+      return merged;
+    };
+  }
+}
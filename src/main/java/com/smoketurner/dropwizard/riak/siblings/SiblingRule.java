@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.siblings;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import javax.annotation.Nullable;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import org.hibernate.validator.constraints.NotEmpty;
+
+/** Picks the merger for the siblings of a bucket type, or of a single bucket within it. */
+public class SiblingRule {
+
+  @NotEmpty private String bucketType = "default";
+
+  @Nullable private String bucket;
+
+  @Valid @NotNull private SiblingMerger merger = new LastWriteWinsMerger();
+
+  @JsonProperty
+  public String getBucketType() {
+    return bucketType;
+  }
+
+  @JsonProperty
+  public void setBucketType(final String bucketType) {
+    this.bucketType = bucketType;
+  }
+
+  @Nullable
+  @JsonProperty
+  public String getBucket() {
+    return bucket;
+  }
+
+  @JsonProperty
+  public void setBucket(@Nullable final String bucket) {
+    this.bucket = bucket;
+  }
+
+  @JsonProperty
+  public SiblingMerger getMerger() {
+    return merger;
+  }
+
+  @JsonProperty
+  public void setMerger(final SiblingMerger merger) {
+    this.merger = merger;
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.tracing;
+
+/**
+ * A span recording one Riak operation, started by a {@link RiakTracer}. Spans are ended on the
+ * thread which completes the operation, usually a Netty event loop, so implementations must not
+ * rely on the span being current on that thread.
+ */
+public interface RiakSpan {
+
+  /**
+   * Set a text attribute
+   *
+   * @param key Attribute name
+   * @param value Attribute value
+   */
+  void setAttribute(String key, String value);
+
+  /**
+   * Set a numeric attribute
+   *
+   * @param key Attribute name
+   * @param value Attribute value
+   */
+  void setAttribute(String key, long value);
+
+  /**
+   * Record an event at the current time
+   *
+   * @param name Event name
+   */
+  void addEvent(String name);
+
+  /**
+   * Mark the span as failed
+   *
+   * @param cause Failure cause
+   */
+  void recordException(Throwable cause);
+
+  /** End the span. */
+  void end();
+}
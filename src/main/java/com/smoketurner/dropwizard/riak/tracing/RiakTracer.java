@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.tracing;
+
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * Starts a {@link RiakSpan} for each operation sent to the cluster. Spans are started on the thread
+ * which executes the command, so an implementation backed by a tracing library which keeps the
+ * current context in a thread local, such as OpenTelemetry, parents them to the span of the Jersey
+ * request being served.
+ *
+ * <p>Implementations are found with {@link java.util.ServiceLoader}, so adding a jar which provides
+ * one enables tracing without any code changes.
+ */
+public interface RiakTracer {
+
+  /** A tracer which never starts a span. */
+  RiakTracer NOOP = name -> null;
+
+  /**
+   * Start a span
+   *
+   * @param name Span name
+   * @return the span, or null if the operation is not sampled
+   */
+  @Nullable
+  RiakSpan startSpan(String name);
+
+  /**
+   * Start a span, only building its name if the operation is sampled
+   *
+   * @param name Builds the span name
+   * @return the span, or null if the operation is not sampled
+   */
+  @Nullable
+  default RiakSpan startSpan(final Supplier<String> name) {
+    return startSpan(name.get());
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.tracing;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/** A {@link RiakTracer} which only starts spans for a random fraction of operations. */
+public class SamplingRiakTracer implements RiakTracer {
+
+  private final RiakTracer delegate;
+  private final double rate;
+
+  /**
+   * Constructor
+   *
+   * @param delegate Tracer to start sampled spans with
+   * @param rate Fraction of operations to sample, between 0 and 1
+   */
+  public SamplingRiakTracer(final RiakTracer delegate, final double rate) {
+    if (rate < 0.0 || rate > 1.0) {
+      throw new IllegalArgumentException("rate must be between 0 and 1");
+    }
+    this.delegate = Objects.requireNonNull(delegate);
+    this.rate = rate;
+  }
+
+  @Nullable
+  @Override
+  public RiakSpan startSpan(final String name) {
+    return sampled() ? delegate.startSpan(name) : null;
+  }
+
+  @Nullable
+  @Override
+  public RiakSpan startSpan(final Supplier<String> name) {
+    return sampled() ? delegate.startSpan(name) : null;
+  }
+
+  private boolean sampled() {
+    return rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate;
+  }
+}
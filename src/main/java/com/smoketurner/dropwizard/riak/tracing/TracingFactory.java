@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.tracing;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Iterator;
+import java.util.ServiceLoader;
+import javax.annotation.Nullable;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TracingFactory {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TracingFactory.class);
+
+  @DecimalMin("0.0")
+  @DecimalMax("1.0")
+  private double sampleRate = 1.0;
+
+  @Nullable @JsonIgnore private RiakTracer tracer;
+
+  @JsonProperty
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  @JsonProperty
+  public void setSampleRate(final double rate) {
+    this.sampleRate = rate;
+  }
+
+  @Nullable
+  @JsonIgnore
+  public RiakTracer getTracer() {
+    return tracer;
+  }
+
+  /**
+   * Use a tracer instead of looking one up with {@link ServiceLoader}
+   *
+   * @param tracer Tracer to start spans with
+   */
+  @JsonIgnore
+  public void setTracer(@Nullable final RiakTracer tracer) {
+    this.tracer = tracer;
+  }
+
+  /**
+   * Build the tracer, which is {@link RiakTracer#NOOP} if none was set or found on the classpath,
+   * or if the sample rate is zero
+   *
+   * @return the tracer
+   */
+  public RiakTracer build() {
+    RiakTracer delegate = tracer;
+    if (delegate == null) {
+      final Iterator<RiakTracer> tracers = ServiceLoader.load(RiakTracer.class).iterator();
+      if (!tracers.hasNext()) {
+        LOGGER.info("No RiakTracer found on the classpath, tracing is disabled");
+        return RiakTracer.NOOP;
+      }
+      delegate = tracers.next();
+      LOGGER.info("Tracing Riak operations with {}", delegate.getClass().getName());
+    }
+    if (sampleRate <= 0.0) {
+      return RiakTracer.NOOP;
+    }
+    return sampleRate < 1.0 ? new SamplingRiakTracer(delegate, sampleRate) : delegate;
+  }
+}
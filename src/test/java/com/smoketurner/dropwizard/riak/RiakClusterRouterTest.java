@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.google.common.collect.ImmutableMap;
+import java.util.Collections;
+import org.junit.Test;
+
+public class RiakClusterRouterTest {
+
+  private final RiakClient hot = mock(RiakClient.class);
+  private final RiakClient cold = mock(RiakClient.class);
+  private final ImmutableMap<String, RiakClient> clients =
+      ImmutableMap.of("hot", hot, "cold", cold);
+
+  @Test
+  public void testRoutesByBucketType() {
+    final RiakClusterRouter router =
+        new RiakClusterRouter(clients, ImmutableMap.of("archive", "cold"), "hot");
+
+    assertThat(router.getClient(new Namespace("archive", "events"))).isSameAs(cold);
+    assertThat(router.getClient(new Location(new Namespace("archive", "events"), "key")))
+        .isSameAs(cold);
+    assertThat(router.getClient(new Namespace("users"))).isSameAs(hot);
+    assertThat(router.getClient("cold")).isSameAs(cold);
+  }
+
+  @Test
+  public void testSingleClusterIsTheDefault() {
+    final RiakClusterRouter router =
+        new RiakClusterRouter(ImmutableMap.of("hot", hot), Collections.emptyMap(), null);
+
+    assertThat(router.getClient(new Namespace("users"))).isSameAs(hot);
+  }
+
+  @Test
+  public void testUnroutableBucketTypeFails() {
+    final RiakClusterRouter router =
+        new RiakClusterRouter(clients, ImmutableMap.of("archive", "cold"), null);
+
+    assertThatThrownBy(() -> router.getClient(new Namespace("users")))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("default");
+  }
+
+  @Test
+  public void testUnknownClusterFails() {
+    assertThatThrownBy(
+            () -> new RiakClusterRouter(clients, ImmutableMap.of("archive", "warm"), null))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Unknown Riak cluster: warm");
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.smoketurner.dropwizard.riak.testing.FakeRiakServer;
+import io.dropwizard.configuration.ConfigurationValidationException;
+import io.dropwizard.configuration.YamlConfigurationFactory;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.validation.Validators;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RiakClustersFactoryTest {
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private final YamlConfigurationFactory<RiakClustersFactory> configuration =
+      new YamlConfigurationFactory<>(
+          RiakClustersFactory.class, Validators.newValidator(), Jackson.newObjectMapper(), "dw");
+
+  @Test
+  public void testParsesClusters() throws Exception {
+    final RiakClustersFactory factory =
+        parse(
+            "defaultCluster: hot",
+            "bucketTypes:",
+            "  archive: cold",
+            "clusters:",
+            "  hot:",
+            "    nodes: [hot1:8087]",
+            "  cold:",
+            "    nodes: [cold1:8087]",
+            "    metricsPrefix: archive");
+
+    assertThat(factory.getClusters()).containsOnlyKeys("hot", "cold");
+    assertThat(factory.getBucketTypes()).containsEntry("archive", "cold");
+    assertThat(factory.getCluster("hot").getMetricsPrefix()).isEqualTo("riak.hot");
+    assertThat(factory.getCluster("cold").getMetricsPrefix()).isEqualTo("archive");
+  }
+
+  @Test
+  public void testRejectsRulesForUnknownClusters() {
+    assertThatThrownBy(
+            () ->
+                parse(
+                    "bucketTypes:",
+                    "  archive: warm",
+                    "clusters:",
+                    "  hot:",
+                    "    nodes: [hot1:8087]"))
+        .isInstanceOf(ConfigurationValidationException.class)
+        .hasMessageContaining("must refer to configured clusters");
+  }
+
+  @Test
+  public void testRejectsCompressionOnSomeClusters() {
+    assertThatThrownBy(
+            () ->
+                parse(
+                    "clusters:",
+                    "  hot:",
+                    "    nodes: [hot1:8087]",
+                    "    compression:",
+                    "      types: [java.lang.String]",
+                    "  cold:",
+                    "    nodes: [cold1:8087]"))
+        .isInstanceOf(ConfigurationValidationException.class)
+        .hasMessageContaining("compression must be configured identically");
+  }
+
+  @Test
+  public void testRejectsConflictingCompression() {
+    assertThatThrownBy(
+            () ->
+                parse(
+                    "clusters:",
+                    "  hot:",
+                    "    nodes: [hot1:8087]",
+                    "    compression:",
+                    "      types: [java.lang.String]",
+                    "  cold:",
+                    "    nodes: [cold1:8087]",
+                    "    compression:",
+                    "      level: 9",
+                    "      types: [java.lang.String]"))
+        .isInstanceOf(ConfigurationValidationException.class)
+        .hasMessageContaining("compression must be configured identically");
+  }
+
+  @Test
+  public void testBuildsSeparateClients() throws Exception {
+    try (FakeRiakServer hotServer = new FakeRiakServer();
+        FakeRiakServer coldServer = new FakeRiakServer()) {
+      final RiakFactory hot = new RiakFactory();
+      hot.setNodes(Collections.singletonList(hotServer.getAddress()));
+      hot.setMinConnections(1);
+      final RiakFactory cold = new RiakFactory();
+      cold.setNodes(Collections.singletonList(coldServer.getAddress()));
+      cold.setMinConnections(1);
+
+      final RiakClustersFactory factory = new RiakClustersFactory();
+      factory.setClusters(ImmutableMap.of("hot", hot, "cold", cold));
+      factory.setBucketTypes(ImmutableMap.of("archive", "cold"));
+      factory.setDefaultCluster("hot");
+
+      final MetricRegistry metrics = new MetricRegistry();
+      final RiakClusterRouter router = factory.buildRouter(metrics);
+      factory.getCluster("hot").buildClientManager(metrics).start();
+      factory.getCluster("cold").buildClientManager(metrics).start();
+      try {
+        final Location location = new Location(new Namespace("archive", "events"), "key");
+        router.getClient(location).execute(new FetchValue.Builder(location).build());
+
+        assertThat(coldServer.getRequestCount()).isEqualTo(1L);
+        assertThat(hotServer.getRequestCount()).isZero();
+        assertThat(metrics.getTimers())
+            .containsKey("riak.cold.FetchValue.requests")
+            .doesNotContainKey("riak.hot.FetchValue.requests");
+        assertThat(metrics.getGauges())
+            .containsKey("riak.hot.nodes." + hotServer.getAddress() + ".connections.max");
+      } finally {
+        for (RiakClient client : router.getClients().values()) {
+          client.shutdown().get(5, TimeUnit.SECONDS);
+        }
+      }
+    }
+  }
+
+  private RiakClustersFactory parse(final String... lines) throws Exception {
+    final File file = folder.newFile();
+    Files.write(file.toPath(), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    return configuration.build(file);
+  }
+}
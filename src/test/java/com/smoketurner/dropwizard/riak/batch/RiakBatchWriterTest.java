@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.batch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.codahale.metrics.MetricRegistry;
+import com.smoketurner.dropwizard.riak.client.SettableRiakFuture;
+import io.dropwizard.util.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RiakBatchWriterTest {
+
+  private final RiakClient client = mock(RiakClient.class);
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final Namespace namespace = new Namespace("maps", "users");
+  private final List<SettableRiakFuture<StoreValue.Response, Location>> stores = new ArrayList<>();
+  private final StoreValue.Response response = mock(StoreValue.Response.class);
+
+  private RiakBatchWriter writer;
+
+  @Before
+  public void setUp() {
+    when(client.executeAsync(any(StoreValue.class)))
+        .thenAnswer(
+            invocation -> {
+              final SettableRiakFuture<StoreValue.Response, Location> future =
+                  new SettableRiakFuture<>(null);
+              synchronized (stores) {
+                stores.add(future);
+              }
+              return future;
+            });
+    writer =
+        new RiakBatchWriter(
+            client, 3, Duration.minutes(1), 10, Duration.seconds(1), metrics, "riak");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    writer.flush();
+    synchronized (stores) {
+      stores.forEach(f -> f.set(response));
+    }
+    writer.stop();
+  }
+
+  @Test
+  public void testFlushStoresQueuedWrites() throws Exception {
+    final CompletableFuture<StoreValue.Response> first = writer.write(location("a"), value("1"));
+    final CompletableFuture<StoreValue.Response> second = writer.write(location("b"), value("2"));
+    assertThat(writer.getQueuedWrites()).isEqualTo(2);
+
+    final CompletableFuture<Void> batch = writer.flush();
+    verify(client, times(2)).executeAsync(any(StoreValue.class));
+    assertThat(writer.getQueuedWrites()).isZero();
+    assertThat(writer.getPendingWrites()).isEqualTo(2);
+    assertThat(batch).isNotDone();
+
+    stores.forEach(f -> f.set(response));
+
+    assertThat(first.get()).isSameAs(response);
+    assertThat(second.get()).isSameAs(response);
+    assertThat(batch).isCompleted();
+    assertThat(writer.getPendingWrites()).isZero();
+    assertThat(metrics.histogram("riak.batch.size").getSnapshot().getMax()).isEqualTo(2L);
+    assertThat(metrics.timer("riak.batch.flush").getCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testRepeatedWritesAreCoalesced() throws Exception {
+    final CompletableFuture<StoreValue.Response> first = writer.write(location("a"), value("1"));
+    final CompletableFuture<StoreValue.Response> second = writer.write(location("a"), value("2"));
+
+    assertThat(second).isSameAs(first);
+    assertThat(writer.getQueuedWrites()).isEqualTo(1);
+    assertThat(writer.getPendingWrites()).isEqualTo(1);
+    assertThat(metrics.meter("riak.batch.coalesced").getCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testFullBatchIsFlushed() throws Exception {
+    writer.write(location("a"), value("1"));
+    writer.write(location("b"), value("2"));
+    writer.write(location("c"), value("3"));
+
+    for (int i = 0; i < 100 && writer.getQueuedWrites() > 0; i++) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    verify(client, times(3)).executeAsync(any(StoreValue.class));
+  }
+
+  @Test
+  public void testFailedWriteFailsBatch() throws Exception {
+    final CompletableFuture<StoreValue.Response> write = writer.write(location("a"), value("1"));
+    final CompletableFuture<Void> batch = writer.flush();
+
+    stores.get(0).setException(new RuntimeException("boom"));
+
+    assertThat(write).isCompletedExceptionally();
+    assertThat(batch).isCompletedExceptionally();
+    assertThat(writer.getPendingWrites()).isZero();
+  }
+
+  @Test
+  public void testWriteIfAbsentKeepsQueuedWrite() throws Exception {
+    final CompletableFuture<StoreValue.Response> queued = writer.write(location("a"), value("1"));
+
+    assertThat(writer.writeIfAbsent(location("a"), value("2"))).isEmpty();
+    assertThat(writer.writeIfAbsent(location("b"), value("3"))).isPresent();
+    assertThat(writer.getQueuedWrites()).isEqualTo(2);
+    assertThat(queued).isNotDone();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testWriteAfterStop() throws Exception {
+    writer.stop();
+    writer.write(location("a"), value("1"));
+  }
+
+  private Location location(final String key) {
+    return new Location(namespace, key);
+  }
+
+  private static RiakObject value(final String value) {
+    return new RiakObject().setValue(BinaryValue.create(value));
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.benchmarks;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.codahale.metrics.MetricRegistry;
+import com.smoketurner.dropwizard.riak.RiakFactory;
+import com.smoketurner.dropwizard.riak.multiget.FetchResult;
+import com.smoketurner.dropwizard.riak.multiget.RiakMultiGet;
+import com.smoketurner.dropwizard.riak.testing.FakeRiakServer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the throughput and latency of the client built by {@link RiakFactory} against a {@link
+ * FakeRiakServer}, across connection pool and retry settings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class ClientBenchmark {
+
+  private static final int KEYS = 1000;
+  private static final int MULTI_GET_SIZE = 100;
+
+  private final Namespace namespace = new Namespace("benchmark");
+
+  @Param({"1", "10"})
+  public int minConnections;
+
+  @Param({"0", "10"})
+  public int maxConnections;
+
+  @Param({"1", "3"})
+  public int executionAttempts;
+
+  private FakeRiakServer server;
+  private RiakClient client;
+  private ExecutorService executor;
+  private RiakMultiGet multiGet;
+  private List<Location> locations;
+  private RiakObject value;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    server = new FakeRiakServer();
+
+    final RiakFactory factory = new RiakFactory();
+    factory.setNodes(Collections.singletonList(server.getAddress()));
+    factory.setMinConnections(minConnections);
+    factory.setMaxConnections(maxConnections);
+    factory.setExecutionAttempts(executionAttempts);
+
+    final MetricRegistry metrics = new MetricRegistry();
+    client = factory.build(metrics);
+    client.getRiakCluster().start();
+    executor = Executors.newFixedThreadPool(factory.getMultiGetConcurrency());
+    multiGet = factory.buildMultiGet(metrics, executor);
+
+    final byte[] bytes = new byte[1024];
+    ThreadLocalRandom.current().nextBytes(bytes);
+    value = new RiakObject().setValue(BinaryValue.unsafeCreate(bytes));
+
+    locations =
+        IntStream.range(0, KEYS)
+            .mapToObj(i -> new Location(namespace, "key-" + i))
+            .collect(Collectors.toList());
+    for (Location location : locations) {
+      client.execute(new StoreValue.Builder(value).withLocation(location).build());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    client.shutdown().get(5, TimeUnit.SECONDS);
+    executor.shutdown();
+    server.close();
+  }
+
+  @Benchmark
+  public FetchValue.Response fetch() throws Exception {
+    return client.execute(new FetchValue.Builder(randomLocation()).build());
+  }
+
+  @Benchmark
+  public StoreValue.Response store() throws Exception {
+    return client.execute(new StoreValue.Builder(value).withLocation(randomLocation()).build());
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public void multiGet(final Blackhole blackhole) throws Exception {
+    final int start = ThreadLocalRandom.current().nextInt(KEYS - MULTI_GET_SIZE);
+    multiGet
+        .fetch(
+            locations.subList(start, start + MULTI_GET_SIZE),
+            (FetchResult result) -> blackhole.consume(result))
+        .get();
+  }
+
+  private Location randomLocation() {
+    return locations.get(ThreadLocalRandom.current().nextInt(KEYS));
+  }
+
+  public static void main(String[] args) throws Exception {
+    final Options options =
+        new OptionsBuilder()
+            .include(ClientBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+    new Runner(options).run();
+  }
+}
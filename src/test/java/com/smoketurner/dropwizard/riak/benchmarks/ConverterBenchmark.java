@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.benchmarks;
+
+import com.basho.riak.client.api.convert.Converter;
+import com.basho.riak.client.api.convert.JSONConverter;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.smoketurner.dropwizard.riak.convert.CodecConverter;
+import com.smoketurner.dropwizard.riak.convert.JacksonCodec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the time and allocation of converting objects to and from stored values with the riak
+ * client's default {@link JSONConverter} and with a {@link CodecConverter}, for objects of
+ * increasing size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConverterBenchmark {
+
+  private static final Namespace NAMESPACE = new Namespace("benchmark");
+  private static final BinaryValue KEY = BinaryValue.create("key");
+
+  @Param({"1", "100", "1000"})
+  public int items;
+
+  private final Converter<Document> json = new JSONConverter<>(Document.class);
+  private final Converter<Document> codec =
+      new CodecConverter<>(
+          Document.class, JacksonCodec.json(JSONConverter.getObjectMapper(), Document.class));
+
+  private Document document;
+  private BinaryValue encoded;
+
+  @Setup
+  public void setUp() {
+    document = new Document();
+    for (int i = 0; i < items; i++) {
+      document.items.add("item-" + i);
+    }
+    encoded = json.fromDomain(document, NAMESPACE, KEY).getRiakObject().getValue();
+  }
+
+  @Benchmark
+  public Object encodeJsonConverter() {
+    return json.fromDomain(document, NAMESPACE, KEY);
+  }
+
+  @Benchmark
+  public Object encodeCodecConverter() {
+    return codec.fromDomain(document, NAMESPACE, KEY);
+  }
+
+  @Benchmark
+  public Document decodeJsonConverter() {
+    return json.toDomain(encoded, "application/json");
+  }
+
+  @Benchmark
+  public Document decodeCodecConverter() {
+    return codec.toDomain(encoded, "application/json");
+  }
+
+  public static class Document {
+    @JsonProperty public String id = "document";
+    @JsonProperty public List<String> items = new ArrayList<>();
+  }
+
+  public static void main(String[] args) throws Exception {
+    final Options options =
+        new OptionsBuilder()
+            .include(ConverterBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.benchmarks;
+
+import com.basho.riak.client.api.RiakClient;
+import com.codahale.metrics.MetricRegistry;
+import com.smoketurner.dropwizard.riak.RiakFactory;
+import com.smoketurner.dropwizard.riak.cluster.ConnectionWarmupFactory;
+import com.smoketurner.dropwizard.riak.testing.FakeRiakServer;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the time taken to build a client with {@link RiakFactory} and start its cluster, which
+ * opens {@code minConnections} connections to every node, either one at a time as the nodes start
+ * or in parallel when {@code warmup} is enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class FactoryBenchmark {
+
+  @Param({"1", "10", "50"})
+  public int minConnections;
+
+  @Param({"false", "true"})
+  public boolean warmup;
+
+  private FakeRiakServer server;
+  private RiakClient client;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    server = new FakeRiakServer();
+  }
+
+  @TearDown(Level.Iteration)
+  public void shutdown() throws Exception {
+    if (client != null) {
+      client.shutdown().get(5, TimeUnit.SECONDS);
+      client = null;
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    server.close();
+  }
+
+  @Benchmark
+  public RiakClient buildAndStart() throws Exception {
+    final RiakFactory factory = new RiakFactory();
+    factory.setNodes(Collections.singletonList(server.getAddress()));
+    factory.setMinConnections(minConnections);
+    if (warmup) {
+      factory.setWarmup(new ConnectionWarmupFactory());
+    }
+    final MetricRegistry metrics = new MetricRegistry();
+    client = factory.build(metrics);
+    factory.buildClientManager(metrics).start();
+    return client;
+  }
+
+  public static void main(String[] args) throws Exception {
+    final Options options =
+        new OptionsBuilder()
+            .include(FactoryBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.benchmarks;
+
+import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.RiakNode;
+import com.basho.riak.client.core.operations.FetchOperation;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.smoketurner.dropwizard.riak.cluster.SlowOperationLog;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of recording an operation in the {@link SlowOperationLog}, both for operations
+ * under the threshold, which are the common case, and for slow operations written to the ring
+ * buffer by concurrent threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class SlowOperationLogBenchmark {
+
+  private final SlowOperationLog log = new SlowOperationLog(100, 1000);
+  private RiakNode node;
+  private FutureOperation<?, ?, ?> operation;
+
+  @Setup
+  public void setUp() throws Exception {
+    node = new RiakNode.Builder().withRemoteAddress("riak1").build();
+    operation =
+        new FetchOperation.Builder(new Location(new Namespace("maps", "users"), "a")).build();
+  }
+
+  @Benchmark
+  public boolean fast() {
+    return log.record(operation, node, 1, 500);
+  }
+
+  @Benchmark
+  public boolean slow() {
+    return log.record(operation, node, 1, 5000);
+  }
+
+  public static void main(String[] args) throws Exception {
+    final Options options =
+        new OptionsBuilder()
+            .include(SlowOperationLogBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.benchmarks;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.codahale.metrics.MetricRegistry;
+import com.smoketurner.dropwizard.riak.RiakFactory;
+import com.smoketurner.dropwizard.riak.client.RiakSyncClient;
+import com.smoketurner.dropwizard.riak.client.SyncClientFactory;
+import com.smoketurner.dropwizard.riak.testing.FakeRiakServer;
+import io.dropwizard.util.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the throughput of {@code CALLERS} concurrent blocking callers, each running on its own
+ * virtual thread when the JVM supports them (and a platform thread otherwise), fetching through
+ * either the plain client with {@code blockOnMaxConnections} enabled or the {@link RiakSyncClient}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SyncClientBenchmark {
+
+  private static final int CALLERS = 10_000;
+  private static final int MAX_CONNECTIONS = 64;
+
+  @Param({"client", "sync"})
+  public String mode;
+
+  private final Location location = new Location(new Namespace("benchmark"), "key");
+
+  private FakeRiakServer server;
+  private RiakClient client;
+  private RiakSyncClient syncClient;
+  private ExecutorService executor;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    server = new FakeRiakServer();
+
+    final RiakFactory factory = new RiakFactory();
+    factory.setNodes(Collections.singletonList(server.getAddress()));
+    factory.setMaxConnections(MAX_CONNECTIONS);
+    factory.setBlockOnMaxConnections(true);
+    final SyncClientFactory sync = new SyncClientFactory();
+    sync.setMaxConcurrentOperations(MAX_CONNECTIONS);
+    sync.setAcquireTimeout(Duration.seconds(30));
+    factory.setSync(sync);
+
+    final MetricRegistry metrics = new MetricRegistry();
+    client = factory.build(metrics);
+    client.getRiakCluster().start();
+    syncClient = factory.buildSyncClient(metrics);
+    executor = newThreadPerTaskExecutor();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+    client.shutdown().get(5, TimeUnit.SECONDS);
+    server.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CALLERS)
+  public void fetch() throws Exception {
+    final boolean useSync = "sync".equals(mode);
+    final List<Future<FetchValue.Response>> futures = new ArrayList<>(CALLERS);
+    for (int i = 0; i < CALLERS; i++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                final FetchValue command = new FetchValue.Builder(location).build();
+                return useSync ? syncClient.execute(command) : client.execute(command);
+              }));
+    }
+    for (Future<FetchValue.Response> future : futures) {
+      future.get();
+    }
+  }
+
+  /**
+   * Use {@code Executors.newVirtualThreadPerTaskExecutor()} on JDK 21 and later, which isn't
+   * available to compile against here, and a platform thread per task otherwise.
+   */
+  private static ExecutorService newThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    final Options options =
+        new OptionsBuilder()
+            .include(SyncClientBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.core.RiakCluster;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.CacheBuilder;
+import com.smoketurner.dropwizard.riak.client.SettableRiakFuture;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachingRiakClientTest {
+
+  private final RiakClient delegate = mock(RiakClient.class);
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final Location location = new Location(new Namespace("maps", "users"), "key");
+  private final FetchValue fetch = new FetchValue.Builder(location).build();
+  private final StoreValue store = new StoreValue.Builder("value").withLocation(location).build();
+  private final FetchValue.Response response = mock(FetchValue.Response.class);
+
+  private CachingRiakClient client;
+
+  @Before
+  public void setUp() {
+    when(delegate.getRiakCluster()).thenReturn(mock(RiakCluster.class));
+    when(response.getValues()).thenReturn(Collections.emptyList());
+    when(delegate.executeAsync(fetch))
+        .thenAnswer(invocation -> SettableRiakFuture.completed(response, location));
+    when(delegate.executeAsync(any(StoreValue.class)))
+        .thenAnswer(invocation -> SettableRiakFuture.completed(null, location));
+    client =
+        new CachingRiakClient(
+            delegate, CacheBuilder.newBuilder().maximumWeight(1024), metrics, "riak");
+  }
+
+  @Test
+  public void testRepeatedFetchIsCached() throws Exception {
+    assertThat(client.execute(fetch)).isSameAs(response);
+    assertThat(client.execute(fetch)).isSameAs(response);
+
+    verify(delegate, times(1)).executeAsync(fetch);
+    assertThat(metrics.getGauges().get("riak.cache.hits").getValue()).isEqualTo(1L);
+    assertThat(metrics.getGauges().get("riak.cache.size").getValue()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testStoreInvalidatesLocation() throws Exception {
+    client.execute(fetch);
+    client.execute(store);
+    client.execute(fetch);
+
+    verify(delegate, times(2)).executeAsync(fetch);
+    assertThat(metrics.meter("riak.cache.invalidations").getCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testFailedFetchIsNotCached() throws Exception {
+    final RiakFuture<FetchValue.Response, Location> failed =
+        SettableRiakFuture.failed(new RuntimeException("boom"), location);
+    when(delegate.executeAsync(fetch)).thenReturn(failed);
+
+    assertThat(client.executeAsync(fetch).isSuccess()).isFalse();
+    assertThat(metrics.getGauges().get("riak.cache.size").getValue()).isEqualTo(0L);
+  }
+}
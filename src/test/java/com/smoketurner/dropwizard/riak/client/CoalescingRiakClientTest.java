@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.cap.Quorum;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.core.RiakCluster;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CoalescingRiakClientTest {
+
+  private final RiakClient delegate = mock(RiakClient.class);
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final Location location = new Location(new Namespace("maps", "users"), "key");
+  private final FetchValue.Response response = mock(FetchValue.Response.class);
+
+  private SettableRiakFuture<FetchValue.Response, Location> future;
+  private CoalescingRiakClient client;
+
+  @Before
+  public void setUp() {
+    when(delegate.getRiakCluster()).thenReturn(mock(RiakCluster.class));
+    when(delegate.executeAsync(fetch()))
+        .thenAnswer(
+            invocation -> {
+              future = new SettableRiakFuture<>(location);
+              return future;
+            });
+    client = new CoalescingRiakClient(delegate, metrics, "riak");
+  }
+
+  @Test
+  public void testConcurrentFetchesAreCollapsed() throws Exception {
+    final RiakFuture<FetchValue.Response, Location> first = client.executeAsync(fetch());
+    final RiakFuture<FetchValue.Response, Location> second = client.executeAsync(fetch());
+
+    verify(delegate, times(1)).executeAsync(fetch());
+    assertThat(second.isDone()).isFalse();
+
+    future.set(response);
+
+    assertThat(first.get()).isSameAs(response);
+    assertThat(second.get()).isSameAs(response);
+    assertThat(second.getQueryInfo()).isEqualTo(location);
+    assertThat(metrics.meter("riak.FetchValue.collapsed").getCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testCompletedFetchIsNotShared() throws Exception {
+    client.executeAsync(fetch());
+    future.set(response);
+    client.executeAsync(fetch());
+
+    verify(delegate, times(2)).executeAsync(fetch());
+    assertThat(metrics.meter("riak.FetchValue.collapsed").getCount()).isZero();
+  }
+
+  @Test
+  public void testDifferentOptionsAreNotCollapsed() throws Exception {
+    final FetchValue other =
+        new FetchValue.Builder(location)
+            .withOption(FetchValue.Option.R, Quorum.oneQuorum())
+            .build();
+    when(delegate.executeAsync(other)).thenReturn(new SettableRiakFuture<>(location));
+
+    client.executeAsync(fetch());
+    client.executeAsync(other);
+
+    verify(delegate).executeAsync(other);
+    assertThat(metrics.meter("riak.FetchValue.collapsed").getCount()).isZero();
+  }
+
+  @Test
+  public void testFailureIsShared() throws Exception {
+    client.executeAsync(fetch());
+    final RiakFuture<FetchValue.Response, Location> second = client.executeAsync(fetch());
+
+    future.setException(new RuntimeException("boom"));
+
+    assertThat(second.isSuccess()).isFalse();
+    assertThat(second.cause()).hasMessage("boom");
+  }
+
+  private FetchValue fetch() {
+    return new FetchValue.Builder(location).build();
+  }
+}
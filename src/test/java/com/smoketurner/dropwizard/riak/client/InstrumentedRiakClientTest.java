@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.core.RiakCluster;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.RiakFutureListener;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.codahale.metrics.MetricRegistry;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InstrumentedRiakClientTest {
+
+  private final RiakClient delegate = mock(RiakClient.class);
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final Location location = new Location(new Namespace("maps", "users"), "key");
+  private final FetchValue command = new FetchValue.Builder(location).build();
+  private final AtomicReference<RiakFutureListener<FetchValue.Response, Location>> listener =
+      new AtomicReference<>();
+
+  @SuppressWarnings("unchecked")
+  private final RiakFuture<FetchValue.Response, Location> future = mock(RiakFuture.class);
+
+  private InstrumentedRiakClient client;
+
+  @Before
+  public void setUp() {
+    when(delegate.getRiakCluster()).thenReturn(mock(RiakCluster.class));
+    when(delegate.executeAsync(command)).thenReturn(future);
+    when(future.getQueryInfo()).thenReturn(location);
+    doAnswer(
+            invocation -> {
+              listener.set(invocation.getArgument(0));
+              return null;
+            })
+        .when(future)
+        .addListener(any());
+    client = new InstrumentedRiakClient(delegate, metrics, "riak");
+  }
+
+  @Test
+  public void testSuccess() {
+    assertThat(client.executeAsync(command)).isSameAs(future);
+    assertThat(metrics.counter("riak.FetchValue.in-flight").getCount()).isEqualTo(1L);
+
+    when(future.isSuccess()).thenReturn(true);
+    listener.get().handle(future);
+
+    assertThat(metrics.counter("riak.FetchValue.in-flight").getCount()).isZero();
+    assertThat(metrics.timer("riak.FetchValue.requests").getCount()).isEqualTo(1L);
+    assertThat(metrics.meter("riak.FetchValue.errors").getCount()).isZero();
+    assertThat(metrics.timer("riak.FetchValue.maps.users.requests").getCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testFailure() {
+    client.executeAsync(command);
+
+    when(future.isSuccess()).thenReturn(false);
+    listener.get().handle(future);
+
+    assertThat(metrics.counter("riak.FetchValue.in-flight").getCount()).isZero();
+    assertThat(metrics.meter("riak.FetchValue.errors").getCount()).isEqualTo(1L);
+    assertThat(metrics.meter("riak.FetchValue.maps.users.errors").getCount()).isEqualTo(1L);
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.indexes.BinIndexQuery;
+import com.basho.riak.client.api.commands.indexes.SecondaryIndexQuery;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.util.BinaryValue;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class RiakAsyncClientTest {
+
+  private final RiakClient client = mock(RiakClient.class);
+  private final RiakAsyncClient asyncClient = new RiakAsyncClient(client);
+  private final Namespace namespace = new Namespace("maps", "users");
+  private final Location location = new Location(namespace, "a");
+
+  @Test
+  public void testCompletesFromListener() throws Exception {
+    final SettableRiakFuture<FetchValue.Response, Location> future =
+        new SettableRiakFuture<>(location);
+    when(client.executeAsync(any(FetchValue.class))).thenReturn(future);
+    final FetchValue.Response response = mock(FetchValue.Response.class);
+
+    final CompletableFuture<FetchValue.Response> result =
+        asyncClient.execute(new FetchValue.Builder(location).build());
+    assertThat(result).isNotDone();
+
+    future.set(response);
+    assertThat(result).isCompletedWithValue(response);
+  }
+
+  @Test
+  public void testPropagatesFailure() {
+    final IOException cause = new IOException("failed");
+    when(client.executeAsync(any(FetchValue.class)))
+        .thenReturn(SettableRiakFuture.failed(cause, location));
+
+    assertThatThrownBy(() -> asyncClient.execute(new FetchValue.Builder(location).build()).get())
+        .isInstanceOf(ExecutionException.class)
+        .hasCause(cause);
+  }
+
+  @Test
+  public void testCancelCancelsRiakFuture() {
+    final SettableRiakFuture<FetchValue.Response, Location> future =
+        new SettableRiakFuture<>(location);
+    when(client.executeAsync(any(FetchValue.class))).thenReturn(future);
+
+    final CompletableFuture<FetchValue.Response> result =
+        asyncClient.execute(new FetchValue.Builder(location).build());
+    assertThat(result.cancel(false)).isTrue();
+
+    assertThat(result).isCancelled();
+    assertThat(future.isCancelled()).isTrue();
+  }
+
+  @Test
+  public void testQueryConsumesEveryPage() throws Exception {
+    final BinIndexQuery.Response first = page(BinaryValue.create("c1"), "a", "b");
+    final BinIndexQuery.Response second = page(null, "c");
+    when(client.executeAsync(any(BinIndexQuery.class)))
+        .thenReturn(SettableRiakFuture.completed(first, null))
+        .thenReturn(SettableRiakFuture.completed(second, null));
+    final List<String> keys = new ArrayList<>();
+
+    final CompletableFuture<Long> result =
+        asyncClient.query(
+            continuation ->
+                new BinIndexQuery.Builder(namespace, "email", "x")
+                    .withContinuation(continuation)
+                    .build(),
+            entry -> keys.add(entry.getRiakObjectLocation().getKeyAsString()));
+
+    assertThat(result.get()).isEqualTo(3L);
+    assertThat(keys).containsExactly("a", "b", "c");
+  }
+
+  @Test
+  public void testCancelledQueryStopsRequestingPages() {
+    final SettableRiakFuture<BinIndexQuery.Response, BinIndexQuery> first =
+        new SettableRiakFuture<>(null);
+    when(client.executeAsync(any(BinIndexQuery.class))).thenReturn(first);
+
+    final CompletableFuture<Long> result =
+        asyncClient.query(
+            continuation ->
+                new BinIndexQuery.Builder(namespace, "email", "x")
+                    .withContinuation(continuation)
+                    .build(),
+            entry -> {});
+    final BinIndexQuery.Response page = page(BinaryValue.create("c1"), "a");
+    result.cancel(false);
+    first.set(page);
+
+    verify(client, times(1)).executeAsync(any(BinIndexQuery.class));
+  }
+
+  @SuppressWarnings("unchecked")
+  private BinIndexQuery.Response page(final BinaryValue continuation, final String... keys) {
+    final List<SecondaryIndexQuery.Response.Entry<String>> entries =
+        Arrays.stream(keys)
+            .map(
+                key -> {
+                  final SecondaryIndexQuery.Response.Entry<String> entry =
+                      mock(SecondaryIndexQuery.Response.Entry.class);
+                  when(entry.getRiakObjectLocation()).thenReturn(new Location(namespace, key));
+                  return entry;
+                })
+            .collect(Collectors.toList());
+
+    final BinIndexQuery.Response response = mock(BinIndexQuery.Response.class);
+    when(response.iterator()).thenAnswer(invocation -> entries.iterator());
+    when(response.hasContinuation()).thenReturn(continuation != null);
+    when(response.getContinuation()).thenReturn(continuation);
+    return response;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.smoketurner.dropwizard.riak.testing.FakeRiakServerRule;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class RiakSyncClientTest {
+
+  @Rule public final FakeRiakServerRule riak = new FakeRiakServerRule();
+
+  private final Location location = new Location(new Namespace("users"), "a");
+
+  @Test
+  public void testExecutesCommands() throws Exception {
+    final RiakSyncClient client = build(2, 1000);
+    client.execute(
+        new StoreValue.Builder(new RiakObject().setValue(BinaryValue.create("value")))
+            .withLocation(location)
+            .build());
+
+    final FetchValue.Response response = client.execute(new FetchValue.Builder(location).build());
+    assertThat(response.getValue(RiakObject.class).getValue().toString()).isEqualTo("value");
+    assertThat(client.getAvailablePermits()).isEqualTo(2);
+    assertThat(riak.getMetrics().timer("riak.sync.acquire").getCount()).isEqualTo(2L);
+  }
+
+  @Test
+  public void testRejectsCallersOverLimit() throws Exception {
+    final RiakSyncClient client = build(1, 10);
+    riak.getServer().setLatency(500, TimeUnit.MILLISECONDS);
+
+    final CompletableFuture<FetchValue.Response> first =
+        CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return client.execute(new FetchValue.Builder(location).build());
+              } catch (Exception e) {
+                throw new IllegalStateException(e);
+              }
+            });
+    while (client.getAvailablePermits() > 0) {
+      Thread.sleep(1);
+    }
+
+    assertThatThrownBy(() -> client.execute(new FetchValue.Builder(location).build()))
+        .isInstanceOf(TimeoutException.class);
+    assertThat(riak.getMetrics().meter("riak.sync.rejected").getCount()).isEqualTo(1L);
+    assertThat(first.get(5, TimeUnit.SECONDS).isNotFound()).isTrue();
+    assertThat(client.getAvailablePermits()).isEqualTo(1);
+  }
+
+  @Test
+  public void testTimesOutWaitingForResponse() throws Exception {
+    final RiakSyncClient client = build(1, 1000);
+    riak.getServer().setLatency(500, TimeUnit.MILLISECONDS);
+
+    assertThatThrownBy(
+            () ->
+                client.execute(new FetchValue.Builder(location).build(), 10, TimeUnit.MILLISECONDS))
+        .isInstanceOf(TimeoutException.class);
+    assertThat(riak.getMetrics().meter("riak.sync.timeouts").getCount()).isEqualTo(1L);
+    // the permit is held until the command completes
+    assertThat(client.getAvailablePermits()).isZero();
+  }
+
+  private RiakSyncClient build(final int permits, final long acquireTimeoutMillis)
+      throws Exception {
+    return new RiakSyncClient(
+        riak.getClient(),
+        permits,
+        TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis),
+        TimeUnit.SECONDS.toNanos(5),
+        riak.getMetrics(),
+        "riak");
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+  private final CircuitBreaker breaker =
+      new CircuitBreaker(0.5, 4, TimeUnit.SECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(20));
+
+  @Test
+  public void testStaysClosedBelowMinimumRequests() {
+    record(false);
+    record(false);
+    record(false);
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(breaker.tryAcquire()).isNotNull();
+  }
+
+  @Test
+  public void testOpensOnFailureRate() {
+    record(true);
+    record(false);
+    record(true);
+    record(false);
+
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(breaker.tryAcquire()).isNull();
+  }
+
+  @Test
+  public void testTrialClosesBreaker() throws Exception {
+    open();
+    Thread.sleep(30);
+
+    final CircuitBreaker.Permit trial = breaker.tryAcquire();
+    assertThat(trial).isNotNull();
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    // only one trial at a time
+    assertThat(breaker.tryAcquire()).isNull();
+
+    trial.record(true);
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  public void testFailedTrialReopensBreaker() throws Exception {
+    open();
+    Thread.sleep(30);
+
+    final CircuitBreaker.Permit trial = breaker.tryAcquire();
+    assertThat(trial).isNotNull();
+    trial.record(false);
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(breaker.tryAcquire()).isNull();
+  }
+
+  @Test
+  public void testCancelledTrialAllowsAnother() throws Exception {
+    open();
+    Thread.sleep(30);
+
+    final CircuitBreaker.Permit trial = breaker.tryAcquire();
+    assertThat(trial).isNotNull();
+    trial.cancel();
+    assertThat(breaker.tryAcquire()).isNotNull();
+  }
+
+  @Test
+  public void testLateResponseIsNotTakenForTrial() throws Exception {
+    final CircuitBreaker.Permit stale = breaker.tryAcquire();
+    open();
+    Thread.sleep(30);
+
+    final CircuitBreaker.Permit trial = breaker.tryAcquire();
+    assertThat(trial).isNotNull();
+
+    // a response to an operation admitted while the breaker was closed arrives during the trial
+    stale.record(true);
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    stale.cancel();
+    assertThat(breaker.tryAcquire()).isNull();
+
+    trial.record(false);
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+  }
+
+  private void record(final boolean success) {
+    breaker.tryAcquire().record(success);
+  }
+
+  private void open() {
+    for (int i = 0; i < 4; i++) {
+      record(false);
+    }
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+  private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 4, THRESHOLD, 0.5);
+
+  @Test
+  public void testRejectsAboveLimit() {
+    assertThat(limiter.tryAcquire()).isTrue();
+    assertThat(limiter.tryAcquire()).isTrue();
+    assertThat(limiter.tryAcquire()).isFalse();
+    assertThat(limiter.getInFlight()).isEqualTo(2);
+
+    limiter.cancel();
+    assertThat(limiter.tryAcquire()).isTrue();
+  }
+
+  @Test
+  public void testIncreasesWhileFastAndBusy() {
+    for (int i = 0; i < 10; i++) {
+      limiter.tryAcquire();
+      limiter.tryAcquire();
+      limiter.release(1000, true);
+      limiter.release(1000, true);
+    }
+    assertThat(limiter.getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  public void testDecreasesOnSlowResponse() {
+    limiter.tryAcquire();
+    limiter.release(THRESHOLD + 1, true);
+    assertThat(limiter.getLimit()).isEqualTo(1);
+
+    // never below the minimum
+    limiter.tryAcquire();
+    limiter.release(1000, false);
+    assertThat(limiter.getLimit()).isEqualTo(1);
+  }
+
+  @Test
+  public void testAwaitAvailable() throws Exception {
+    limiter.tryAcquire();
+    limiter.tryAcquire();
+    assertThat(limiter.awaitAvailable(TimeUnit.MILLISECONDS.toNanos(10))).isFalse();
+
+    final CompletableFuture<Boolean> waiter =
+        CompletableFuture.supplyAsync(() -> limiter.awaitAvailable(TimeUnit.SECONDS.toNanos(5)));
+    limiter.cancel();
+    assertThat(waiter.get(5, TimeUnit.SECONDS)).isTrue();
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.basho.riak.client.core.RiakNode;
+import com.smoketurner.dropwizard.riak.testing.FakeRiakServerRule;
+import io.dropwizard.util.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ConnectionWarmerTest {
+
+  @Rule
+  public final FakeRiakServerRule riak =
+      new FakeRiakServerRule(
+          factory -> {
+            factory.setMinConnections(4);
+            factory.setWarmup(new ConnectionWarmupFactory());
+            factory.getWarmup().setTimeout(Duration.milliseconds(200));
+          });
+
+  @Test
+  public void testWarmsConnectionsOnStart() throws Exception {
+    riak.getClient();
+
+    final RiakNode node = riak.getClient().getRiakCluster().getNodes().get(0);
+    assertThat(node.getMinConnections()).isEqualTo(4);
+    // the server registers accepted connections asynchronously
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+    while (riak.getServer().getConnectionCount() < 4 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertThat(riak.getServer().getConnectionCount()).isEqualTo(4);
+    assertThat(riak.getMetrics().counter("riak.startup.connections").getCount()).isEqualTo(4L);
+    assertThat(riak.getMetrics().counter("riak.startup.failures").getCount()).isZero();
+    assertThat(riak.getMetrics().timer("riak.startup.cluster").getCount()).isEqualTo(1L);
+    assertThat(riak.getMetrics().timer("riak.startup.warmup").getCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testStopsWaitingAfterTimeout() throws Exception {
+    riak.getServer().setLatency(1, TimeUnit.SECONDS);
+
+    riak.getClient();
+
+    // timed by the warmup timer, so building the client on a cold JVM isn't included
+    assertThat(riak.getMetrics().timer("riak.startup.warmup").getSnapshot().getMax())
+        .isLessThan(TimeUnit.MILLISECONDS.toNanos(900));
+    assertThat(riak.getMetrics().counter("riak.startup.connections").getCount()).isZero();
+  }
+}
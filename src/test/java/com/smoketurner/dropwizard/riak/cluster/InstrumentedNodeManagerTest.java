@@ -0,0 +1,427 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.RiakFutureListener;
+import com.basho.riak.client.core.RiakNode;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.codahale.metrics.MetricRegistry;
+import com.smoketurner.dropwizard.riak.tracing.RiakSpan;
+import com.smoketurner.dropwizard.riak.tracing.RiakTracer;
+import io.dropwizard.util.Duration;
+import io.netty.util.concurrent.FastThreadLocalThread;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InstrumentedNodeManagerTest {
+
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final RiakNode node1 = mock(RiakNode.class);
+  private final RiakNode node2 = mock(RiakNode.class);
+  private final FutureOperation<?, ?, ?> operation = mock(FutureOperation.class);
+  private final InstrumentedNodeManager manager = new InstrumentedNodeManager(metrics, "riak");
+
+  @Before
+  public void setUp() {
+    when(node1.getRemoteAddress()).thenReturn("riak1");
+    when(node1.getPort()).thenReturn(8087);
+    when(node2.getRemoteAddress()).thenReturn("riak2");
+    when(node2.getPort()).thenReturn(8087);
+    manager.init(Arrays.asList(node1, node2));
+  }
+
+  @Test
+  public void testRegistersGauges() {
+    when(node1.getMaxConnections()).thenReturn(10);
+    when(node1.availablePermits()).thenReturn(7);
+
+    assertThat(metrics.getGauges().get("riak.nodes.riak1:8087.connections.available").getValue())
+        .isEqualTo(7);
+    assertThat(metrics.getGauges().get("riak.nodes.riak1:8087.connections.in-use").getValue())
+        .isEqualTo(3);
+    assertThat(metrics.getGauges().get("riak.nodes.riak1:8087.connections.max").getValue())
+        .isEqualTo(10);
+  }
+
+  @Test
+  public void testShuttingDownNodeReportsZero() {
+    when(node1.availablePermits()).thenThrow(new IllegalStateException());
+
+    assertThat(metrics.getGauges().get("riak.nodes.riak1:8087.connections.available").getValue())
+        .isEqualTo(0);
+  }
+
+  @Test
+  public void testExecuteFallsBackToNextNode() {
+    when(node1.execute(any())).thenReturn(false);
+    when(node2.execute(any())).thenReturn(true);
+
+    assertThat(manager.executeOnNode(operation, null)).isTrue();
+    assertThat(manager.executeOnNode(operation, null)).isTrue();
+    assertThat(metrics.timer("riak.nodes.riak2:8087.connections.acquire").getCount()).isEqualTo(2L);
+  }
+
+  @Test
+  public void testUnhealthyNodeIsSkipped() {
+    manager.nodeStateChanged(node1, RiakNode.State.HEALTH_CHECKING);
+    when(node2.execute(any())).thenReturn(true);
+
+    assertThat(manager.executeOnNode(operation, null)).isTrue();
+    assertThat(manager.executeOnNode(operation, null)).isTrue();
+    verify(node1, never()).execute(any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testTracksOutstandingOperations() {
+    final AtomicReference<RiakFutureListener<Object, Object>> listener = new AtomicReference<>();
+    doAnswer(
+            invocation -> {
+              listener.set(invocation.getArgument(0));
+              return null;
+            })
+        .when(operation)
+        .addListener(any());
+    when(node1.execute(any())).thenReturn(true);
+
+    assertThat(manager.executeOnNode(operation, null)).isTrue();
+    assertThat(metrics.getGauges().get("riak.nodes.riak1:8087.outstanding").getValue())
+        .isEqualTo(1);
+
+    listener.get().handle((RiakFuture<Object, Object>) operation);
+    assertThat(metrics.getGauges().get("riak.nodes.riak1:8087.outstanding").getValue())
+        .isEqualTo(0);
+  }
+
+  @Test
+  public void testRetryAvoidsPreviousNodeAndPenalizesIt() {
+    when(node1.execute(any())).thenReturn(true);
+    when(node2.execute(any())).thenReturn(true);
+
+    assertThat(manager.executeOnNode(operation, null)).isTrue();
+    // the rotation now points at riak2, which is skipped because it was used last
+    assertThat(manager.executeOnNode(operation, node2)).isTrue();
+
+    verify(node1, times(2)).execute(operation);
+    verify(node2, never()).execute(operation);
+    assertThat(manager.stats(node1).getLatency()).isGreaterThan(1e8);
+    assertThat(manager.stats(node1).getOutstanding()).isEqualTo(1);
+  }
+
+  @Test
+  public void testConcurrencyLimitShedsExcessOperations() {
+    final ConcurrencyLimitFactory limit = new ConcurrencyLimitFactory();
+    limit.setInitialLimit(1);
+    final InstrumentedNodeManager limited =
+        new InstrumentedNodeManager(
+            metrics, "limited", NodeSelectionStrategy.ROUND_ROBIN, limit, null);
+    limited.init(Arrays.asList(node1, node2));
+    when(node1.execute(any())).thenReturn(true);
+    when(node2.execute(any())).thenReturn(true);
+
+    assertThat(limited.executeOnNode(operation, null)).isTrue();
+    assertThat(limited.executeOnNode(mock(FutureOperation.class), null)).isTrue();
+    assertThat(limited.executeOnNode(mock(FutureOperation.class), null)).isFalse();
+
+    assertThat(metrics.getGauges().get("limited.nodes.riak1:8087.limiter.in-flight").getValue())
+        .isEqualTo(1);
+    assertThat(metrics.meter("limited.nodes.riak1:8087.limiter.rejected").getCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testEventLoopThreadDoesNotWaitForSlot() throws Exception {
+    final ConcurrencyLimitFactory limit = new ConcurrencyLimitFactory();
+    limit.setInitialLimit(1);
+    limit.setMaxWait(Duration.seconds(10));
+    final InstrumentedNodeManager limited =
+        new InstrumentedNodeManager(
+            metrics, "limited", NodeSelectionStrategy.ROUND_ROBIN, limit, null);
+    limited.init(Arrays.asList(node1, node2));
+    when(node1.execute(any())).thenReturn(true);
+    when(node2.execute(any())).thenReturn(true);
+    assertThat(limited.executeOnNode(operation, null)).isTrue();
+    assertThat(limited.executeOnNode(mock(FutureOperation.class), null)).isTrue();
+
+    final CompletableFuture<Boolean> executed = new CompletableFuture<>();
+    new FastThreadLocalThread(
+            () -> executed.complete(limited.executeOnNode(mock(FutureOperation.class), null)))
+        .start();
+
+    assertThat(executed.get(1, TimeUnit.SECONDS)).isFalse();
+  }
+
+  @Test
+  public void testWithoutWaitingShedsOperationAndItsRetries() throws Exception {
+    final ConcurrencyLimitFactory limit = new ConcurrencyLimitFactory();
+    limit.setInitialLimit(1);
+    limit.setMaxWait(Duration.seconds(10));
+    final InstrumentedNodeManager limited =
+        new InstrumentedNodeManager(
+            metrics, "limited", NodeSelectionStrategy.ROUND_ROBIN, limit, null);
+    limited.init(Arrays.asList(node1, node2));
+    when(node1.execute(any())).thenReturn(true);
+    when(node2.execute(any())).thenReturn(true);
+    assertThat(limited.executeOnNode(mock(FutureOperation.class), null)).isTrue();
+    assertThat(limited.executeOnNode(mock(FutureOperation.class), null)).isTrue();
+
+    final long start = System.nanoTime();
+    assertThat(InstrumentedNodeManager.withoutWaiting(() -> limited.executeOnNode(operation, null)))
+        .isEmpty();
+    // the cluster's retry runs on another thread, but must not wait either
+    assertThat(limited.executeOnNode(operation, node1)).isFalse();
+    assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+
+    assertThat(InstrumentedNodeManager.withoutWaiting(() -> "done")).contains("done");
+  }
+
+  @Test
+  public void testOpenCircuitBreakerSkipsNode() {
+    final CircuitBreakerFactory circuitBreaker = new CircuitBreakerFactory();
+    circuitBreaker.setMinimumRequests(1);
+    final InstrumentedNodeManager guarded =
+        new InstrumentedNodeManager(
+            metrics, "guarded", NodeSelectionStrategy.ROUND_ROBIN, null, circuitBreaker);
+    guarded.init(Arrays.asList(node1, node2));
+    when(node1.execute(any())).thenReturn(true);
+    when(node2.execute(any())).thenReturn(true);
+
+    // a retry records the failure of the first attempt against riak1
+    assertThat(guarded.executeOnNode(operation, null)).isTrue();
+    assertThat(guarded.executeOnNode(operation, node1)).isTrue();
+    assertThat(guarded.getCircuitBreakerStates())
+        .containsEntry("riak1:8087", CircuitBreaker.State.OPEN)
+        .containsEntry("riak2:8087", CircuitBreaker.State.CLOSED);
+    assertThat(metrics.getGauges().get("guarded.nodes.riak1:8087.circuit-breaker.open").getValue())
+        .isEqualTo(1);
+
+    for (int i = 0; i < 4; i++) {
+      assertThat(guarded.executeOnNode(mock(FutureOperation.class), null)).isTrue();
+    }
+    verify(node1, times(1)).execute(any());
+  }
+
+  @Test
+  public void testDrainRejectsNewOperations() {
+    when(node1.execute(any())).thenReturn(true);
+    when(node2.execute(any())).thenReturn(true);
+    assertThat(manager.executeOnNode(operation, null)).isTrue();
+
+    assertThat(manager.drain(20, TimeUnit.MILLISECONDS)).isEqualTo(1);
+    assertThat(manager.isDraining()).isTrue();
+    assertThat(manager.executeOnNode(mock(FutureOperation.class), null)).isFalse();
+    // in-flight operations can still be retried
+    assertThat(manager.executeOnNode(operation, node1)).isTrue();
+    assertThat(metrics.counter("riak.drain.abandoned").getCount()).isEqualTo(1L);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDrainWaitsForInFlightOperations() throws Exception {
+    final AtomicReference<RiakFutureListener<Object, Object>> listener = new AtomicReference<>();
+    doAnswer(
+            invocation -> {
+              listener.set(invocation.getArgument(0));
+              return null;
+            })
+        .when(operation)
+        .addListener(any());
+    when(node1.execute(any())).thenReturn(true);
+    assertThat(manager.executeOnNode(operation, null)).isTrue();
+
+    final CompletableFuture<Integer> drained =
+        CompletableFuture.supplyAsync(() -> manager.drain(5, TimeUnit.SECONDS));
+    Thread.sleep(50);
+    assertThat(drained.isDone()).isFalse();
+
+    listener.get().handle((RiakFuture<Object, Object>) operation);
+    assertThat(drained.get(5, TimeUnit.SECONDS)).isZero();
+    assertThat(metrics.counter("riak.drain.completed").getCount()).isEqualTo(1L);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testTracesAttempts() {
+    final RiakTracer tracer = mock(RiakTracer.class);
+    final RiakSpan span = mock(RiakSpan.class);
+    when(tracer.startSpan(any(Supplier.class))).thenReturn(span);
+    final InstrumentedNodeManager traced =
+        new InstrumentedNodeManager(
+            metrics, "traced", NodeSelectionStrategy.ROUND_ROBIN, null, null, tracer);
+    traced.init(Arrays.asList(node1, node2));
+    final List<RiakFutureListener<Object, Object>> listeners = listeners(operation);
+    when(operation.getQueryInfo()).thenReturn(new Location(new Namespace("maps", "users"), "a"));
+    when(node1.execute(any())).thenReturn(true);
+    when(node2.execute(any())).thenReturn(true);
+
+    assertThat(traced.executeOnNode(operation, null)).isTrue();
+    assertThat(traced.executeOnNode(operation, node1)).isTrue();
+    verify(span, never()).end();
+
+    listeners.forEach(l -> l.handle((RiakFuture<Object, Object>) operation));
+    verify(tracer, times(1)).startSpan(any(Supplier.class));
+    verify(span).setAttribute("riak.bucket_type", "maps");
+    verify(span).setAttribute("riak.bucket", "users");
+    verify(span).setAttribute("net.peer.name", "riak2");
+    verify(span).addEvent("retry");
+    verify(span).setAttribute("riak.attempts", 2L);
+    verify(span).setAttribute(eq("riak.wire_ns"), any(Long.class));
+    verify(span, never()).recordException(any());
+    verify(span).end();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRejectedOperationEndsSpan() {
+    final RiakTracer tracer = mock(RiakTracer.class);
+    final RiakSpan span = mock(RiakSpan.class);
+    when(tracer.startSpan(any(Supplier.class))).thenReturn(span);
+    final InstrumentedNodeManager traced =
+        new InstrumentedNodeManager(
+            metrics, "traced", NodeSelectionStrategy.ROUND_ROBIN, null, null, tracer);
+    traced.init(Arrays.asList(node1, node2));
+    final List<RiakFutureListener<Object, Object>> listeners = listeners(operation);
+
+    assertThat(traced.executeOnNode(operation, null)).isFalse();
+    // the span ends once the cluster fails the operation
+    verify(span, never()).end();
+
+    listeners.forEach(l -> l.handle((RiakFuture<Object, Object>) operation));
+    verify(span).addEvent("rejected");
+    verify(span).setAttribute("riak.attempts", 1L);
+    verify(span, never()).setAttribute(eq("riak.wire_ns"), any(Long.class));
+    verify(span).end();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRequeuedOperationKeepsItsSpan() {
+    final RiakTracer tracer = mock(RiakTracer.class);
+    final RiakSpan span = mock(RiakSpan.class);
+    when(tracer.startSpan(any(Supplier.class)))
+        .thenReturn(mock(RiakSpan.class), mock(RiakSpan.class), span);
+    final ConcurrencyLimitFactory limit = new ConcurrencyLimitFactory();
+    limit.setInitialLimit(1);
+    final InstrumentedNodeManager traced =
+        new InstrumentedNodeManager(
+            metrics, "traced", NodeSelectionStrategy.ROUND_ROBIN, limit, null, tracer);
+    traced.init(Arrays.asList(node1, node2));
+    when(node1.execute(any())).thenReturn(true);
+    when(node2.execute(any())).thenReturn(true);
+    final FutureOperation<?, ?, ?> first = mock(FutureOperation.class);
+    final List<RiakFutureListener<Object, Object>> firstListeners = listeners(first);
+    final List<RiakFutureListener<Object, Object>> listeners = listeners(operation);
+
+    // every node is at its limit, so the cluster requeues the operation
+    assertThat(traced.executeOnNode(first, null)).isTrue();
+    assertThat(traced.executeOnNode(mock(FutureOperation.class), null)).isTrue();
+    assertThat(traced.executeOnNode(operation, null)).isFalse();
+    verify(span, never()).end();
+
+    firstListeners.forEach(l -> l.handle((RiakFuture<Object, Object>) first));
+    assertThat(traced.executeOnNode(operation, null)).isTrue();
+    listeners.forEach(l -> l.handle((RiakFuture<Object, Object>) operation));
+
+    // one span for each of the three operations
+    verify(tracer, times(3)).startSpan(any(Supplier.class));
+    verify(span).addEvent("rejected");
+    verify(span).addEvent("retry");
+    verify(span).setAttribute("riak.attempts", 2L);
+    verify(span, never()).recordException(any());
+    verify(span).end();
+  }
+
+  /** Capture the listeners added to an operation */
+  @SuppressWarnings("unchecked")
+  private static List<RiakFutureListener<Object, Object>> listeners(
+      final FutureOperation<?, ?, ?> operation) {
+    final List<RiakFutureListener<Object, Object>> listeners = new ArrayList<>();
+    doAnswer(
+            invocation -> {
+              listeners.add(invocation.getArgument(0));
+              return null;
+            })
+        .when(operation)
+        .addListener(any());
+    return listeners;
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRecordsSlowOperations() throws Exception {
+    final SlowOperationLog slowLog = new SlowOperationLog(10, 0);
+    final InstrumentedNodeManager logged =
+        new InstrumentedNodeManager(
+            metrics,
+            "logged",
+            NodeSelectionStrategy.ROUND_ROBIN,
+            null,
+            null,
+            RiakTracer.NOOP,
+            slowLog);
+    logged.init(Arrays.asList(node1, node2));
+    final AtomicReference<RiakFutureListener<Object, Object>> listener = new AtomicReference<>();
+    doAnswer(
+            invocation -> {
+              listener.set(invocation.getArgument(0));
+              return null;
+            })
+        .when(operation)
+        .addListener(any());
+    when(node1.execute(any())).thenReturn(true);
+    when(node2.execute(any())).thenReturn(true);
+
+    assertThat(logged.executeOnNode(operation, null)).isTrue();
+    assertThat(logged.executeOnNode(operation, node1)).isTrue();
+    listener.get().handle((RiakFuture<Object, Object>) operation);
+
+    assertThat(logged.getSlowOperationLog()).contains(slowLog);
+    assertThat(slowLog.getOperations()).hasSize(1);
+    assertThat(slowLog.getOperations().get(0).getAttempts()).isEqualTo(2);
+    assertThat(slowLog.getOperations().get(0).getNode()).isEqualTo("riak2:8087");
+    assertThat(metrics.getTimers().keySet())
+        .anyMatch(name -> name.startsWith("logged.nodes.riak2:8087.operations."));
+    assertThat(manager.getSlowOperationLog()).isEmpty();
+  }
+
+  @Test
+  public void testRemoveNodeUnregistersMetrics() {
+    assertThat(manager.removeNode(node1)).isTrue();
+
+    verify(node1).shutdown();
+    assertThat(metrics.getGauges()).doesNotContainKey("riak.nodes.riak1:8087.connections.max");
+    assertThat(metrics.getGauges()).containsKey("riak.nodes.riak2:8087.connections.max");
+  }
+}
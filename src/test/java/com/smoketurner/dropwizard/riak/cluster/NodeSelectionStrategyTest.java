@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.basho.riak.client.core.RiakNode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NodeSelectionStrategyTest {
+
+  private final RiakNode fast = mock(RiakNode.class);
+  private final RiakNode slow = mock(RiakNode.class);
+  private final RiakNode busy = mock(RiakNode.class);
+  private final List<RiakNode> nodes = Arrays.asList(slow, fast, busy);
+  private final Map<RiakNode, NodeStats> stats = new HashMap<>();
+
+  @Before
+  public void setUp() {
+    nodes.forEach(node -> stats.put(node, new NodeStats()));
+    record(fast, 5);
+    record(slow, 500);
+    record(busy, 5);
+    stats.get(busy).start();
+    stats.get(busy).start();
+  }
+
+  @Test
+  public void testRoundRobin() {
+    assertThat(NodeSelectionStrategy.ROUND_ROBIN.select(nodes, 4, stats::get)).isEqualTo(4);
+  }
+
+  @Test
+  public void testLeastOutstanding() {
+    // slow and fast are tied, so the rotation decides
+    assertThat(NodeSelectionStrategy.LEAST_OUTSTANDING.select(nodes, 0, stats::get)).isEqualTo(0);
+    assertThat(NodeSelectionStrategy.LEAST_OUTSTANDING.select(nodes, 1, stats::get)).isEqualTo(1);
+    assertThat(NodeSelectionStrategy.LEAST_OUTSTANDING.select(nodes, 2, stats::get)).isEqualTo(0);
+  }
+
+  @Test
+  public void testEwma() {
+    for (int rotation = 0; rotation < 3; rotation++) {
+      assertThat(NodeSelectionStrategy.EWMA.select(nodes, rotation, stats::get)).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void testPowerOfTwoChoicesNeverPicksWorstNode() {
+    for (int i = 0; i < 100; i++) {
+      assertThat(NodeSelectionStrategy.POWER_OF_TWO_CHOICES.select(nodes, i, stats::get))
+          .isNotEqualTo(0);
+    }
+  }
+
+  private void record(final RiakNode node, final long millis) {
+    stats.get(node).start();
+    stats.get(node).complete(TimeUnit.MILLISECONDS.toNanos(millis), true);
+  }
+}
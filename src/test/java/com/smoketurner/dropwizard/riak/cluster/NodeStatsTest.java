@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class NodeStatsTest {
+
+  private final NodeStats stats = new NodeStats();
+
+  @Test
+  public void testOutstanding() {
+    stats.start();
+    stats.start();
+    assertThat(stats.getOutstanding()).isEqualTo(2);
+
+    stats.complete(1000, true);
+    stats.cancel();
+    assertThat(stats.getOutstanding()).isZero();
+  }
+
+  @Test
+  public void testSlowSampleReplacesAverage() {
+    stats.start();
+    stats.complete(TimeUnit.MILLISECONDS.toNanos(10), true);
+    stats.start();
+    stats.complete(TimeUnit.MILLISECONDS.toNanos(200), true);
+
+    assertThat(stats.getLatency()).isCloseTo(TimeUnit.MILLISECONDS.toNanos(200), within(1e6));
+  }
+
+  @Test
+  public void testFastSampleLowersAverageGradually() {
+    stats.start();
+    stats.complete(TimeUnit.MILLISECONDS.toNanos(200), true);
+    stats.start();
+    stats.complete(TimeUnit.MILLISECONDS.toNanos(10), true);
+
+    assertThat(stats.getLatency()).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(100));
+  }
+
+  @Test
+  public void testConstantSamplesConvergeToSample() {
+    final long sample = TimeUnit.MILLISECONDS.toNanos(5);
+    for (int i = 0; i < 100_000; i++) {
+      stats.start();
+      stats.complete(sample, true);
+    }
+
+    assertThat(stats.getLatency()).isCloseTo(sample, within(sample * 0.01));
+  }
+
+  @Test
+  public void testFailureIsPenalized() {
+    stats.start();
+    stats.complete(1000, false);
+
+    assertThat(stats.getLatency())
+        .isCloseTo(NodeStats.FAILURE_PENALTY_NANOS, within(NodeStats.FAILURE_PENALTY_NANOS * 0.01));
+  }
+
+  @Test
+  public void testScoreIncludesOutstanding() {
+    stats.start();
+    stats.complete(TimeUnit.MILLISECONDS.toNanos(10), true);
+    final double idle = stats.getScore();
+
+    stats.start();
+    assertThat(stats.getScore()).isGreaterThan(idle * 1.9);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.RiakNode;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.google.common.collect.ImmutableMultimap;
+import io.dropwizard.jackson.Jackson;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SlowOperationLogTest {
+
+  private final RiakNode node = mock(RiakNode.class);
+  private final FutureOperation<?, ?, ?> operation = mock(FutureOperation.class);
+  private final SlowOperationLog log = new SlowOperationLog(3, 100);
+
+  @Before
+  public void setUp() {
+    when(node.getRemoteAddress()).thenReturn("riak1");
+    when(node.getPort()).thenReturn(8087);
+    when(operation.getQueryInfo()).thenReturn(new Location(new Namespace("maps", "users"), "a"));
+  }
+
+  @Test
+  public void testIgnoresFastOperations() {
+    assertThat(log.record(operation, node, 1, 99)).isFalse();
+    assertThat(log.getOperations()).isEmpty();
+  }
+
+  @Test
+  public void testRecordsSlowOperations() {
+    assertThat(log.record(operation, node, 2, 150)).isTrue();
+
+    final SlowOperation slow = log.getOperations().get(0);
+    assertThat(slow.getBucketType()).isEqualTo("maps");
+    assertThat(slow.getBucket()).isEqualTo("users");
+    assertThat(slow.getKey()).isEqualTo("a");
+    assertThat(slow.getNode()).isEqualTo("riak1:8087");
+    assertThat(slow.getAttempts()).isEqualTo(2);
+    assertThat(slow.getDurationNanos()).isEqualTo(150L);
+    assertThat(slow.getSize()).isEqualTo(-1L);
+  }
+
+  @Test
+  public void testKeepsMostRecentSlowestFirst() {
+    log.record(operation, node, 1, 1000);
+    log.record(operation, node, 1, 200);
+    log.record(operation, node, 1, 400);
+    log.record(operation, node, 1, 300);
+
+    assertThat(
+            log.getOperations().stream()
+                .map(SlowOperation::getDurationNanos)
+                .collect(Collectors.toList()))
+        .containsExactly(400L, 300L, 200L);
+
+    log.clear();
+    assertThat(log.getOperations()).isEmpty();
+  }
+
+  @Test
+  public void testTaskPrintsJsonAndClears() throws Exception {
+    log.record(operation, node, 1, 150);
+    final StringWriter output = new StringWriter();
+
+    new SlowOperationsTask("riak-slow-operations", log, Jackson.newObjectMapper())
+        .execute(ImmutableMultimap.of("clear", "true"), new PrintWriter(output));
+
+    assertThat(output.toString()).contains("\"key\" : \"a\"").contains("\"node\" : \"riak1:8087\"");
+    assertThat(log.getOperations()).isEmpty();
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.compression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.api.convert.Converter;
+import com.basho.riak.client.api.convert.ConverterFactory;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Strings;
+import com.smoketurner.dropwizard.riak.testing.FakeRiakServerRule;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class CompressingRiakClientTest {
+
+  private static final String TEXT = Strings.repeat("compressible ", 200);
+
+  @Rule
+  public final FakeRiakServerRule riak =
+      new FakeRiakServerRule(
+          factory -> {
+            final CompressionFactory compression = new CompressionFactory();
+            compression.setTypes(Collections.singletonList(Document.class));
+            factory.setCompression(compression);
+          });
+
+  private final Location location = new Location(new Namespace("documents"), "doc");
+
+  @After
+  public void tearDown() {
+    ConverterFactory.getInstance().unregisterConverterForClass(Document.class);
+  }
+
+  @Test
+  public void testStoresCompressedAndReadsTransparently() throws Exception {
+    final RiakClient client = riak.getClient();
+    client.execute(new StoreValue.Builder(new Document(TEXT)).withLocation(location).build());
+
+    final RiakObject stored = raw(client).getValue(RiakObject.class);
+    assertThat(ValueCompressor.isCompressed(stored)).isTrue();
+    assertThat(stored.getValue().length()).isLessThan(TEXT.length());
+
+    final FetchValue.Response response = client.execute(new FetchValue.Builder(location).build());
+    assertThat(response.getValue(Document.class).text).isEqualTo(TEXT);
+    assertThat(ValueCompressor.isCompressed(response.getValues().get(0))).isFalse();
+    assertThat(riak.getMetrics().counter("riak.compression.bytes-saved").getCount()).isPositive();
+  }
+
+  @Test
+  public void testReadsUncompressedValues() throws Exception {
+    final RiakClient client = riak.getClient();
+    final RiakObject legacy =
+        new RiakObject()
+            .setContentType("application/json")
+            .setValue(BinaryValue.create("{\"text\":\"legacy\"}"));
+    client.execute(new StoreValue.Builder(legacy).withLocation(location).build());
+
+    final FetchValue.Response response = client.execute(new FetchValue.Builder(location).build());
+    assertThat(response.getValue(Document.class).text).isEqualTo("legacy");
+  }
+
+  @Test
+  public void testConvertsValuesWithDelegate() throws Exception {
+    riak.getClient();
+    final Converter<Document> converter =
+        ConverterFactory.getInstance().getConverter(Document.class);
+    assertThat(converter).isInstanceOf(CompressingConverter.class);
+
+    final Object converted = converter.fromDomain(new Document("text"));
+    assertThat(converted).isNotNull();
+  }
+
+  @Test
+  public void testRejectsConflictingSettings() throws Exception {
+    riak.getClient();
+    final ValueCompressor other = new ValueCompressor(1, 9, riak.getMetrics(), "other");
+
+    assertThatThrownBy(() -> CompressingConverter.register(Document.class, other))
+        .isInstanceOf(IllegalStateException.class);
+    final ValueCompressor same = new ValueCompressor(1024, 6, riak.getMetrics(), "same");
+    assertThat(CompressingConverter.register(Document.class, same))
+        .isSameAs(ConverterFactory.getInstance().getConverter(Document.class));
+  }
+
+  private FetchValue.Response raw(final RiakClient client) throws Exception {
+    return new RiakClient(client.getRiakCluster())
+        .execute(new FetchValue.Builder(location).build());
+  }
+
+  public static class Document {
+    @JsonProperty public String text;
+
+    public Document() {}
+
+    Document(final String text) {
+      this.text = text;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.compression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.basho.riak.client.api.convert.ConversionException;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Strings;
+import java.util.Random;
+import org.junit.Test;
+
+public class ValueCompressorTest {
+
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final ValueCompressor compressor = new ValueCompressor(100, 6, metrics, "riak");
+
+  @Test
+  public void testRoundTrip() {
+    final String json = "{\"items\":[" + Strings.repeat("\"item\",", 500) + "\"item\"]}";
+    final RiakObject object = new RiakObject().setValue(BinaryValue.create(json));
+
+    assertThat(compressor.compress(object)).isTrue();
+    assertThat(ValueCompressor.isCompressed(object)).isTrue();
+    assertThat(object.getValue().length()).isLessThan(json.length());
+    assertThat(metrics.counter("riak.compression.bytes-saved").getCount())
+        .isEqualTo((long) json.length() - object.getValue().length());
+    assertThat(metrics.histogram("riak.compression.ratio").getSnapshot().getMax()).isLessThan(10L);
+
+    assertThat(compressor.decompress(object)).isTrue();
+    assertThat(ValueCompressor.isCompressed(object)).isFalse();
+    assertThat(object.getValue().toStringUtf8()).isEqualTo(json);
+    assertThat(metrics.timer("riak.compression.decompress").getCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testSmallValuesAreNotCompressed() {
+    final RiakObject object = new RiakObject().setValue(BinaryValue.create("{}"));
+
+    assertThat(compressor.compress(object)).isFalse();
+    assertThat(object.getValue().toStringUtf8()).isEqualTo("{}");
+    assertThat(object.hasUserMeta()).isFalse();
+    assertThat(metrics.meter("riak.compression.skipped").getCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testIncompressibleValuesAreNotCompressed() {
+    final byte[] random = new byte[1000];
+    new Random(0).nextBytes(random);
+    final RiakObject object = new RiakObject().setValue(BinaryValue.create(random));
+
+    assertThat(compressor.compress(object)).isFalse();
+    assertThat(object.getValue().unsafeGetValue()).isEqualTo(random);
+    assertThat(ValueCompressor.isCompressed(object)).isFalse();
+  }
+
+  @Test
+  public void testUnmarkedValuesAreReadUnchanged() {
+    // starts with the gzip magic number, but was not written compressed
+    final byte[] legacy = {0x1f, (byte) 0x8b, 1, 2, 3};
+    final RiakObject object = new RiakObject().setValue(BinaryValue.create(legacy));
+
+    assertThat(compressor.decompress(object)).isFalse();
+    assertThat(object.getValue().unsafeGetValue()).isEqualTo(legacy);
+  }
+
+  @Test
+  public void testCorruptValuesFail() {
+    final RiakObject object = new RiakObject().setValue(BinaryValue.create("not gzip"));
+    object.getUserMeta().put(ValueCompressor.CONTENT_ENCODING, ValueCompressor.GZIP);
+
+    assertThatThrownBy(() -> compressor.decompress(object)).isInstanceOf(ConversionException.class);
+  }
+}
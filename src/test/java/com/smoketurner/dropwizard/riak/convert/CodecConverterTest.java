@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.convert;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.basho.riak.client.api.convert.ConversionException;
+import com.basho.riak.client.api.convert.Converter;
+import com.basho.riak.client.api.convert.ConverterFactory;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+
+public class CodecConverterTest {
+
+  private final ObjectMapper mapper = Jackson.newObjectMapper();
+  private final CodecConverter<User> converter =
+      new CodecConverter<>(User.class, JacksonCodec.json(mapper, User.class));
+
+  @After
+  public void tearDown() {
+    ConverterFactory.getInstance().unregisterConverterForClass(User.class);
+  }
+
+  @Test
+  public void testRoundTrip() {
+    final RiakObject object =
+        converter
+            .fromDomain(new User("alice", 42), new Namespace("users"), BinaryValue.create("alice"))
+            .getRiakObject();
+
+    assertThat(object.getContentType()).isEqualTo("application/json");
+    assertThat(object.getValue().toStringUtf8()).isEqualTo("{\"name\":\"alice\",\"age\":42}");
+    final User user = converter.toDomain(object.getValue(), object.getContentType());
+    assertThat(user.name).isEqualTo("alice");
+    assertThat(user.age).isEqualTo(42);
+  }
+
+  @Test
+  public void testDecodesWithoutCopying() {
+    final AtomicReference<byte[]> decoded = new AtomicReference<>();
+    final CodecConverter<String> strings =
+        new CodecConverter<>(
+            String.class,
+            new RiakCodec<String>() {
+              @Override
+              public String getContentType() {
+                return "text/plain";
+              }
+
+              @Override
+              public void encode(final String value, final OutputStream output) throws IOException {
+                output.write(value.getBytes(StandardCharsets.UTF_8));
+              }
+
+              @Override
+              public String decode(final byte[] data, final int offset, final int length) {
+                decoded.set(data);
+                return new String(data, offset, length, StandardCharsets.UTF_8);
+              }
+            });
+    final BinaryValue value = BinaryValue.create("hello");
+
+    assertThat(strings.toDomain(value, "text/plain")).isEqualTo("hello");
+    assertThat(decoded.get()).isSameAs(value.unsafeGetValue());
+  }
+
+  @Test
+  public void testFailuresAreConversionExceptions() {
+    assertThatThrownBy(() -> converter.toDomain(BinaryValue.create("{"), "application/json"))
+        .isInstanceOf(ConversionException.class);
+  }
+
+  @Test
+  public void testRegistersWithConverterFactory() {
+    final CodecConverter<User> registered =
+        CodecConverter.register(User.class, JacksonCodec.json(mapper, User.class));
+
+    final Converter<User> found = ConverterFactory.getInstance().getConverter(User.class);
+    assertThat(found).isSameAs(registered);
+  }
+
+  @Test
+  public void testBuffersAreReused() {
+    final PooledBuffer buffer = PooledBuffer.acquire();
+    // a nested encode on the same thread gets its own buffer
+    assertThat(PooledBuffer.acquire()).isNotSameAs(buffer);
+    buffer.release();
+
+    assertThat(PooledBuffer.acquire()).isSameAs(buffer);
+    buffer.release();
+  }
+
+  @Test
+  public void testLargeBuffersAreNotRetained() {
+    final PooledBuffer buffer = PooledBuffer.acquire();
+    buffer.write(new byte[PooledBuffer.MAX_RETAINED + 1], 0, PooledBuffer.MAX_RETAINED + 1);
+    assertThat(buffer.toBinaryValue().length()).isEqualTo(PooledBuffer.MAX_RETAINED + 1);
+    buffer.release();
+
+    final PooledBuffer next = PooledBuffer.acquire();
+    assertThat(next).isNotSameAs(buffer);
+    assertThat(next.capacity()).isEqualTo(PooledBuffer.INITIAL_SIZE);
+    next.release();
+  }
+
+  public static class User {
+    @JsonProperty public String name;
+    @JsonProperty public int age;
+
+    public User() {}
+
+    User(final String name, final int age) {
+      this.name = name;
+      this.age = age;
+    }
+  }
+}
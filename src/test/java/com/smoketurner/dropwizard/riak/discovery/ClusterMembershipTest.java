@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.discovery;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.core.RiakNode;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.net.HostAndPort;
+import com.smoketurner.dropwizard.riak.RiakFactory;
+import com.smoketurner.dropwizard.riak.testing.FakeRiakServer;
+import com.smoketurner.dropwizard.riak.testing.FakeRiakServerRule;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ClusterMembershipTest {
+
+  private final Location location = new Location(new Namespace("maps", "users"), "key");
+
+  @Rule
+  public final FakeRiakServerRule riak =
+      new FakeRiakServerRule(factory -> factory.setMembership(new MembershipFactory()));
+
+  private FakeRiakServer other;
+  private ClusterMembership membership;
+
+  @Before
+  public void setUp() throws Exception {
+    other = new FakeRiakServer();
+    riak.getClient();
+    membership = riak.getFactory().buildMembership(riak.getMetrics());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    other.close();
+  }
+
+  @Test
+  public void testAddAndRemoveNodes() throws Exception {
+    final HostAndPort first = riak.getServer().getAddress();
+    final HostAndPort second = other.getAddress();
+
+    membership.update(Arrays.asList(first, second));
+    assertThat(nodes()).containsExactly(first, second);
+    // the new node opened its connections as it started, which the server registers asynchronously
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+    while (other.getConnectionCount() < 1 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertThat(other.getConnectionCount()).isEqualTo(1);
+
+    membership.update(Collections.singletonList(second));
+    assertThat(nodes()).containsExactly(second);
+    assertThat(riak.getMetrics().counter("riak.membership.added").getCount()).isEqualTo(1L);
+    assertThat(riak.getMetrics().counter("riak.membership.removed").getCount()).isEqualTo(1L);
+
+    final long before = other.getRequestCount();
+    riak.getClient().execute(new FetchValue.Builder(location).build());
+    assertThat(other.getRequestCount()).isEqualTo(before + 1);
+  }
+
+  @Test
+  public void testEmptyUpdateIsIgnored() throws Exception {
+    membership.update(Collections.emptyList());
+    assertThat(nodes()).containsExactly(riak.getServer().getAddress());
+  }
+
+  @Test
+  public void testTaskUpdatesNodes() throws Exception {
+    final StringWriter output = new StringWriter();
+    new MembershipTask(membership)
+        .execute(
+            ImmutableMultimap.of("node", other.getAddress().toString()), new PrintWriter(output));
+
+    assertThat(nodes()).containsExactly(other.getAddress());
+    assertThat(output.toString()).startsWith("Added [" + other.getAddress() + "]");
+  }
+
+  @Test
+  public void testRefreshUsesConfiguredNodes() throws Exception {
+    assertThat(membership.refresh()).isEqualTo("No changes");
+  }
+
+  @Test
+  public void testHostnameNodesMatchDiscoveredAddresses() throws Exception {
+    final HostAndPort address = riak.getServer().getAddress();
+    final HostAndPort hostname = HostAndPort.fromParts("localhost", address.getPort());
+    final RiakFactory factory = new RiakFactory();
+    factory.setNodes(Collections.singletonList(hostname));
+    factory.setMinConnections(1);
+    final MetricRegistry metrics = new MetricRegistry();
+    final RiakClient client = factory.build(metrics);
+    client.getRiakCluster().start();
+    try {
+      final ClusterMembership byHostname = factory.buildMembership(metrics);
+
+      assertThat(byHostname.update(Collections.singletonList(address))).isEqualTo("No changes");
+      assertThat(client.getRiakCluster().getNodes())
+          .extracting(RiakNode::getRemoteAddress)
+          .containsExactly("localhost");
+      assertThat(metrics.counter("riak.membership.removed").getCount()).isZero();
+    } finally {
+      client.shutdown().get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  private List<HostAndPort> nodes() throws Exception {
+    return riak.getClient().getRiakCluster().getNodes().stream()
+        .map((RiakNode node) -> HostAndPort.fromParts(node.getRemoteAddress(), node.getPort()))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.discovery;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.net.HostAndPort;
+import org.junit.Test;
+
+public class DnsNodeDiscoveryTest {
+
+  @Test
+  public void testResolvesAddressRecords() throws Exception {
+    final DnsNodeDiscovery discovery = new DnsNodeDiscovery();
+    discovery.setName("localhost");
+    discovery.setPort(9000);
+
+    assertThat(discovery.discover())
+        .isNotEmpty()
+        .allSatisfy(address -> assertThat(address.getPort()).isEqualTo(9000));
+  }
+
+  @Test
+  public void testParseSrv() {
+    assertThat(DnsNodeDiscovery.parseSrv("10 60 8087 riak1.example.com."))
+        .isEqualTo(HostAndPort.fromParts("riak1.example.com", 8087));
+    assertThatThrownBy(() -> DnsNodeDiscovery.parseSrv("riak1.example.com"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.discovery;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.net.HostAndPort;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileNodeDiscoveryTest {
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testReadsNodes() throws Exception {
+    final File file = folder.newFile("nodes.txt");
+    Files.write(
+        file.toPath(),
+        Arrays.asList("# riak nodes", "riak1:8087", "", "  riak2  "),
+        StandardCharsets.UTF_8);
+
+    final FileNodeDiscovery discovery = new FileNodeDiscovery();
+    discovery.setPath(file.getPath());
+
+    assertThat(discovery.discover())
+        .containsExactly(HostAndPort.fromParts("riak1", 8087), HostAndPort.fromHost("riak2"));
+  }
+}
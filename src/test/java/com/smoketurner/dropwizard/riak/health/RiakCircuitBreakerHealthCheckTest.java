@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.health;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.health.HealthCheck.Result;
+import com.google.common.collect.ImmutableMap;
+import com.smoketurner.dropwizard.riak.cluster.CircuitBreaker;
+import com.smoketurner.dropwizard.riak.cluster.InstrumentedNodeManager;
+import org.junit.Test;
+
+public class RiakCircuitBreakerHealthCheckTest {
+
+  private final InstrumentedNodeManager nodeManager = mock(InstrumentedNodeManager.class);
+  private final RiakCircuitBreakerHealthCheck check =
+      new RiakCircuitBreakerHealthCheck(nodeManager);
+
+  @Test
+  public void testHealthyWhenClosed() throws Exception {
+    when(nodeManager.getCircuitBreakerStates())
+        .thenReturn(
+            ImmutableMap.of(
+                "riak1:8087", CircuitBreaker.State.CLOSED,
+                "riak2:8087", CircuitBreaker.State.HALF_OPEN));
+
+    final Result actual = check.check();
+    assertThat(actual.isHealthy()).isTrue();
+    assertThat(actual.getDetails()).containsEntry("riak2:8087", "HALF_OPEN");
+  }
+
+  @Test
+  public void testUnhealthyWhenOpen() throws Exception {
+    when(nodeManager.getCircuitBreakerStates())
+        .thenReturn(
+            ImmutableMap.of(
+                "riak1:8087", CircuitBreaker.State.OPEN,
+                "riak2:8087", CircuitBreaker.State.CLOSED));
+
+    final Result actual = check.check();
+    assertThat(actual.isHealthy()).isFalse();
+    assertThat(actual.getMessage()).isEqualTo("Circuit breaker open for riak1:8087");
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.health;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.health.HealthCheck.Result;
+import com.smoketurner.dropwizard.riak.testing.FakeRiakServer;
+import com.smoketurner.dropwizard.riak.testing.FakeRiakServerRule;
+import io.dropwizard.util.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class RiakHealthProbeTest {
+
+  @Rule
+  public final FakeRiakServerRule riak =
+      new FakeRiakServerRule(
+          factory -> factory.getHealthCheck().setTimeout(Duration.milliseconds(200)));
+
+  @Test
+  public void testNotProbedYet() throws Exception {
+    final RiakHealthProbe probe = build();
+    final Result actual = riak.getFactory().getHealthCheck().buildHealthCheck(probe).check();
+
+    assertThat(actual.isHealthy()).isFalse();
+    assertThat(actual.getMessage()).isEqualTo("Riak has not been probed yet");
+  }
+
+  @Test
+  public void testNodeUp() throws Exception {
+    final RiakHealthProbe probe = build();
+    final RiakHealthProbe.Result result = probe.probe();
+
+    final String address = riak.getServer().getAddress().toString();
+    assertThat(result.getHealthyNodes()).isEqualTo(1);
+    assertThat(result.getNodes().get(address).isUp()).isTrue();
+    assertThat(riak.getMetrics().timer("riak.nodes." + address + ".ping").getCount()).isEqualTo(1L);
+
+    final Result actual = riak.getFactory().getHealthCheck().buildHealthCheck(probe).check();
+    assertThat(actual.isHealthy()).isTrue();
+    assertThat(actual.getMessage()).isEqualTo("1 of 1 Riak nodes are up");
+    assertThat((String) actual.getDetails().get(address)).startsWith("up (");
+  }
+
+  @Test
+  public void testTimesEachNodeFromItsOwnPing() throws Exception {
+    try (FakeRiakServer slow = new FakeRiakServer()) {
+      slow.setLatency(150, TimeUnit.MILLISECONDS);
+      riak.getFactory().setNodes(Arrays.asList(slow.getAddress(), riak.getServer().getAddress()));
+      final RiakHealthProbe probe = build();
+
+      final RiakHealthProbe.Result result = probe.probe();
+      assertThat(result.getHealthyNodes()).isEqualTo(2);
+
+      // the fast node is awaited after the slow one, but its round trip is its own
+      final Timer fast =
+          riak.getMetrics().timer("riak.nodes." + riak.getServer().getAddress() + ".ping");
+      assertThat(fast.getCount()).isEqualTo(1L);
+      assertThat(fast.getSnapshot().getMax()).isLessThan(TimeUnit.MILLISECONDS.toNanos(100));
+      final Timer slowPing = riak.getMetrics().timer("riak.nodes." + slow.getAddress() + ".ping");
+      assertThat(slowPing.getSnapshot().getMax())
+          .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(150));
+    }
+  }
+
+  @Test
+  public void testNodeTimesOut() throws Exception {
+    final RiakHealthProbe probe = build();
+    riak.getServer().setLatency(1, TimeUnit.SECONDS);
+
+    final RiakHealthProbe.Result result = probe.probe();
+    assertThat(result.getHealthyNodes()).isZero();
+
+    final Result actual = riak.getFactory().getHealthCheck().buildHealthCheck(probe).check();
+    assertThat(actual.isHealthy()).isFalse();
+    assertThat(actual.getMessage()).isEqualTo("0 of 1 Riak nodes are up");
+  }
+
+  @Test
+  public void testStaleResult() throws Exception {
+    final RiakHealthProbe probe = build();
+    probe.probe();
+
+    final Result actual = new CachedRiakHealthCheck(probe, 1, Duration.milliseconds(0)).check();
+    assertThat(actual.isHealthy()).isFalse();
+    assertThat(actual.getMessage()).startsWith("Riak was last probed");
+  }
+
+  private RiakHealthProbe build() throws Exception {
+    riak.getClient();
+    return riak.getFactory().buildHealthProbe(riak.getMetrics());
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.hedging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.core.RiakCluster;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.codahale.metrics.MetricRegistry;
+import com.smoketurner.dropwizard.riak.RiakFactory;
+import com.smoketurner.dropwizard.riak.client.SettableRiakFuture;
+import com.smoketurner.dropwizard.riak.cluster.ConcurrencyLimitFactory;
+import com.smoketurner.dropwizard.riak.testing.FakeRiakServer;
+import io.dropwizard.util.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HedgingRiakClientTest {
+
+  private final RiakClient delegate = mock(RiakClient.class);
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final Location location = new Location(new Namespace("maps", "users"), "key");
+  private final FetchValue.Response response = mock(FetchValue.Response.class);
+  private final List<SettableRiakFuture<FetchValue.Response, Location>> futures =
+      new CopyOnWriteArrayList<>();
+
+  private HedgingRiakClient client;
+
+  @Before
+  public void setUp() {
+    when(delegate.getRiakCluster()).thenReturn(mock(RiakCluster.class));
+    when(delegate.executeAsync(any(FetchValue.class)))
+        .thenAnswer(
+            invocation -> {
+              final SettableRiakFuture<FetchValue.Response, Location> future =
+                  new SettableRiakFuture<>(location);
+              futures.add(future);
+              return future;
+            });
+  }
+
+  @After
+  public void tearDown() {
+    if (client != null) {
+      client.shutdown();
+    }
+  }
+
+  @Test
+  public void testSlowFetchIsHedged() throws Exception {
+    client = build(0.05);
+    warmUp();
+
+    final RiakFuture<FetchValue.Response, Location> result = client.executeAsync(fetch());
+    awaitFutures(2);
+    futures.get(1).set(response);
+
+    assertThat(result.get(1, TimeUnit.SECONDS)).isSameAs(response);
+    assertThat(result.getQueryInfo()).isEqualTo(location);
+    assertThat(metrics.meter("riak.hedging.sent").getCount()).isEqualTo(1L);
+    assertThat(metrics.meter("riak.hedging.won").getCount()).isEqualTo(1L);
+
+    // the primary completing afterwards is ignored
+    futures.get(0).set(mock(FetchValue.Response.class));
+    assertThat(result.get()).isSameAs(response);
+  }
+
+  @Test
+  public void testPrimaryWins() throws Exception {
+    client = build(0.05);
+    warmUp();
+
+    final RiakFuture<FetchValue.Response, Location> result = client.executeAsync(fetch());
+    awaitFutures(2);
+    futures.get(0).set(response);
+
+    assertThat(result.get(1, TimeUnit.SECONDS)).isSameAs(response);
+    assertThat(metrics.meter("riak.hedging.sent").getCount()).isEqualTo(1L);
+    assertThat(metrics.meter("riak.hedging.won").getCount()).isZero();
+  }
+
+  @Test
+  public void testFailsOnlyOnceBothFail() throws Exception {
+    client = build(0.05);
+    warmUp();
+
+    final RiakFuture<FetchValue.Response, Location> result = client.executeAsync(fetch());
+    awaitFutures(2);
+    futures.get(0).setException(new IllegalStateException("primary"));
+    assertThat(result.isDone()).isFalse();
+
+    futures.get(1).setException(new IllegalStateException("hedge"));
+    assertThatThrownBy(() -> result.get(1, TimeUnit.SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .hasRootCauseMessage("hedge");
+  }
+
+  @Test
+  public void testNoHedgeWithoutBudget() throws Exception {
+    client = build(0.0);
+    warmUp();
+
+    final RiakFuture<FetchValue.Response, Location> result = client.executeAsync(fetch());
+    Thread.sleep(50);
+    assertThat(futures).hasSize(1);
+
+    futures.get(0).set(response);
+    assertThat(result.get()).isSameAs(response);
+    assertThat(metrics.meter("riak.hedging.sent").getCount()).isZero();
+  }
+
+  @Test
+  public void testNoHedgeBeforeEnoughSamples() throws Exception {
+    client = build(1.0);
+
+    final RiakFuture<FetchValue.Response, Location> result = client.executeAsync(fetch());
+    assertThat(result).isSameAs(futures.get(0));
+  }
+
+  @Test
+  public void testHedgeIsSkippedWhenNodesAreAtLimit() throws Exception {
+    try (FakeRiakServer server = new FakeRiakServer()) {
+      final ConcurrencyLimitFactory limit = new ConcurrencyLimitFactory();
+      limit.setInitialLimit(1);
+      limit.setMaxLimit(1);
+      limit.setMaxWait(Duration.seconds(10));
+      final RiakFactory factory = new RiakFactory();
+      factory.setNodes(Collections.singletonList(server.getAddress()));
+      factory.setMinConnections(1);
+      factory.setConcurrencyLimit(limit);
+      factory.setHedging(new HedgingFactory());
+      final RiakClient riak = factory.build(metrics);
+      riak.getRiakCluster().start();
+      try {
+        for (int i = 0; i < 100; i++) {
+          riak.execute(fetch());
+        }
+        // the hedging delay is recalculated from the warm-up fetches once a second
+        Thread.sleep(1100);
+        server.setLatency(1, TimeUnit.SECONDS);
+
+        final RiakFuture<FetchValue.Response, Location> result = riak.executeAsync(fetch());
+        // the primary holds the only slot, so the hedge is skipped rather than waiting for it
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        while (metrics.meter("riak.hedging.skipped").getCount() == 0
+            && System.nanoTime() < deadline) {
+          Thread.sleep(1);
+        }
+        System.err.println(
+            +metrics.meter("riak.hedging.sent").getCount()
+                + " delay="
+                + metrics.getGauges().get("riak.hedging.delay").getValue()
+                + " count="
+                + metrics.timer("riak.hedging.latency").getCount()
+                + " rejected="
+                + metrics.getMeters().keySet());
+        assertThat(metrics.meter("riak.hedging.skipped").getCount()).isEqualTo(1L);
+        assertThat(metrics.meter("riak.hedging.sent").getCount()).isZero();
+        assertThat(result.isDone()).isFalse();
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isNotNull();
+      } finally {
+        riak.shutdown().get(5, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  private HedgingRiakClient build(final double maxExtraLoad) {
+    return new HedgingRiakClient(
+        delegate, maxExtraLoad, 10, 0.95, TimeUnit.MILLISECONDS.toNanos(5), metrics, "riak");
+  }
+
+  private void warmUp() {
+    for (int i = 0; i < 100; i++) {
+      client.executeAsync(fetch());
+      futures.remove(0).set(response);
+    }
+  }
+
+  private void awaitFutures(final int count) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (futures.size() < count && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertThat(futures).hasSize(count);
+  }
+
+  private FetchValue fetch() {
+    return new FetchValue.Builder(location).build();
+  }
+}
@@ -17,11 +17,15 @@ package com.smoketurner.dropwizard.riak.managed;
 
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.basho.riak.client.api.RiakClient;
 import com.basho.riak.client.core.RiakCluster;
+import com.smoketurner.dropwizard.riak.cluster.ConnectionWarmer;
+import com.smoketurner.dropwizard.riak.cluster.InstrumentedNodeManager;
+import io.dropwizard.util.Duration;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -36,6 +40,9 @@ public class RiakClientManagerTest {
   private final RiakCluster cluster = mock(RiakCluster.class);
   private final RiakClientManager manager = new RiakClientManager(client);
 
+  @SuppressWarnings("unchecked")
+  private final Future<Boolean> shutdown = mock(Future.class);
+
   @Before
   public void setUp() {
     when(client.getRiakCluster()).thenReturn(cluster);
@@ -47,6 +54,15 @@ public class RiakClientManagerTest {
     verify(client.getRiakCluster()).start();
   }
 
+  @Test
+  public void testStartWithWarmer() throws Exception {
+    final ConnectionWarmer warmer = mock(ConnectionWarmer.class);
+    new RiakClientManager(client, warmer).start();
+
+    verify(warmer).start(cluster);
+    verify(cluster, never()).start();
+  }
+
   @Test
   public void testStop() throws Exception {
     when(client.shutdown())
@@ -85,4 +101,31 @@ public class RiakClientManagerTest {
     inOrder.verify(client).shutdown();
     inOrder.verify(client).cleanup();
   }
+
+  @Test
+  public void testStopDrainsFirst() throws Exception {
+    final InstrumentedNodeManager nodeManager = mock(InstrumentedNodeManager.class);
+    when(client.shutdown()).thenReturn(shutdown);
+
+    new RiakClientManager(client, null, nodeManager, Duration.seconds(3), Duration.seconds(5))
+        .stop();
+    final InOrder inOrder = inOrder(nodeManager, client);
+    inOrder.verify(nodeManager).drain(3, TimeUnit.SECONDS);
+    inOrder.verify(client).shutdown();
+    inOrder.verify(client).cleanup();
+  }
+
+  @Test
+  public void testStopWaitsUpToShutdownTimeout() throws Exception {
+    when(client.shutdown()).thenReturn(shutdown);
+
+    new RiakClientManager(
+            client,
+            null,
+            mock(InstrumentedNodeManager.class),
+            Duration.seconds(3),
+            Duration.seconds(7))
+        .stop();
+    verify(shutdown).get(7, TimeUnit.SECONDS);
+  }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.multiget;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.smoketurner.dropwizard.riak.client.SettableRiakFuture;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RiakMultiGetTest {
+
+  private final RiakClient client = mock(RiakClient.class);
+  private final FetchValue.Response response = mock(FetchValue.Response.class);
+  private final List<SettableRiakFuture<FetchValue.Response, Location>> fetches = new ArrayList<>();
+  private final List<FetchResult> results = new ArrayList<>();
+  private final RiakMultiGet multiGet = new RiakMultiGet(client, 2, Runnable::run);
+
+  @Before
+  public void setUp() {
+    when(client.executeAsync(any(FetchValue.class)))
+        .thenAnswer(
+            invocation -> {
+              final SettableRiakFuture<FetchValue.Response, Location> future =
+                  new SettableRiakFuture<>(null);
+              fetches.add(future);
+              return future;
+            });
+  }
+
+  @Test
+  public void testBoundsInFlightFetches() throws Exception {
+    final CompletableFuture<Void> done = multiGet.fetch(locations(5), results::add);
+
+    assertThat(fetches).hasSize(2);
+    fetches.get(0).set(response);
+    assertThat(fetches).hasSize(3);
+    assertThat(results).hasSize(1);
+    assertThat(results.get(0).isSuccess()).isTrue();
+    assertThat(results.get(0).getResponse()).contains(response);
+
+    for (int i = 1; i < 5; i++) {
+      fetches.get(i).set(response);
+    }
+
+    assertThat(done).isCompleted();
+    assertThat(results).hasSize(5);
+  }
+
+  @Test
+  public void testPullsLocationsLazily() throws Exception {
+    final AtomicInteger pulled = new AtomicInteger();
+    final Stream<Location> locations =
+        IntStream.range(0, 100_000)
+            .peek(i -> pulled.incrementAndGet())
+            .mapToObj(i -> location(String.valueOf(i)));
+
+    multiGet.fetch(locations, results::add);
+
+    assertThat(pulled.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testSynchronousCompletion() throws Exception {
+    when(client.executeAsync(any(FetchValue.class)))
+        .thenAnswer(invocation -> SettableRiakFuture.completed(response, null));
+
+    final CompletableFuture<Void> done = multiGet.fetch(locations(10_000), results::add);
+
+    assertThat(done).isCompleted();
+    assertThat(results).hasSize(10_000);
+  }
+
+  @Test
+  public void testFailuresAreDelivered() throws Exception {
+    final CompletableFuture<Void> done = multiGet.fetch(locations(1), results::add);
+
+    fetches.get(0).setException(new RuntimeException("boom"));
+
+    assertThat(done).isCompleted();
+    assertThat(results.get(0).isSuccess()).isFalse();
+    assertThat(results.get(0).getCause().get()).hasMessage("boom");
+  }
+
+  @Test
+  public void testCancelStopsFetching() throws Exception {
+    final CompletableFuture<Void> done = multiGet.fetch(locations(5), results::add);
+
+    done.cancel(false);
+    fetches.get(0).set(response);
+
+    verify(client, times(2)).executeAsync(any(FetchValue.class));
+    assertThat(results).isEmpty();
+  }
+
+  @Test
+  public void testCompletesFetchesOnExecutor() throws Exception {
+    final List<Runnable> tasks = new ArrayList<>();
+    final CompletableFuture<Void> done =
+        new RiakMultiGet(client, 1, tasks::add).fetch(locations(2), results::add);
+
+    fetches.get(0).set(response);
+
+    assertThat(results).isEmpty();
+    assertThat(fetches).hasSize(1);
+
+    tasks.get(0).run();
+
+    assertThat(results).hasSize(1);
+    assertThat(fetches).hasSize(2);
+
+    fetches.get(1).set(response);
+    tasks.get(1).run();
+
+    assertThat(done).isCompleted();
+    assertThat(results).hasSize(2);
+  }
+
+  @Test
+  public void testRejectedCompletionFailsFetch() throws Exception {
+    final CompletableFuture<Void> done =
+        new RiakMultiGet(
+                client,
+                1,
+                task -> {
+                  throw new RejectedExecutionException("stopped");
+                })
+            .fetch(locations(2), results::add);
+
+    fetches.get(0).set(response);
+
+    assertThat(done).isCompletedExceptionally();
+    assertThat(fetches).hasSize(1);
+    assertThat(results).isEmpty();
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    assertThat(multiGet.fetch(locations(0), results::add)).isCompleted();
+  }
+
+  private static List<Location> locations(final int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> location(String.valueOf(i)))
+        .collect(Collectors.toList());
+  }
+
+  private static Location location(final String key) {
+    return new Location(new Namespace("maps", "users"), key);
+  }
+}
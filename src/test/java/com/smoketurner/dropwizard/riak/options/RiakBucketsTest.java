@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.options;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.basho.riak.client.api.cap.Quorum;
+import com.basho.riak.client.api.commands.kv.DeleteValue;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.google.common.collect.ImmutableList;
+import com.smoketurner.dropwizard.riak.RiakFactory;
+import io.dropwizard.util.Duration;
+import org.junit.Test;
+
+public class RiakBucketsTest {
+
+  private final Location cached = new Location(new Namespace("cache", "sessions"), "a");
+  private final Location other = new Location(new Namespace("cache", "users"), "a");
+  private final Location plain = new Location(new Namespace("users"), "a");
+
+  @Test
+  public void testAppliesBucketDefaults() {
+    final RiakBuckets buckets = build();
+
+    assertThat(buckets.fetch(cached).build())
+        .isEqualTo(
+            new FetchValue.Builder(cached)
+                .withOption(FetchValue.Option.R, Quorum.oneQuorum())
+                .withOption(FetchValue.Option.NOTFOUND_OK, true)
+                .withOption(FetchValue.Option.BASIC_QUORUM, false)
+                .withTimeout(50)
+                .build());
+    assertThat(buckets.delete(cached).build().toString())
+        .isEqualTo(
+            new DeleteValue.Builder(cached)
+                .withOption(DeleteValue.Option.R, Quorum.oneQuorum())
+                .withOption(DeleteValue.Option.W, new Quorum(2))
+                .withTimeout(50)
+                .build()
+                .toString());
+    assertThat(buckets.store(cached, "value").build().toString())
+        .isEqualTo(
+            new StoreValue.Builder("value")
+                .withLocation(cached)
+                .withOption(StoreValue.Option.W, new Quorum(2))
+                .withTimeout(50)
+                .build()
+                .toString());
+  }
+
+  @Test
+  public void testBucketTakesPrecedenceOverBucketType() {
+    final RiakBuckets buckets = build();
+
+    assertThat(buckets.fetch(other).build())
+        .isEqualTo(
+            new FetchValue.Builder(other)
+                .withOption(FetchValue.Option.R, Quorum.quorumQuorum())
+                .build());
+    assertThat(buckets.get(plain.getNamespace())).isSameAs(BucketOptions.DEFAULT);
+    assertThat(buckets.fetch(plain).build()).isEqualTo(new FetchValue.Builder(plain).build());
+  }
+
+  @Test
+  public void testCallerOptionsReplaceDefaults() {
+    final FetchValue fetch =
+        build()
+            .get(cached.getNamespace())
+            .fetch(cached)
+            .withOption(FetchValue.Option.R, Quorum.allQuorum())
+            .build();
+
+    assertThat(fetch)
+        .isEqualTo(
+            new FetchValue.Builder(cached)
+                .withOption(FetchValue.Option.R, Quorum.allQuorum())
+                .withOption(FetchValue.Option.NOTFOUND_OK, true)
+                .withOption(FetchValue.Option.BASIC_QUORUM, false)
+                .withTimeout(50)
+                .build());
+  }
+
+  private RiakBuckets build() {
+    final BucketOptionsFactory sessions = new BucketOptionsFactory();
+    sessions.setBucketType("cache");
+    sessions.setBucket("sessions");
+    sessions.setR("one");
+    sessions.setW("2");
+    sessions.setNotFoundOk(true);
+    sessions.setBasicQuorum(false);
+    sessions.setTimeout(Duration.milliseconds(50));
+
+    final BucketOptionsFactory cache = new BucketOptionsFactory();
+    cache.setBucketType("cache");
+    cache.setR("quorum");
+
+    final RiakFactory factory = new RiakFactory();
+    factory.setBuckets(ImmutableList.of(sessions, cache));
+    return factory.buildBuckets();
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.indexes.BinIndexQuery;
+import com.basho.riak.client.api.commands.indexes.SecondaryIndexQuery;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.smoketurner.dropwizard.riak.client.SettableRiakFuture;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+public class RiakStreamingQueryTest {
+
+  private final RiakClient client = mock(RiakClient.class);
+  private final Namespace namespace = new Namespace("maps", "users");
+  private final RiakStreamingQuery query = new RiakStreamingQuery(client, 2);
+
+  @Test
+  public void testFollowsContinuations() {
+    final BinIndexQuery.Response first = page(BinaryValue.create("c1"), "a", "b");
+    final BinIndexQuery.Response second = page(null, "c");
+    when(client.executeAsync(any(BinIndexQuery.class)))
+        .thenReturn(SettableRiakFuture.completed(first, null))
+        .thenReturn(SettableRiakFuture.completed(second, null));
+
+    final List<String> keys =
+        query
+            .listKeys(namespace)
+            .map(location -> location.getKey().toString())
+            .collect(Collectors.toList());
+
+    assertThat(keys).containsExactly("a", "b", "c");
+    verify(client, times(2)).executeAsync(any(BinIndexQuery.class));
+  }
+
+  @Test
+  public void testPagesAreRequestedLazily() {
+    final BinIndexQuery.Response first = page(BinaryValue.create("c1"), "a", "b");
+    when(client.executeAsync(any(BinIndexQuery.class)))
+        .thenReturn(SettableRiakFuture.completed(first, null))
+        .thenReturn(new SettableRiakFuture<>(null));
+
+    final Stream<Location> keys = query.listKeys(namespace);
+    verify(client, never()).executeAsync(any(BinIndexQuery.class));
+
+    final Iterator<Location> iterator = keys.iterator();
+    assertThat(iterator.next().getKey().toString()).isEqualTo("a");
+    assertThat(iterator.next().getKey().toString()).isEqualTo("b");
+
+    // the second page is prefetched but never waited on
+    verify(client, times(2)).executeAsync(any(BinIndexQuery.class));
+  }
+
+  @Test
+  public void testFailureIsThrown() {
+    when(client.executeAsync(any(BinIndexQuery.class)))
+        .thenReturn(SettableRiakFuture.failed(new RuntimeException("boom"), null));
+
+    assertThatThrownBy(() -> query.binIndex(namespace, "email", "a", "z").count())
+        .isInstanceOf(UncheckedExecutionException.class)
+        .hasRootCauseMessage("boom");
+  }
+
+  @SuppressWarnings("unchecked")
+  private BinIndexQuery.Response page(final BinaryValue continuation, final String... keys) {
+    final List<SecondaryIndexQuery.Response.Entry<String>> entries =
+        Arrays.stream(keys)
+            .map(
+                key -> {
+                  final SecondaryIndexQuery.Response.Entry<String> entry =
+                      mock(SecondaryIndexQuery.Response.Entry.class);
+                  when(entry.getRiakObjectLocation()).thenReturn(new Location(namespace, key));
+                  return entry;
+                })
+            .collect(Collectors.toList());
+
+    final BinIndexQuery.Response response = mock(BinIndexQuery.Response.class);
+    when(response.iterator()).thenAnswer(invocation -> entries.iterator());
+    when(response.hasContinuation()).thenReturn(continuation != null);
+    when(response.getContinuation()).thenReturn(continuation);
+    return response;
+  }
+}
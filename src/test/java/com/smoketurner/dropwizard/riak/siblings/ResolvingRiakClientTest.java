@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.siblings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smoketurner.dropwizard.riak.batch.RiakBatchWriter;
+import com.smoketurner.dropwizard.riak.testing.FakeRiakServerRule;
+import io.dropwizard.util.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ResolvingRiakClientTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Rule
+  public final FakeRiakServerRule riak =
+      new FakeRiakServerRule(
+          factory -> {
+            final SiblingRule rule = new SiblingRule();
+            rule.setBucket("tags");
+            rule.setMerger(new SetUnionMerger());
+            final SiblingResolutionFactory siblings = new SiblingResolutionFactory();
+            siblings.setRules(Collections.singletonList(rule));
+            factory.setSiblings(siblings);
+          });
+
+  private final Location tags = new Location(new Namespace("tags"), "post");
+  private final Location other = new Location(new Namespace("other"), "post");
+
+  @Before
+  public void setUp() {
+    riak.getServer().setAllowMult(true);
+  }
+
+  @Test
+  public void testMergesSiblingsAndWritesBack() throws Exception {
+    final RiakClient client = riak.getClient();
+    store(client, tags, "[\"a\"]");
+    store(client, tags, "[\"b\"]");
+    assertThat(raw(client, tags).getNumberOfValues()).isEqualTo(2);
+
+    final FetchValue.Response response = client.execute(new FetchValue.Builder(tags).build());
+    assertThat(response.getNumberOfValues()).isEqualTo(1);
+    assertThat(tags(response)).containsExactlyInAnyOrder("a", "b");
+    assertThat(riak.getMetrics().meter("riak.siblings.write-backs").getCount()).isEqualTo(1L);
+
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (raw(client, tags).getNumberOfValues() > 1 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    final FetchValue.Response stored = raw(client, tags);
+    assertThat(stored.getNumberOfValues()).isEqualTo(1);
+    assertThat(tags(stored)).containsExactlyInAnyOrder("a", "b");
+  }
+
+  @Test
+  public void testStoppingWriterWritesBackBeforeClientDrains() throws Exception {
+    riak.getFactory().getSiblings().getBatch().setLingerTime(Duration.minutes(1));
+    final RiakClient client = riak.getClient();
+    store(client, tags, "[\"a\"]");
+    store(client, tags, "[\"b\"]");
+    client.execute(new FetchValue.Builder(tags).build());
+
+    final RiakBatchWriter writer = riak.getFactory().getSiblingWriter().get();
+    assertThat(writer.getQueuedWrites()).isEqualTo(1);
+    writer.stop();
+
+    assertThat(writer.getPendingWrites()).isZero();
+    assertThat(raw(client, tags).getNumberOfValues()).isEqualTo(1);
+  }
+
+  @Test
+  public void testLeavesSiblingsWithoutMerger() throws Exception {
+    final RiakClient client = riak.getClient();
+    store(client, other, "[\"a\"]");
+    store(client, other, "[\"b\"]");
+
+    final FetchValue.Response response = client.execute(new FetchValue.Builder(other).build());
+    assertThat(response.getNumberOfValues()).isEqualTo(2);
+    assertThat(riak.getMetrics().meter("riak.siblings.unresolved").getCount()).isEqualTo(1L);
+  }
+
+  private static void store(final RiakClient client, final Location location, final String json)
+      throws Exception {
+    final RiakObject object =
+        new RiakObject().setContentType("application/json").setValue(BinaryValue.create(json));
+    client.execute(new StoreValue.Builder(object).withLocation(location).build());
+  }
+
+  private static String[] tags(final FetchValue.Response response) throws Exception {
+    return MAPPER.readValue(
+        response.getValue(RiakObject.class).getValue().getValue(), String[].class);
+  }
+
+  private static FetchValue.Response raw(final RiakClient client, final Location location)
+      throws Exception {
+    return new RiakClient(client.getRiakCluster())
+        .execute(new FetchValue.Builder(location).build());
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.siblings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.util.BinaryValue;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class SiblingMergerTest {
+
+  @Test
+  public void testSetUnionMergesArrays() throws Exception {
+    final RiakObject merged =
+        new SetUnionMerger().merge(Arrays.asList(object("[1,2]", 1), object("[2,3]", 2)));
+
+    assertThat(merged.getValue().toString()).isEqualTo("[1,2,3]");
+  }
+
+  @Test
+  public void testSetUnionMergesFieldAndKeepsNewestObject() throws Exception {
+    final SetUnionMerger merger = new SetUnionMerger();
+    merger.setField("tags");
+
+    final RiakObject merged =
+        merger.merge(
+            Arrays.asList(
+                object("{\"name\":\"old\",\"tags\":[\"a\"]}", 1),
+                object("{\"name\":\"new\",\"tags\":[\"b\"]}", 2)));
+
+    assertThat(merged.getValue().toString()).isEqualTo("{\"name\":\"new\",\"tags\":[\"a\",\"b\"]}");
+  }
+
+  @Test
+  public void testSetUnionRejectsNonArrays() {
+    assertThatThrownBy(
+            () -> new SetUnionMerger().merge(Arrays.asList(object("[1]", 1), object("{}", 2))))
+        .isInstanceOf(IOException.class);
+  }
+
+  @Test
+  public void testLastWriteWinsKeepsNewestSibling() throws Exception {
+    final RiakObject newest = object("\"b\"", 2);
+
+    assertThat(new LastWriteWinsMerger().merge(Arrays.asList(object("\"a\"", 1), newest)))
+        .isSameAs(newest);
+  }
+
+  @Test
+  public void testLastWriteWinsComparesField() throws Exception {
+    final LastWriteWinsMerger merger = new LastWriteWinsMerger();
+    merger.setField("updatedAt");
+    final RiakObject latest = object("{\"updatedAt\":\"2019-06-02T00:00:00Z\"}", 1);
+
+    assertThat(
+            merger.merge(
+                Arrays.asList(latest, object("{\"updatedAt\":\"2019-06-01T00:00:00Z\"}", 2))))
+        .isSameAs(latest);
+  }
+
+  @Test
+  public void testMaxCounterKeepsLargestValue() throws Exception {
+    final MaxCounterMerger merger = new MaxCounterMerger();
+    merger.setField("count");
+
+    final RiakObject merged =
+        merger.merge(
+            Arrays.asList(
+                object("{\"count\":10}", 1),
+                object("{\"count\":7}", 3),
+                object("{\"count\":9}", 2)));
+
+    assertThat(merged.getValue().toString()).isEqualTo("{\"count\":10}");
+  }
+
+  @Test
+  public void testTombstonesAreIgnored() throws Exception {
+    final RiakObject live = object("[1]", 1);
+    final RiakObject tombstone = object("[]", 2).setDeleted(true);
+
+    assertThat(new SetUnionMerger().merge(Arrays.asList(live, tombstone))).isSameAs(live);
+  }
+
+  @Test
+  public void testAllTombstonesKeepsNewest() throws Exception {
+    final RiakObject newest = object("[]", 2).setDeleted(true);
+
+    assertThat(
+            new MaxCounterMerger().merge(Arrays.asList(object("[]", 1).setDeleted(true), newest)))
+        .isSameAs(newest);
+  }
+
+  private static RiakObject object(final String json, final long lastModified) {
+    return new RiakObject()
+        .setContentType("application/json")
+        .setValue(BinaryValue.create(json))
+        .setLastModified(lastModified);
+  }
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.testing;
+
+import com.google.common.net.HostAndPort;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import shaded.com.basho.riak.protobuf.RiakKvPB;
+import shaded.com.basho.riak.protobuf.RiakMessageCodes;
+import shaded.com.basho.riak.protobuf.RiakPB;
+import shaded.com.google.protobuf.ByteString;
+import shaded.com.google.protobuf.InvalidProtocolBufferException;
+import shaded.com.google.protobuf.MessageLite;
+
+/**
+ * An in-process server which speaks enough of the Riak protocol buffers API (ping, get, put, delete
+ * and secondary index queries) to exercise the client against real sockets. Objects are kept in
+ * memory without siblings, so every put replaces the stored value, unless {@link
+ * #setAllowMult(boolean)} is enabled.
+ *
+ * <p>Latency, error responses and dropped connections can be injected, either for every request or
+ * for the next few, to test timeouts, retries and backpressure.
+ */
+public class FakeRiakServer implements AutoCloseable {
+
+  private static final ByteString DEFAULT_TYPE = ByteString.copyFromUtf8("default");
+  private static final String BUCKET_INDEX = "$bucket";
+  private static final String KEY_INDEX = "$key";
+  private static final Comparator<ByteString> BYTES =
+      (a, b) -> UnsignedBytes.lexicographicalComparator().compare(a.toByteArray(), b.toByteArray());
+
+  private final ConcurrentMap<List<ByteString>, RiakKvPB.RpbContent> objects =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<List<ByteString>, List<RiakKvPB.RpbContent>> siblings =
+      new ConcurrentHashMap<>();
+  private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+  private final AtomicLong clock = new AtomicLong();
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicInteger failNext = new AtomicInteger();
+  private final AtomicInteger dropNext = new AtomicInteger();
+  private final ExecutorService executor =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder().setNameFormat("fake-riak-%d").setDaemon(true).build());
+  private final ServerSocket serverSocket;
+
+  private volatile long latencyNanos = 0;
+  private volatile double errorRate = 0.0;
+  private volatile double dropRate = 0.0;
+  private volatile boolean allowMult = false;
+
+  /**
+   * Start a server listening on an ephemeral port of the loopback interface
+   *
+   * @throws IOException if unable to bind
+   */
+  public FakeRiakServer() throws IOException {
+    this.serverSocket = new ServerSocket(0, 512, InetAddress.getLoopbackAddress());
+    executor.execute(this::accept);
+  }
+
+  /** @return the address the server is listening on */
+  public HostAndPort getAddress() {
+    return HostAndPort.fromParts(
+        serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort());
+  }
+
+  /** @return the number of requests received */
+  public long getRequestCount() {
+    return requests.get();
+  }
+
+  /** @return the number of open connections */
+  public int getConnectionCount() {
+    return connections.size();
+  }
+
+  /**
+   * Delay every response
+   *
+   * @param latency Delay
+   * @param unit Delay unit
+   */
+  public void setLatency(final long latency, final TimeUnit unit) {
+    this.latencyNanos = unit.toNanos(latency);
+  }
+
+  /**
+   * Answer a fraction of requests with an error response
+   *
+   * @param rate Fraction of requests, between 0 and 1
+   */
+  public void setErrorRate(final double rate) {
+    this.errorRate = rate;
+  }
+
+  /**
+   * Close the connection instead of answering a fraction of requests
+   *
+   * @param rate Fraction of requests, between 0 and 1
+   */
+  public void setDropRate(final double rate) {
+    this.dropRate = rate;
+  }
+
+  /**
+   * Answer the next requests with an error response
+   *
+   * @param count Number of requests
+   */
+  public void failNext(final int count) {
+    failNext.set(count);
+  }
+
+  /**
+   * Close the connection instead of answering the next requests
+   *
+   * @param count Number of requests
+   */
+  public void dropNext(final int count) {
+    dropNext.set(count);
+  }
+
+  /**
+   * Keep concurrent values as siblings. A put without a vector clock on an existing object adds a
+   * sibling, while a put with a vector clock replaces every sibling.
+   *
+   * @param allowMult true to keep siblings
+   */
+  public void setAllowMult(final boolean allowMult) {
+    this.allowMult = allowMult;
+  }
+
+  /** Remove every stored object and injected fault. */
+  public void reset() {
+    objects.clear();
+    siblings.clear();
+    allowMult = false;
+    latencyNanos = 0;
+    errorRate = 0.0;
+    dropRate = 0.0;
+    failNext.set(0);
+    dropNext.set(0);
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    for (Socket socket : connections) {
+      socket.close();
+    }
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        final Socket socket = serverSocket.accept();
+        socket.setTcpNoDelay(true);
+        connections.add(socket);
+        executor.execute(() -> serve(socket));
+      } catch (IOException e) {
+        // closed
+      }
+    }
+  }
+
+  private void serve(final Socket socket) {
+    try (Socket s = socket;
+        DataInputStream in = new DataInputStream(s.getInputStream());
+        DataOutputStream out = new DataOutputStream(s.getOutputStream())) {
+      while (true) {
+        final int length = in.readInt();
+        final byte code = in.readByte();
+        final byte[] body = new byte[length - 1];
+        in.readFully(body);
+        requests.incrementAndGet();
+
+        if (latencyNanos > 0) {
+          TimeUnit.NANOSECONDS.sleep(latencyNanos);
+        }
+        if (decrement(dropNext) || chance(dropRate)) {
+          return;
+        }
+        if (decrement(failNext) || chance(errorRate)) {
+          write(out, error("Injected failure"));
+        } else {
+          handle(out, code, body);
+        }
+        out.flush();
+      }
+    } catch (EOFException | SocketException e) {
+      // client disconnected
+    } catch (IOException e) {
+      // treat as a disconnect
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      connections.remove(socket);
+    }
+  }
+
+  private void handle(final DataOutputStream out, final byte code, final byte[] body)
+      throws IOException {
+    switch (code) {
+      case RiakMessageCodes.MSG_PingReq:
+        write(out, message(RiakMessageCodes.MSG_PingResp, null));
+        break;
+      case RiakMessageCodes.MSG_GetReq:
+        write(out, get(RiakKvPB.RpbGetReq.parseFrom(body)));
+        break;
+      case RiakMessageCodes.MSG_PutReq:
+        write(out, put(RiakKvPB.RpbPutReq.parseFrom(body)));
+        break;
+      case RiakMessageCodes.MSG_DelReq:
+        write(out, delete(RiakKvPB.RpbDelReq.parseFrom(body)));
+        break;
+      case RiakMessageCodes.MSG_IndexReq:
+        for (byte[] message : index(RiakKvPB.RpbIndexReq.parseFrom(body))) {
+          write(out, message);
+        }
+        break;
+      default:
+        write(out, error("Unsupported message code: " + code));
+    }
+  }
+
+  private byte[] get(final RiakKvPB.RpbGetReq request) {
+    final List<ByteString> key = key(request.getType(), request.getBucket(), request.getKey());
+    final RiakKvPB.RpbContent content = objects.get(key);
+    final RiakKvPB.RpbGetResp.Builder response = RiakKvPB.RpbGetResp.newBuilder();
+    if (content != null) {
+      response.addContent(content).setVclock(content.getVtag());
+      response.addAllContent(siblings.getOrDefault(key, Collections.emptyList()));
+    }
+    return message(RiakMessageCodes.MSG_GetResp, response.build());
+  }
+
+  private byte[] put(final RiakKvPB.RpbPutReq request) {
+    final ByteString key =
+        request.hasKey()
+            ? request.getKey()
+            : ByteString.copyFromUtf8(Long.toHexString(clock.incrementAndGet()));
+    final ByteString vclock = ByteString.copyFromUtf8(Long.toString(clock.incrementAndGet()));
+    final long now = System.currentTimeMillis();
+    final RiakKvPB.RpbContent content =
+        request
+            .getContent()
+            .toBuilder()
+            .setVtag(vclock)
+            .setLastMod((int) (now / 1000))
+            .setLastModUsecs((int) (now % 1000) * 1000)
+            .build();
+    final List<ByteString> location = key(request.getType(), request.getBucket(), key);
+    final RiakKvPB.RpbContent previous = objects.put(location, content);
+    if (request.hasVclock()) {
+      siblings.remove(location);
+    } else if (allowMult && previous != null) {
+      siblings.computeIfAbsent(location, k -> new CopyOnWriteArrayList<>()).add(previous);
+    }
+
+    final RiakKvPB.RpbPutResp.Builder response = RiakKvPB.RpbPutResp.newBuilder();
+    if (!request.hasKey()) {
+      response.setKey(key);
+    }
+    if (request.getReturnBody()) {
+      response.addContent(content).setVclock(vclock);
+    }
+    return message(RiakMessageCodes.MSG_PutResp, response.build());
+  }
+
+  private byte[] delete(final RiakKvPB.RpbDelReq request) {
+    final List<ByteString> key = key(request.getType(), request.getBucket(), request.getKey());
+    objects.remove(key);
+    siblings.remove(key);
+    return message(RiakMessageCodes.MSG_DelResp, null);
+  }
+
+  /**
+   * Answer an index query. The client always requests streaming results, so the matching entries
+   * are followed by a final message with the continuation, if any, and the done flag.
+   */
+  private List<byte[]> index(final RiakKvPB.RpbIndexReq request)
+      throws InvalidProtocolBufferException {
+    final String index = request.getIndex().toStringUtf8();
+    final boolean integer = index.endsWith("_int");
+    final Comparator<ByteString> terms =
+        integer ? Comparator.comparing(t -> Long.parseLong(t.toStringUtf8())) : BYTES;
+    final Comparator<RiakPB.RpbPair> order =
+        Comparator.comparing(RiakPB.RpbPair::getKey, terms)
+            .thenComparing(RiakPB.RpbPair::getValue, BYTES);
+
+    // entries are pairs of index term and object key
+    final List<RiakPB.RpbPair> entries = new ArrayList<>();
+    final ByteString type = request.getType().isEmpty() ? DEFAULT_TYPE : request.getType();
+    for (Map.Entry<List<ByteString>, RiakKvPB.RpbContent> object : objects.entrySet()) {
+      final List<ByteString> key = object.getKey();
+      if (!key.get(0).equals(type) || !key.get(1).equals(request.getBucket())) {
+        continue;
+      }
+      if (BUCKET_INDEX.equals(index)) {
+        entries.add(pair(key.get(1), key.get(2)));
+      } else if (KEY_INDEX.equals(index)) {
+        entries.add(pair(key.get(2), key.get(2)));
+      } else {
+        for (RiakPB.RpbPair term : object.getValue().getIndexesList()) {
+          if (term.getKey().equals(request.getIndex())) {
+            entries.add(pair(term.getValue(), key.get(2)));
+          }
+        }
+      }
+    }
+
+    entries.removeIf(
+        entry -> {
+          if (BUCKET_INDEX.equals(index)) {
+            return false;
+          }
+          if (request.getQtype() == RiakKvPB.RpbIndexReq.IndexQueryType.eq) {
+            return terms.compare(entry.getKey(), request.getKey()) != 0;
+          }
+          return terms.compare(entry.getKey(), request.getRangeMin()) < 0
+              || terms.compare(entry.getKey(), request.getRangeMax()) > 0;
+        });
+    entries.sort(order);
+
+    if (request.hasContinuation()) {
+      final RiakPB.RpbPair last = RiakPB.RpbPair.parseFrom(request.getContinuation());
+      entries.removeIf(entry -> order.compare(entry, last) <= 0);
+    }
+
+    ByteString continuation = null;
+    List<RiakPB.RpbPair> page = entries;
+    if (request.hasMaxResults() && entries.size() > request.getMaxResults()) {
+      page = entries.subList(0, request.getMaxResults());
+      continuation = page.get(page.size() - 1).toByteString();
+    }
+
+    final RiakKvPB.RpbIndexResp.Builder results = RiakKvPB.RpbIndexResp.newBuilder();
+    final boolean returnTerms = request.getReturnTerms() && request.hasRangeMin();
+    for (RiakPB.RpbPair entry : page) {
+      if (returnTerms) {
+        results.addResults(entry);
+      } else {
+        results.addKeys(entry.getValue());
+      }
+    }
+
+    final RiakKvPB.RpbIndexResp.Builder done = RiakKvPB.RpbIndexResp.newBuilder().setDone(true);
+    if (continuation != null) {
+      done.setContinuation(continuation);
+    }
+    return Arrays.asList(
+        message(RiakMessageCodes.MSG_IndexResp, results.build()),
+        message(RiakMessageCodes.MSG_IndexResp, done.build()));
+  }
+
+  private static boolean decrement(final AtomicInteger counter) {
+    return counter.getAndUpdate(count -> Math.max(0, count - 1)) > 0;
+  }
+
+  private static boolean chance(final double rate) {
+    return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+  }
+
+  private static RiakPB.RpbPair pair(final ByteString key, final ByteString value) {
+    return RiakPB.RpbPair.newBuilder().setKey(key).setValue(value).build();
+  }
+
+  private static byte[] error(final String message) {
+    return message(
+        RiakMessageCodes.MSG_ErrorResp,
+        RiakPB.RpbErrorResp.newBuilder()
+            .setErrmsg(ByteString.copyFromUtf8(message))
+            .setErrcode(0)
+            .build());
+  }
+
+  private static List<ByteString> key(
+      final ByteString type, final ByteString bucket, final ByteString key) {
+    return Arrays.asList(type.isEmpty() ? DEFAULT_TYPE : type, bucket, key);
+  }
+
+  private static byte[] message(final byte code, @Nullable final MessageLite message) {
+    final byte[] body = message == null ? new byte[0] : message.toByteArray();
+    return ByteBuffer.allocate(5 + body.length).putInt(body.length + 1).put(code).put(body).array();
+  }
+
+  private static void write(final DataOutputStream out, final byte[] message) throws IOException {
+    out.write(message);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.testing;
+
+import com.basho.riak.client.api.RiakClient;
+import com.codahale.metrics.MetricRegistry;
+import com.smoketurner.dropwizard.riak.RiakFactory;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.junit.rules.ExternalResource;
+
+/**
+ * Starts a {@link FakeRiakServer} around each test and provides a {@link RiakFactory} pointing at
+ * it.
+ *
+ * <pre>
+ * &#64;Rule
+ * public final FakeRiakServerRule riak = new FakeRiakServerRule(factory -&gt; factory.setMaxConnections(2));
+ * </pre>
+ */
+public class FakeRiakServerRule extends ExternalResource {
+
+  private final Consumer<RiakFactory> customizer;
+  @Nullable private MetricRegistry metrics;
+  @Nullable private FakeRiakServer server;
+  @Nullable private RiakFactory factory;
+  @Nullable private RiakClient client;
+
+  public FakeRiakServerRule() {
+    this(factory -> {});
+  }
+
+  /**
+   * Constructor
+   *
+   * @param customizer Configures the factory before each test
+   */
+  public FakeRiakServerRule(final Consumer<RiakFactory> customizer) {
+    this.customizer = Objects.requireNonNull(customizer);
+  }
+
+  @Override
+  protected void before() throws Throwable {
+    metrics = new MetricRegistry();
+    server = new FakeRiakServer();
+    factory = new RiakFactory();
+    factory.setNodes(Collections.singletonList(server.getAddress()));
+    factory.setMinConnections(1);
+    customizer.accept(factory);
+  }
+
+  @Override
+  protected void after() {
+    try {
+      if (client != null) {
+        client.shutdown().get(5, TimeUnit.SECONDS);
+      }
+      if (server != null) {
+        server.close();
+      }
+    } catch (Exception e) {
+      throw new IllegalStateException("Unable to stop fake Riak server", e);
+    } finally {
+      client = null;
+      metrics = null;
+      server = null;
+      factory = null;
+    }
+  }
+
+  public FakeRiakServer getServer() {
+    return Objects.requireNonNull(server, "rule is not running");
+  }
+
+  public RiakFactory getFactory() {
+    return Objects.requireNonNull(factory, "rule is not running");
+  }
+
+  public MetricRegistry getMetrics() {
+    return Objects.requireNonNull(metrics, "rule is not running");
+  }
+
+  /**
+   * Build the client from {@link #getFactory()}, on first use, and start its cluster
+   *
+   * @return the started client
+   * @throws Exception if unable to build the client
+   */
+  public RiakClient getClient() throws Exception {
+    if (client == null) {
+      client = getFactory().build(getMetrics());
+      getFactory().buildClientManager(getMetrics()).start();
+    }
+    return client;
+  }
+}
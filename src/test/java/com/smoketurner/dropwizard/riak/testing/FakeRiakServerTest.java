@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.testing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.indexes.BinIndexQuery;
+import com.basho.riak.client.api.commands.indexes.IntIndexQuery;
+import com.basho.riak.client.api.commands.kv.DeleteValue;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.query.indexes.LongIntIndex;
+import com.basho.riak.client.core.query.indexes.StringBinIndex;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.smoketurner.dropwizard.riak.query.RiakStreamingQuery;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class FakeRiakServerTest {
+
+  private final Namespace namespace = new Namespace("maps", "users");
+  private final Location location = new Location(namespace, "key");
+
+  @Rule
+  public final FakeRiakServerRule riak =
+      new FakeRiakServerRule(factory -> factory.setExecutionAttempts(2));
+
+  @Test
+  public void testStoreFetchDelete() throws Exception {
+    final RiakClient client = riak.getClient();
+    final RiakObject object =
+        new RiakObject().setContentType("text/plain").setValue(BinaryValue.create("hello"));
+    client.execute(new StoreValue.Builder(object).withLocation(location).build());
+
+    final FetchValue.Response fetched = client.execute(new FetchValue.Builder(location).build());
+    assertThat(fetched.isNotFound()).isFalse();
+    assertThat(fetched.getValue(RiakObject.class).getValue().toString()).isEqualTo("hello");
+    assertThat(fetched.getValue(RiakObject.class).getContentType()).isEqualTo("text/plain");
+
+    client.execute(new DeleteValue.Builder(location).build());
+    assertThat(client.execute(new FetchValue.Builder(location).build()).isNotFound()).isTrue();
+  }
+
+  @Test
+  public void testStoreReturnBody() throws Exception {
+    final StoreValue.Response stored =
+        riak.getClient()
+            .execute(
+                new StoreValue.Builder(new RiakObject().setValue(BinaryValue.create("v")))
+                    .withLocation(location)
+                    .withOption(StoreValue.Option.RETURN_BODY, true)
+                    .build());
+
+    assertThat(stored.getValue(RiakObject.class).getVClock()).isNotNull();
+    assertThat(riak.getServer().getRequestCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testIndexQueries() throws Exception {
+    final RiakClient client = riak.getClient();
+    for (int i = 0; i < 5; i++) {
+      final RiakObject object = new RiakObject().setValue(BinaryValue.create("v"));
+      object.getIndexes().getIndex(StringBinIndex.named("email")).add("user" + i + "@example.com");
+      object.getIndexes().getIndex(LongIntIndex.named("age")).add((long) (20 + i));
+      client.execute(
+          new StoreValue.Builder(object).withLocation(new Location(namespace, "k" + i)).build());
+    }
+
+    final BinIndexQuery.Response match =
+        client.execute(new BinIndexQuery.Builder(namespace, "email", "user3@example.com").build());
+    assertThat(match.getEntries()).hasSize(1);
+    assertThat(match.getEntries().get(0).getRiakObjectLocation().getKeyAsString()).isEqualTo("k3");
+
+    final IntIndexQuery.Response range =
+        client.execute(
+            new IntIndexQuery.Builder(namespace, "age", 21L, 23L).withKeyAndIndex(true).build());
+    assertThat(range.getEntries().stream().map(e -> e.getIndexKey()).collect(Collectors.toList()))
+        .containsExactly(21L, 22L, 23L);
+
+    final List<String> keys =
+        new RiakStreamingQuery(client, 2)
+            .listKeys(namespace)
+            .map(Location::getKeyAsString)
+            .collect(Collectors.toList());
+    assertThat(keys).containsExactly("k0", "k1", "k2", "k3", "k4");
+  }
+
+  @Test
+  public void testInjectedErrorIsRetried() throws Exception {
+    riak.getServer().failNext(1);
+
+    riak.getClient().execute(new FetchValue.Builder(location).build());
+    assertThat(riak.getServer().getRequestCount()).isEqualTo(2L);
+  }
+
+  @Test
+  public void testDroppedConnectionsFailOnceRetriesAreExhausted() throws Exception {
+    final RiakClient client = riak.getClient();
+    riak.getServer().dropNext(2);
+
+    assertThatThrownBy(() -> client.execute(new FetchValue.Builder(location).build()))
+        .isInstanceOf(ExecutionException.class);
+    assertThat(client.execute(new FetchValue.Builder(location).build()).isNotFound()).isTrue();
+  }
+
+  @Test
+  public void testLatency() throws Exception {
+    final RiakClient client = riak.getClient();
+    riak.getServer().setLatency(500, TimeUnit.MILLISECONDS);
+
+    assertThatThrownBy(
+            () ->
+                client.execute(new FetchValue.Builder(location).build(), 50, TimeUnit.MILLISECONDS))
+        .isInstanceOf(TimeoutException.class);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2019 Smoke Turner, LLC (github@smoketurner.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smoketurner.dropwizard.riak.tracing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+public class TracingFactoryTest {
+
+  private final RiakTracer tracer = mock(RiakTracer.class);
+  private final TracingFactory factory = new TracingFactory();
+
+  @Test
+  public void testNoTracerOnClasspathIsNoop() {
+    assertThat(factory.build()).isSameAs(RiakTracer.NOOP);
+  }
+
+  @Test
+  public void testFullSampleRateUsesTracer() {
+    factory.setTracer(tracer);
+    assertThat(factory.build()).isSameAs(tracer);
+  }
+
+  @Test
+  public void testZeroSampleRateIsNoop() {
+    factory.setTracer(tracer);
+    factory.setSampleRate(0.0);
+    assertThat(factory.build()).isSameAs(RiakTracer.NOOP);
+  }
+
+  @Test
+  public void testSamplesFractionOfSpans() {
+    when(tracer.startSpan(anyString())).thenReturn(mock(RiakSpan.class));
+    factory.setTracer(tracer);
+    factory.setSampleRate(0.5);
+    final RiakTracer sampling = factory.build();
+    assertThat(sampling).isInstanceOf(SamplingRiakTracer.class);
+
+    int sampled = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (sampling.startSpan("riak Fetch") != null) {
+        sampled++;
+      }
+    }
+    assertThat(sampled).isBetween(350, 650);
+    verify(tracer, times(sampled)).startSpan("riak Fetch");
+  }
+
+  @Test
+  public void testUnsampledSpansSkipBuildingName() {
+    final SamplingRiakTracer sampling = new SamplingRiakTracer(tracer, 0.0);
+    assertThat(
+            sampling.startSpan(
+                () -> {
+                  throw new AssertionError("name built for an unsampled span");
+                }))
+        .isNull();
+  }
+
+  @Test
+  public void testUnsampledSpansSkipTracer() {
+    final SamplingRiakTracer sampling = new SamplingRiakTracer(tracer, 0.0);
+    assertThat(sampling.startSpan("riak Fetch")).isNull();
+    verify(tracer, never()).startSpan(anyString());
+  }
+}